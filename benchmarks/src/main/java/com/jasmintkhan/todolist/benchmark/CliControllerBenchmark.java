@@ -0,0 +1,121 @@
+package com.jasmintkhan.todolist.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import todolist.controller.TodoTaskController;
+import todolist.model.TodoTask;
+import todolist.repository.TaskFilter;
+import todolist.repository.TaskSortField;
+
+// Hot paths of the console app's TodoTaskController: filters, sorts, name search and point lookups.
+// Throughput and sampled latency (percentiles) per operation, at increasing task counts.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CliControllerBenchmark {
+
+    // 10M tasks need a larger heap: -p size=10000000 -jvmArgsAppend -Xmx32g
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private static final TaskFilter COMBINED_FILTER =
+            TaskFilter.parse("priority:HIGH,MEDIUM and not (category:WORK or completed:true)");
+
+    private TodoTaskController controller;
+    private int firstId;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void loadTasks() {
+        controller = new TodoTaskController();
+        today = LocalDate.now();
+        for (TodoTask task : TaskData.cliTasks(size, today)) {
+            controller.addTask(task);
+        }
+        firstId = controller.findAllTasks().get(0).getId();
+    }
+
+    private int randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksByPriority() {
+        return controller.filterTasksByPriority(TodoTask.Priority.HIGH);
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksByCategory() {
+        return controller.filterTasksByCategory(TodoTask.Category.HEALTH);
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksByDueDate() {
+        return controller.filterTasksByDueDate(today.plusDays(ThreadLocalRandom.current().nextInt(TaskData.DUE_DATE_SPREAD)));
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksByCompletionStatus() {
+        return controller.filterTasksByCompletionStatus(true);
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksCombined() {
+        return controller.filterTasks(COMBINED_FILTER);
+    }
+
+    @Benchmark
+    public List<TodoTask> sortTasksByDueDate() {
+        return controller.sortTasksByDueDate();
+    }
+
+    @Benchmark
+    public List<TodoTask> sortTasksByName() {
+        return controller.sortTasksByName();
+    }
+
+    @Benchmark
+    public List<TodoTask> sortTasksFirstPage() {
+        return controller.sortTasks(TaskSortField.NAME, 100);
+    }
+
+    @Benchmark
+    public List<TodoTask> topTasksNextDue() {
+        return controller.topTasks(TaskFilter.completed(false), 20, TaskSortField.DUE_DATE, TaskSortField.PRIORITY);
+    }
+
+    @Benchmark
+    public List<TodoTask> searchTasksByName() {
+        return controller.searchTasksByName(TaskData.searchQuery());
+    }
+
+    @Benchmark
+    public TodoTask searchTaskById() {
+        return controller.searchTaskById(randomId());
+    }
+
+    @Benchmark
+    public void updateTaskByID() {
+        int id = randomId();
+        TodoTask task = controller.searchTaskById(id);
+        controller.updateTaskByID(id, task.getName(), task.getDescription(), task.getDueDate(), !task.isCompleted(),
+                task.getPriority(), task.getCategory());
+    }
+}
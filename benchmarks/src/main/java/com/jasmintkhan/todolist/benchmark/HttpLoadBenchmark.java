@@ -0,0 +1,167 @@
+package com.jasmintkhan.todolist.benchmark;
+
+import com.jasmintkhan.todolist.TodolistApplication;
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.service.TodoTaskService;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Closed-loop load test of the REST API: each of N concurrent clients (1k-10k) sends a request, waits for the
+// response and sends the next, for a fixed time. The app is started once with Tomcat's platform-thread pool
+// and once with virtual threads, and throughput and latency percentiles are reported for each client count.
+// This is not a JMH benchmark because JMH maps each benchmark thread to an OS thread, which can't model
+// thousands of clients; here every client is a virtual thread sharing one HttpClient.
+//
+// java -cp target/benchmarks.jar com.jasmintkhan.todolist.benchmark.HttpLoadBenchmark [clients...]
+//   -Dmodes=platform,virtual  -Dtasks=10000  -Dwarmup=5  -Dduration=20  (seconds)
+// Clients and server share the JVM, so 10k clients need ~20k file descriptors (ulimit -n).
+public final class HttpLoadBenchmark {
+
+    private static final int[] DEFAULT_CLIENTS = {1000, 2500, 5000, 10000};
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private HttpLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] clientCounts = args.length == 0 ? DEFAULT_CLIENTS : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        int tasks = Integer.getInteger("tasks", 10000);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("warmup", 5));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("duration", 20));
+
+        System.out.printf("%-8s %7s %10s %9s %9s %9s %9s %7s%n",
+                "threads", "clients", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (String mode : System.getProperty("modes", "platform,virtual").split(",")) {
+            try (ConfigurableApplicationContext context = start("virtual".equals(mode))) {
+                List<Long> ids = seed(context.getBean(TodoTaskService.class), tasks);
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                for (int clients : clientCounts) {
+                    run(port, ids, clients, warmup);
+                    Result result = run(port, ids, clients, duration);
+                    System.out.printf("%-8s %7d %10.0f %9.2f %9.2f %9.2f %9.2f %7d%n", mode, clients,
+                            result.throughput(), result.percentile(0.50), result.percentile(0.99),
+                            result.percentile(0.999), result.percentile(1.0), result.errors());
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads) {
+        return new SpringApplicationBuilder(TodolistApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        // Let every client hold a connection, so only the request execution model differs
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=10000",
+                        "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "logging.level.root=WARN",
+                        // Every read goes to the database, which is where request threads block
+                        "todolist.cache.max-tasks=0",
+                        "todolist.cache.max-queries=0")
+                .run();
+    }
+
+    private static List<Long> seed(TodoTaskService service, int tasks) {
+        service.addTasks(TaskData.springTasks(tasks, LocalDate.now()));
+        service.rebuildIndexes();
+        return service.sortTasks("id", "asc").stream().map(TodoTask::getID).toList();
+    }
+
+    private static Result run(int port, List<Long> ids, int clients, Duration duration) throws Exception {
+        String base = "http://localhost:" + port + "/api/tasks";
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<long[]>> latencies = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient http = HttpClient.newBuilder().executor(executor).build()) {
+            for (int i = 0; i < clients; i++) {
+                latencies.add(executor.submit(() -> client(http, base, ids, end, errors)));
+            }
+            long[] all = new long[0];
+            for (Future<long[]> client : latencies) {
+                long[] clientLatencies = client.get();
+                int offset = all.length;
+                all = Arrays.copyOf(all, offset + clientLatencies.length);
+                System.arraycopy(clientLatencies, 0, all, offset, clientLatencies.length);
+            }
+            Arrays.sort(all);
+            return new Result(all, errors.get(), System.nanoTime() - start);
+        }
+    }
+
+    // One client: a mix of point reads, filters, paged reads and inserts until the deadline
+    private static long[] client(HttpClient http, String base, List<Long> ids, long end, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[256];
+        int count = 0;
+        while (System.nanoTime() < end) {
+            HttpRequest request = request(base, ids, random);
+            long sent = System.nanoTime();
+            try {
+                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - sent;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static HttpRequest request(String base, List<Long> ids, ThreadLocalRandom random) {
+        int pick = random.nextInt(100);
+        HttpRequest.Builder request;
+        if (pick < 60) {
+            request = HttpRequest.newBuilder(URI.create(base + "/" + ids.get(random.nextInt(ids.size()))));
+        } else if (pick < 85) {
+            request = HttpRequest.newBuilder(URI.create(base + "/tasks/filter?priority=HIGH&category=WORK&dueDate="
+                    + LocalDate.now().plusDays(random.nextInt(TaskData.DUE_DATE_SPREAD)) + "&isCompleted=false"));
+        } else if (pick < 95) {
+            request = HttpRequest.newBuilder(URI.create(base + "?limit=20"));
+        } else {
+            request = HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Load test\",\"description\":\"Added under load\","
+                            + "\"dueDate\":\"" + LocalDate.now().plusDays(1) + "\",\"priority\":\"LOW\",\"category\":\"WORK\"}"));
+        }
+        return request.timeout(REQUEST_TIMEOUT).build();
+    }
+
+    private record Result(long[] sortedLatencies, long errors, long elapsedNanos) {
+
+        double throughput() {
+            return sortedLatencies.length / (elapsedNanos / 1e9);
+        }
+
+        double percentile(double p) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(p * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.jasmintkhan.todolist.benchmark;
+
+import com.jasmintkhan.todolist.TodolistApplication;
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskFilter;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+import com.jasmintkhan.todolist.repository.TaskSortField;
+import com.jasmintkhan.todolist.repository.TaskStatistics;
+import com.jasmintkhan.todolist.service.TaskPage;
+import com.jasmintkhan.todolist.service.TodoTaskService;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Hot paths of the Spring Boot TodoTaskService against a real (in-memory) H2 database.
+// Runs with the read cache on and off, so both the cache and the underlying SQL are measured.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SpringServiceBenchmark {
+
+    // 10M tasks need a larger heap: -p size=10000000 -jvmArgsAppend -Xmx32g
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private static final TaskFilter COMBINED_FILTER =
+            TaskFilter.parse("priority:HIGH,MEDIUM and not (category:WORK or completed:true)");
+
+    private ConfigurableApplicationContext context;
+    private TodoTaskService service;
+    private List<Long> ids;
+    private LocalDate today;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        String cacheSize = cached ? "10000" : "0";
+        context = new SpringApplicationBuilder(TodolistApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "logging.level.root=WARN",
+                        "todolist.cache.max-tasks=" + cacheSize,
+                        "todolist.cache.max-queries=" + cacheSize)
+                .run();
+        service = context.getBean(TodoTaskService.class);
+        today = LocalDate.now();
+        service.addTasks(TaskData.springTasks(size, today));
+        service.rebuildIndexes();
+        ids = service.sortTasks("id", "asc").stream().map(TodoTask::getID).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    private Long randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    @Benchmark
+    public Optional<TodoTask> findTaskById() {
+        return service.findTaskById(randomId());
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksByPriority() {
+        return service.filterTasksByPriority(TodoTask.Priority.HIGH);
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksByDueDate() {
+        return service.filterTasksByDueDate(today.plusDays(ThreadLocalRandom.current().nextInt(TaskData.DUE_DATE_SPREAD)));
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasks() {
+        return service.filterTasks(TodoTask.Priority.HIGH, TodoTask.Category.WORK,
+                today.plusDays(ThreadLocalRandom.current().nextInt(TaskData.DUE_DATE_SPREAD)), false);
+    }
+
+    @Benchmark
+    public List<TodoTask> filterTasksCombined() {
+        return service.filterTasks(COMBINED_FILTER);
+    }
+
+    @Benchmark
+    public TaskPage findTasksPage() {
+        return service.findTasksPage("duedate", "asc", null, 100);
+    }
+
+    @Benchmark
+    public List<TodoTask> findTopTasksNextDue() {
+        return service.findTopTasks(TaskFilter.completed(false), List.of(TaskSortField.DUE_DATE, TaskSortField.PRIORITY), false, 20);
+    }
+
+    @Benchmark
+    public long exportTasks() throws IOException {
+        return service.exportTasks(task -> { });
+    }
+
+    @Benchmark
+    public TaskStatistics getStatistics() {
+        return service.getStatistics();
+    }
+
+    @Benchmark
+    public List<TodoTask> sortTasksByDueDate() {
+        return service.sortTasksByDueDate();
+    }
+
+    @Benchmark
+    public List<TodoTask> searchTasksByName() {
+        return service.searchTasksByName(TaskData.searchQuery());
+    }
+
+    @Benchmark
+    public Optional<TodoTask> updateTaskById() {
+        TodoTask task = service.findTaskById(randomId()).orElseThrow();
+        TodoTask changes = new TodoTask(task.getName(), task.getDescription(), task.getDueDate(),
+                task.getPriority(), task.getCategory());
+        changes.setCompleted(!task.isCompleted());
+        return service.updateTaskById(task.getID(), changes);
+    }
+
+    // The same change as a one-column PATCH, without reading the task first
+    @Benchmark
+    public boolean patchTaskCompleted() {
+        return service.patchTaskById(randomId(),
+                new TaskPatch(null, null, null, null, null, ThreadLocalRandom.current().nextBoolean()), null);
+    }
+
+    // The same change for 100 tasks at once, as one set-based UPDATE
+    @Benchmark
+    public int patchTasksCompleted() {
+        Long[] batch = new Long[100];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = randomId();
+        }
+        return service.patchTasks(TaskFilter.id(batch),
+                new TaskPatch(null, null, null, null, null, ThreadLocalRandom.current().nextBoolean()));
+    }
+}
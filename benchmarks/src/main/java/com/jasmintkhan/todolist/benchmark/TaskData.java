@@ -0,0 +1,59 @@
+package com.jasmintkhan.todolist.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Deterministic task data shared by the benchmarks, so both apps are measured on the same distribution
+final class TaskData {
+
+    static final int DUE_DATE_SPREAD = 365; // Due dates fall within a year from today
+    private static final long SEED = 42;
+    private static final String[] WORDS = {
+        "Study", "Java", "Groceries", "Gym", "Laundry", "Weekly", "Stand-Up", "Email", "Report", "Dentist",
+        "Budget", "Review", "Meeting", "Exam", "Run", "Call", "Plan", "Invoice", "Read", "Clean"
+    };
+
+    private TaskData() {
+    }
+
+    // A four-letter search term; each one appears in roughly 1 in 10 names
+    static String searchQuery() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)].substring(0, 4).toLowerCase();
+    }
+
+    static List<todolist.model.TodoTask> cliTasks(int count, LocalDate today) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<todolist.model.TodoTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            todolist.model.TodoTask task = new todolist.model.TodoTask(name(random, i), "Benchmark task " + i,
+                    today.plusDays(random.nextInt(DUE_DATE_SPREAD)),
+                    todolist.model.TodoTask.Priority.values()[random.nextInt(3)],
+                    todolist.model.TodoTask.Category.values()[random.nextInt(4)]);
+            task.setCompleted(random.nextInt(4) == 0);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    static List<com.jasmintkhan.todolist.model.TodoTask> springTasks(int count, LocalDate today) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<com.jasmintkhan.todolist.model.TodoTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            com.jasmintkhan.todolist.model.TodoTask task = new com.jasmintkhan.todolist.model.TodoTask(
+                    name(random, i), "Benchmark task " + i,
+                    today.plusDays(random.nextInt(DUE_DATE_SPREAD)),
+                    com.jasmintkhan.todolist.model.TodoTask.Priority.values()[random.nextInt(3)],
+                    com.jasmintkhan.todolist.model.TodoTask.Category.values()[random.nextInt(4)]);
+            task.setCompleted(random.nextInt(4) == 0);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static String name(SplittableRandom random, int i) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " #" + i;
+    }
+}
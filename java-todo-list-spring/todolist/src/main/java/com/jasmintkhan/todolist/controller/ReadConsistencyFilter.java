@@ -0,0 +1,42 @@
+package com.jasmintkhan.todolist.controller;
+
+import com.jasmintkhan.todolist.service.ReadConsistency;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Lets a request choose how current the tasks it reads have to be, with an X-Read-Consistency header of
+// "read-your-writes" (the default) or "eventual" (see ReadConsistency). Any other value is a 400.
+@Component
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+
+    static final String READ_CONSISTENCY_HEADER = "X-Read-Consistency";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(READ_CONSISTENCY_HEADER);
+        if (header == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReadConsistency consistency;
+        try {
+            consistency = ReadConsistency.fromParameter(header);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        ReadConsistency.set(consistency);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+}
@@ -1,44 +1,140 @@
 package com.jasmintkhan.todolist.controller;
 
 import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskFilter;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+import com.jasmintkhan.todolist.repository.TaskSortField;
+import com.jasmintkhan.todolist.repository.TaskStatistics;
+import com.jasmintkhan.todolist.service.TaskPage;
+import com.jasmintkhan.todolist.service.TaskTableVersion;
 import com.jasmintkhan.todolist.service.TodoTaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/tasks")
 public class TodoTaskController {
 
     private final TodoTaskService todoTaskService;
+    private final ObjectMapper objectMapper;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV_HEADER = "id,name,description,completed,dueDate,priority,category\r\n";
 
     @Autowired
-    public TodoTaskController(TodoTaskService todoTaskService) {
+    public TodoTaskController(TodoTaskService todoTaskService, ObjectMapper objectMapper) {
         this.todoTaskService = todoTaskService;
+        this.objectMapper = objectMapper;
     }
 
-    // Get all tasks
+    // Get all tasks, one page at a time (ordered by ID).
+    // The cursor for the next page is returned in the X-Next-Cursor header.
     @GetMapping
-    public List<TodoTask> getAllTasks() {
-        return todoTaskService.findAllTasks();
+    public ResponseEntity<List<TodoTask>> getAllTasks(
+            @RequestParam(required = false, defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        if (listingNotModified(request)) {
+            return null;
+        }
+        try {
+            return pageResponse(todoTaskService.findTasksPage("id", "asc", cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Export every task in ID order as newline-delimited JSON, or CSV with format=csv. Each task is written to the
+    // response as its row is read, so the first bytes go out before the whole table has been read.
+    @GetMapping("/export")
+    public void exportTasks(@RequestParam(required = false, defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        response.setContentType(csv ? "text/csv" : NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        if (csv) {
+            Writer out = response.getWriter();
+            out.write(CSV_HEADER);
+            todoTaskService.exportTasks(task -> out.write(csvLine(task)));
+        } else {
+            OutputStream out = response.getOutputStream();
+            ObjectWriter json = objectMapper.writerFor(TodoTask.class);
+            todoTaskService.exportTasks(task -> {
+                out.write(json.writeValueAsBytes(task));
+                out.write('\n');
+            });
+        }
+    }
+
+    // Read cache hit/miss/eviction counters
+    @GetMapping("/cache/stats")
+    public Map<String, Map<String, Number>> getCacheStats() {
+        return todoTaskService.cacheStats();
+    }
+
+    // Task counts by priority, category and completion status, and how many open tasks are overdue
+    @GetMapping("/stats")
+    public TaskStatistics getStatistics() {
+        return todoTaskService.getStatistics();
+    }
+
+    // Recounts the statistics in the database, rebuilding the maintained counters if they have drifted
+    @PostMapping("/stats/reconcile")
+    public TaskStatistics reconcileStatistics() {
+        return todoTaskService.reconcileStatistics();
     }
 
-    // Get a task by ID
+    // Get a task by ID, tagged with its version. The version is looked up on its own first, so a poll that still
+    // has the current version gets a 304 without the task being read or serialized.
     @GetMapping("/{id}")
-    public ResponseEntity<TodoTask> getTaskById(@PathVariable Long id) {
+    public ResponseEntity<TodoTask> getTaskById(@PathVariable Long id, WebRequest request) {
+        long lastModified = todoTaskService.tableVersion().lastModified(); // Read first, so it is never too new
+        Optional<Long> version = todoTaskService.findTaskVersion(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(taskETag(version.get()), lastModified)) {
+            return null;
+        }
+        // Tagged again from the task read, in case it changed since the version was looked up
         return todoTaskService.findTaskById(id)
-                .map(task -> ResponseEntity.ok(task))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+                .map(task -> ResponseEntity.ok().eTag(taskETag(task)).body(task))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     // Get a task by name
     @GetMapping("/tasks/name/{name}")
-    public ResponseEntity<List<TodoTask>> getTasksByName(@PathVariable String name) {
+    public ResponseEntity<List<TodoTask>> getTasksByName(@PathVariable String name, WebRequest request) {
+        if (listingNotModified(request)) {
+            return null;
+        }
         List<TodoTask> tasks = todoTaskService.searchTasksByName(name);
         if (tasks.isEmpty()) {
             return ResponseEntity.notFound().build();
@@ -52,12 +148,74 @@ public class TodoTaskController {
         return todoTaskService.addTask(task);
     }
 
-    // Update a task by ID
+    // Add many tasks from a JSON array
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Integer>> addTasks(@RequestBody List<TodoTask> tasks) {
+        try {
+            return ResponseEntity.ok(Map.of("inserted", todoTaskService.addTasks(tasks)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Add many tasks from newline-delimited JSON (one task per line), inserted as the body streams in
+    @PostMapping(value = "/batch", consumes = NDJSON)
+    public ResponseEntity<Map<String, Integer>> addTasksFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<TodoTask> tasks = objectMapper.readerFor(TodoTask.class).readValues(body)) {
+            return ResponseEntity.ok(Map.of("inserted", todoTaskService.addTasks(() -> tasks)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Update a task by ID. With If-Match set to the task's ETag the update only goes through if nobody has changed
+    // the task since (412 otherwise); the response carries the new ETag.
     @PutMapping("/{id}")
-    public ResponseEntity<TodoTask> updateTaskById(@PathVariable Long id, @RequestBody TodoTask updatedTask) {
-        return todoTaskService.updateTaskById(id, updatedTask)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<TodoTask> updateTaskById(@PathVariable Long id, @RequestBody TodoTask updatedTask,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            return todoTaskService.updateTaskById(id, updatedTask, matchingVersions(ifMatch))
+                    .map(task -> ResponseEntity.ok().eTag(taskETag(task)).body(task))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ifMatch == null ? HttpStatus.CONFLICT : HttpStatus.PRECONDITION_FAILED).build();
+        }
+    }
+
+    // Update just the fields in the body, e.g. {"completed": true}, as one UPDATE of those columns. Takes If-Match
+    // like PUT; when it names a single version the 204 response carries the new ETag.
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchTaskById(@PathVariable Long id, @RequestBody TaskPatch patch,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Set<Long> versions = matchingVersions(ifMatch);
+        try {
+            if (!todoTaskService.patchTaskById(id, patch, versions)) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+        if (versions != null && versions.size() == 1) {
+            response.eTag("\"v" + (versions.iterator().next() + 1) + "\"");
+        }
+        return response.build();
+    }
+
+    // Update the fields in the body on every task matching where= (the filterTasks vocabulary, e.g.
+    // where=category:WORK and dueDate:..2024-06-30) and/or ids=4,8,15, without loading the tasks. Returns how many
+    // were updated.
+    @PatchMapping("/bulk")
+    public ResponseEntity<Map<String, Integer>> patchTasks(@RequestParam(required = false) String where,
+                                                           @RequestParam(required = false) List<Long> ids,
+                                                           @RequestBody TaskPatch patch) {
+        try {
+            return ResponseEntity.ok(Map.of("updated", todoTaskService.patchTasks(bulkFilter(where, ids), patch)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // Update a task by name
@@ -81,6 +239,18 @@ public class TodoTaskController {
         return ResponseEntity.ok().build();
     }
 
+    // Delete every task matching where= and/or ids=, like PATCH /bulk, e.g.
+    // where=completed:true and dueDate:..2024-06-30, without loading the tasks. Returns how many were deleted.
+    @DeleteMapping("/bulk")
+    public ResponseEntity<Map<String, Integer>> deleteTasks(@RequestParam(required = false) String where,
+                                                            @RequestParam(required = false) List<Long> ids) {
+        try {
+            return ResponseEntity.ok(Map.of("deleted", todoTaskService.deleteTasks(bulkFilter(where, ids))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Delete a task by name
     @DeleteMapping("/tasks/deleteByName")
     public ResponseEntity<String> deleteTaskByName(@RequestParam String name) {
@@ -94,25 +264,164 @@ public class TodoTaskController {
         }
     }
 
-    // Filter tasks by priority, category, due date, and/or completion status
+    // Filter tasks by priority, category, due date, and/or completion status, or by an and/or/not
+    // expression such as where=priority:HIGH and not (category:WORK or completed:true) (see TaskFilter.parse)
     @GetMapping("/tasks/filter")
     public ResponseEntity<List<TodoTask>> filterTasks(
             @RequestParam(required = false) TodoTask.Priority priority,
             @RequestParam(required = false) TodoTask.Category category,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate,
-            @RequestParam(required = false) Boolean isCompleted) {
-        List<TodoTask> filteredTasks = todoTaskService.filterTasks(priority, category, dueDate, isCompleted);
-        return ResponseEntity.ok(filteredTasks);
+            @RequestParam(required = false) Boolean isCompleted,
+            @RequestParam(required = false) String where,
+            WebRequest request) {
+        if (listingNotModified(request)) {
+            return null;
+        }
+        if (where == null) {
+            List<TodoTask> filteredTasks = todoTaskService.filterTasks(priority, category, dueDate, isCompleted);
+            return ResponseEntity.ok(filteredTasks);
+        }
+        try {
+            // Any other parameters narrow the expression down further
+            List<TaskFilter> conditions = new ArrayList<>(List.of(TaskFilter.parse(where)));
+            if (priority != null) {
+                conditions.add(TaskFilter.priority(priority));
+            }
+            if (category != null) {
+                conditions.add(TaskFilter.category(category));
+            }
+            if (dueDate != null) {
+                conditions.add(TaskFilter.dueDate(dueDate));
+            }
+            if (isCompleted != null) {
+                conditions.add(TaskFilter.completed(isCompleted));
+            }
+            return ResponseEntity.ok(todoTaskService.filterTasks(TaskFilter.and(conditions.toArray(new TaskFilter[0]))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
-    // Sort tasks by name, due date, priority, or category
+    // Sort tasks by name, due date, priority, or category, one page at a time
     @GetMapping("/tasks/sort")
     public ResponseEntity<List<TodoTask>> sortTasks(
         @RequestParam String sortBy, 
-        @RequestParam(required = false, defaultValue = "asc") String order) {
+        @RequestParam(required = false, defaultValue = "asc") String order,
+        @RequestParam(required = false, defaultValue = "100") int limit,
+        @RequestParam(required = false) String cursor,
+        WebRequest request) {
+
+        if (listingNotModified(request)) {
+            return null;
+        }
+        try {
+            return pageResponse(todoTaskService.findTasksPage(sortBy, order, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        List<TodoTask> sortedTasks = todoTaskService.sortTasks(sortBy, order);
-        return ResponseEntity.ok(sortedTasks);
+    // The first tasks in an order of one or more comma-separated fields, e.g. the next 20 open tasks due:
+    // /tasks/top?orderBy=dueDate,priority&limit=20&where=completed:false
+    @GetMapping("/tasks/top")
+    public ResponseEntity<List<TodoTask>> topTasks(
+            @RequestParam String orderBy,
+            @RequestParam(required = false, defaultValue = "asc") String order,
+            @RequestParam(required = false, defaultValue = "20") int limit,
+            @RequestParam(required = false) String where,
+            WebRequest request) {
+        if (listingNotModified(request)) {
+            return null;
+        }
+        try {
+            List<TaskSortField> fields = new ArrayList<>();
+            for (String field : orderBy.split(",")) {
+                fields.add(TaskSortField.fromParameter(field.trim()));
+            }
+            TaskFilter filter = where == null ? null : TaskFilter.parse(where);
+            return ResponseEntity.ok(todoTaskService.findTopTasks(filter, fields, "desc".equalsIgnoreCase(order), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // One CSV record (RFC 4180) for the task, in CSV_HEADER's column order
+    private static String csvLine(TodoTask task) {
+        return String.join(",", csvField(task.getID()), csvField(task.getName()), csvField(task.getDescription()),
+                csvField(task.isCompleted()), csvField(task.getDueDate()), csvField(task.getPriority()),
+                csvField(task.getCategory())) + "\r\n";
+    }
+
+    // Quotes a field only when it holds a comma, quote or line break, doubling any quotes
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    // Answers a conditional GET of a task listing from the table's change counter, before any task is read or
+    // serialized: true means a 304 has been sent. Either way the ETag and Last-Modified headers are set.
+    // Any write moves the counter on, so a listing's tag only matches while nothing at all has changed.
+    private boolean listingNotModified(WebRequest request) {
+        TaskTableVersion version = todoTaskService.tableVersion();
+        return request.checkNotModified("\"t" + version.changes() + "\"", version.lastModified());
+    }
+
+    private static String taskETag(TodoTask task) {
+        return taskETag(task.getVersion());
+    }
+
+    private static String taskETag(Long version) {
+        return "\"v" + version + "\"";
+    }
+
+    // The task versions named by an If-Match header, or null when there is no header or it is * (any version).
+    // Weak and unknown tags can't match, so they add nothing.
+    private static Set<Long> matchingVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.length() > 3 && tag.startsWith("\"v") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(2, tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return versions;
+    }
+
+    // The tasks a bulk request applies to: those matching both where and ids when both are given. One of them is
+    // required, so that a bulk write never touches every task by accident.
+    private static TaskFilter bulkFilter(String where, List<Long> ids) {
+        if (where == null && (ids == null || ids.isEmpty())) {
+            throw new IllegalArgumentException("A bulk write needs where or ids.");
+        }
+        if (where == null) {
+            return TaskFilter.id(ids.toArray(new Long[0]));
+        }
+        if (ids == null || ids.isEmpty()) {
+            return TaskFilter.parse(where);
+        }
+        return TaskFilter.and(TaskFilter.parse(where), TaskFilter.id(ids.toArray(new Long[0])));
+    }
+
+    // Wraps a page of tasks in a response, adding the next-page cursor header when there is one
+    private ResponseEntity<List<TodoTask>> pageResponse(TaskPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.tasks());
     }
 
 }
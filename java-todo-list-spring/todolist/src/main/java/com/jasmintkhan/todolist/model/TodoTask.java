@@ -1,23 +1,41 @@
 package com.jasmintkhan.todolist.model;
 import java.time.LocalDate;
+import java.util.Locale;
 //import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "todotasks")  //specifies a custom table name
+@Table(name = "todotasks", indexes = {  //specifies a custom table name
+    // ID is the trailing column so ORDER BY <column>, ID and keyset seeks are served by the index
+    @Index(name = "idx_todotasks_priority", columnList = "priority, ID"),
+    @Index(name = "idx_todotasks_category", columnList = "category, ID"),
+    @Index(name = "idx_todotasks_due_date", columnList = "due_date, ID"),
+    @Index(name = "idx_todotasks_is_completed", columnList = "is_completed, ID"),
+    @Index(name = "idx_todotasks_name", columnList = "name, ID"),
+    @Index(name = "idx_todotasks_normalized_name", columnList = "normalized_name, ID")
+})
 public class TodoTask {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)  // For auto-incrementing IDs
+    // IDs come from a sequence handed out 50 at a time (pooled), so Hibernate can batch inserts;
+    // IDENTITY would force one round-trip per insert to read the generated key
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todotasks_seq")
+    @SequenceGenerator(name = "todotasks_seq", sequenceName = "todotasks_seq", allocationSize = 50)
     private Long ID;
 
 
     //Properties of a task
     private String name; //Tasks's name
+    @Column(name = "normalized_name")
+    private String normalizedName; //Case-folded copy of name, so case-insensitive lookups can use an index
     private String description; //About the task
     private boolean isCompleted; //Is it completed?
     private LocalDate dueDate; //Due Date for task
@@ -32,12 +50,20 @@ public class TodoTask {
     }
     private Category category; //Category of task
 
+    @Version
+    private Long version; //Bumped by every update; an update carrying an older version fails instead of overwriting
+
     //private static final AtomicInteger count = new AtomicInteger(0); //For unique ID generation
     //private int id;
 
+    //No-arg constructor required by JPA to load rows from the database
+    protected TodoTask() {
+    }
+
     //Constructor: to set initial values for a task
     public TodoTask(String name, String description, LocalDate dueDate, Priority priority, Category category){
         this.name = name;
+        this.normalizedName = normalizeName(name);
         this.description = description;
         this.isCompleted = false; //Tasks always start off not completed!
         this.dueDate = dueDate; //sets the due date
@@ -51,7 +77,7 @@ public class TodoTask {
     //Getters retrieve information
     //Setters update information 
 
-    public long getID() {
+    public Long getID() { //Null until the task has been saved
         return ID;
     }
 
@@ -59,12 +85,31 @@ public class TodoTask {
         this.ID = ID;
     }
 
+    public Long getVersion() { //Null until the task has been saved
+        return version;
+    }
+
+    //A detached copy of the task at the given version, e.g. for keeping in memory apart from the persistence context
+    public TodoTask copy(Long version) {
+        TodoTask copy = new TodoTask(name, description, dueDate, priority, category);
+        copy.ID = ID;
+        copy.isCompleted = isCompleted;
+        copy.version = version;
+        return copy;
+    }
+
     public String getName() {
         return name;
     }
 
     public void setName(String name){
         this.name = name;
+        this.normalizedName = normalizeName(name);
+    }
+
+    //Case-folds a name the same way it is stored in the normalized_name column
+    public static String normalizeName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
     }
 
     public String getDescription() {
@@ -0,0 +1,15 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+
+import java.time.LocalDate;
+
+// The attributes of a task that filters look at, as TaskBitmapIndex holds them
+public record TaskAttributes(Priority priority, Category category, LocalDate dueDate, boolean completed) {
+
+    public static TaskAttributes of(TodoTask task) {
+        return new TaskAttributes(task.getPriority(), task.getCategory(), task.getDueDate(), task.isCompleted());
+    }
+}
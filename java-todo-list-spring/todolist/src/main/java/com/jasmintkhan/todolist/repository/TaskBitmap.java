@@ -0,0 +1,415 @@
+package com.jasmintkhan.todolist.repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+// Compressed set of task IDs (in the style of a Roaring bitmap): IDs are split by their upper 16 bits into
+// chunks of up to 65536, and each chunk is stored the cheaper way for how full it is:
+//   sparse: a sorted char[] of the lower 16 bits (2 bytes per ID)
+//   dense:  a 1024-long bit array (8 KB per chunk, however many IDs it holds)
+// and(), or() and andNot() work chunk by chunk (merging arrays or combining whole words) and return new
+// bitmaps, so a filter combining several bitmaps only ever touches the chunks that can match.
+// IDs are compared as unsigned ints, which is ID order for the positive IDs tasks get. Not thread-safe.
+public final class TaskBitmap {
+
+    private static final int SPARSE_LIMIT = 4096; // A sparse chunk this full takes as much room as a dense one
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4]; // Upper 16 bits of each chunk, ascending
+    private Chunk[] chunks = new Chunk[4];
+    private int size; // Chunks in use
+
+    public void add(int id) {
+        int index = chunkIndex((char) (id >>> 16));
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, (char) (id >>> 16), new Chunk(new char[4], null, 0));
+        }
+        chunks[index].add((char) id);
+    }
+
+    public void remove(int id) {
+        int index = chunkIndex((char) (id >>> 16));
+        if (index >= 0 && chunks[index].remove((char) id) && chunks[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+            chunks[--size] = null;
+        }
+    }
+
+    public boolean contains(int id) {
+        int index = chunkIndex((char) (id >>> 16));
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // IDs present in both
+    public TaskBitmap and(TaskBitmap other) {
+        TaskBitmap result = new TaskBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].and(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // IDs present in either
+    public TaskBitmap or(TaskBitmap other) {
+        TaskBitmap result = new TaskBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendChunk(keys[i], chunks[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(keys[i], chunks[i].or(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // IDs present in this bitmap but not the other
+    public TaskBitmap andNot(TaskBitmap other) {
+        TaskBitmap result = new TaskBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            boolean overlaps = j < other.size && other.keys[j] == keys[i];
+            result.appendChunk(keys[i], overlaps ? chunks[i].andNot(other.chunks[j]) : chunks[i].copy());
+        }
+        return result;
+    }
+
+    // IDs present in any of the bitmaps; unlike or-ing them one at a time, each ID is copied only once
+    public static TaskBitmap union(Collection<TaskBitmap> bitmaps) {
+        SortedMap<Character, long[]> words = new TreeMap<>();
+        for (TaskBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.size; i++) {
+                bitmap.chunks[i].orInto(words.computeIfAbsent(bitmap.keys[i], k -> new long[WORDS]));
+            }
+        }
+        TaskBitmap result = new TaskBitmap();
+        for (Map.Entry<Character, long[]> entry : words.entrySet()) {
+            result.appendChunk(entry.getKey(), Chunk.dense(entry.getValue(), Chunk.cardinality(entry.getValue())));
+        }
+        return result;
+    }
+
+    // Passes every ID to the action in ascending order
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public int[] toArray() {
+        int[] ids = new int[cardinality()];
+        int[] next = new int[1];
+        forEach(id -> ids[next[0]++] = id);
+        return ids;
+    }
+
+    // Approximate heap bytes taken by the chunks
+    public long footprint() {
+        long bytes = (long) keys.length * (2 + 8);
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i].words != null ? WORDS * 8L : chunks[i].values.length * 2L;
+        }
+        return bytes;
+    }
+
+    private int chunkIndex(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertChunk(int index, char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    // Adds a chunk after all existing ones; empty chunks are dropped
+    private void appendChunk(char key, Chunk chunk) {
+        if (chunk.cardinality > 0) {
+            insertChunk(size, key, chunk);
+        }
+    }
+
+    // The IDs sharing one set of upper 16 bits: either values (sparse) or words (dense) is set
+    private static final class Chunk {
+        private char[] values;
+        private long[] words;
+        private int cardinality;
+
+        Chunk(char[] values, long[] words, int cardinality) {
+            this.values = values;
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        void add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    words[low >>> 6] |= bit;
+                    cardinality++;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return;
+            }
+            if (cardinality == SPARSE_LIMIT) {
+                toDense();
+                add(low);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), SPARSE_LIMIT));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+        }
+
+        // Returns false if the value wasn't there
+        boolean remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    return false;
+                }
+                words[low >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality < SPARSE_LIMIT / 2) { // Well below the limit, so add/remove at the edge can't thrash
+                    toSparse();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        Chunk copy() {
+            return new Chunk(values == null ? null : Arrays.copyOf(values, cardinality),
+                    words == null ? null : words.clone(), cardinality);
+        }
+
+        Chunk and(Chunk other) {
+            if (words != null && other.words != null) {
+                long[] result = new long[WORDS];
+                int cardinality = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] = words[i] & other.words[i];
+                    cardinality += Long.bitCount(result[i]);
+                }
+                return dense(result, cardinality);
+            }
+            if (words != null) {
+                return other.and(this);
+            }
+            // This chunk is sparse: keep its values that the other chunk has
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other.words != null) {
+                for (int i = 0; i < cardinality; i++) {
+                    if ((other.words[values[i] >>> 6] & (1L << values[i])) != 0) {
+                        result[count++] = values[i];
+                    }
+                }
+            } else {
+                int j = 0;
+                for (int i = 0; i < cardinality && j < other.cardinality; ) {
+                    if (values[i] < other.values[j]) {
+                        i++;
+                    } else if (values[i] > other.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new Chunk(result, null, count);
+        }
+
+        Chunk or(Chunk other) {
+            if (words == null && other.words == null && cardinality + other.cardinality <= SPARSE_LIMIT) {
+                char[] result = new char[cardinality + other.cardinality];
+                int count = 0;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality || j < other.cardinality) {
+                    if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                        result[count++] = values[i++];
+                    } else if (i == cardinality || values[i] > other.values[j]) {
+                        result[count++] = other.values[j++];
+                    } else {
+                        result[count++] = values[i++];
+                        j++;
+                    }
+                }
+                return new Chunk(result, null, count);
+            }
+            long[] result = toWords();
+            other.orInto(result);
+            return dense(result, cardinality(result));
+        }
+
+        // Sets this chunk's values in the words
+        void orInto(long[] target) {
+            if (words != null) {
+                for (int i = 0; i < WORDS; i++) {
+                    target[i] |= words[i];
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    target[values[i] >>> 6] |= 1L << values[i];
+                }
+            }
+        }
+
+        Chunk andNot(Chunk other) {
+            if (words == null) {
+                char[] result = new char[cardinality];
+                int count = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    if (!other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+                return new Chunk(result, null, count);
+            }
+            long[] result = words.clone();
+            if (other.words != null) {
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] &= ~other.words[i];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.values[i] >>> 6] &= ~(1L << other.values[i]);
+                }
+            }
+            return dense(result, cardinality(result));
+        }
+
+        void forEach(int high, IntConsumer action) {
+            if (words == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | values[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        // Words holding this chunk's values (a new array)
+        private long[] toWords() {
+            if (words != null) {
+                return words.clone();
+            }
+            long[] result = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                result[values[i] >>> 6] |= 1L << values[i];
+            }
+            return result;
+        }
+
+        private void toDense() {
+            words = toWords();
+            values = null;
+        }
+
+        private void toSparse() {
+            values = sparseValues(words, cardinality);
+            words = null;
+        }
+
+        // A chunk over the given words, switched to a value array if that is smaller
+        private static Chunk dense(long[] words, int cardinality) {
+            return cardinality <= SPARSE_LIMIT
+                    ? new Chunk(sparseValues(words, cardinality), null, cardinality)
+                    : new Chunk(null, words, cardinality);
+        }
+
+        private static int cardinality(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            return cardinality;
+        }
+
+        private static char[] sparseValues(long[] words, int cardinality) {
+            char[] values = new char[Math.max(cardinality, 4)];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return values;
+        }
+    }
+}
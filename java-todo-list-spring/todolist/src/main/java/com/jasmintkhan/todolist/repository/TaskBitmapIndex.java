@@ -0,0 +1,340 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory bitmaps of task IDs for each priority, category, completion status and due date, which
+// TaskFilter combines with and/or/andNot to find the IDs matching a filter without reading a single row.
+// Due dates are kept per day in a sorted map, so a date range is the union of the days in it.
+// IDs are stored as ints; once an ID outside 0..Integer.MAX_VALUE is put, search() gives up (returns null)
+// until the next clear(). Safe for concurrent use: searches share a read lock and updates take the write lock.
+// Alongside the bitmaps it keeps the counts behind statistics(), adjusted by every put and remove.
+public class TaskBitmapIndex {
+
+    private static final TaskBitmap EMPTY = new TaskBitmap();
+    private static final int PAGE_BITS = 16; // dueDays pages hold 65536 IDs each
+    private static final long NO_DUE_DAY = Long.MIN_VALUE;
+
+    private TaskBitmap all;
+    private TaskBitmap[] byPriority; // Last one for a null priority
+    private TaskBitmap[] byCategory; // Last one for a null category
+    private TaskBitmap completed;
+    private TaskBitmap notCompleted;
+    private TaskBitmap noDueDate;
+    private final NavigableMap<Long, TaskBitmap> byDueDay = new TreeMap<>(); // Epoch day -> tasks due that day
+    private long[][] dueDays; // Task ID -> the epoch day it is due (or NO_DUE_DAY), in pages allocated as IDs come
+    private boolean hasLargeIds;
+
+    private long[] priorityCounts; // Tasks per byPriority bitmap
+    private long[] categoryCounts; // Tasks per byCategory bitmap
+    private long completedCount;
+    private final NavigableMap<Long, Long> openByDueDay = new TreeMap<>(); // Epoch day -> open tasks due that day
+    private long overdueBefore; // Epoch day overdue is counted up to (exclusive), moved on by statistics()
+    private long overdue; // Open tasks due before overdueBefore
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TaskBitmapIndex() {
+        reset();
+    }
+
+    // Indexes a saved task, replacing whatever was indexed for its ID before
+    public void put(TodoTask task) {
+        if (task.getID() == null) {
+            return; // Unsaved task
+        }
+        lock.writeLock().lock();
+        try {
+            if (!fitsInt(task.getID())) {
+                hasLargeIds = true;
+                return;
+            }
+            int id = task.getID().intValue();
+            removeUnlocked(id);
+            addUnlocked(id, TaskAttributes.of(task));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Applies a partial update to an indexed task and returns its attributes from before it, or null if the task
+    // isn't indexed (it is left out then, as its other attributes are unknown)
+    public TaskAttributes patch(Long id, TaskPatch patch) {
+        if (id == null || !fitsInt(id)) {
+            return null;
+        }
+        lock.writeLock().lock();
+        try {
+            TaskAttributes before = removeUnlocked(id.intValue());
+            if (before != null) {
+                addUnlocked(id.intValue(), patch.applyTo(before));
+            }
+            return before;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the task's attributes as they were indexed, or null if it wasn't
+    public TaskAttributes remove(Long id) {
+        if (id == null || !fitsInt(id)) {
+            return null;
+        }
+        lock.writeLock().lock();
+        try {
+            return removeUnlocked(id.intValue());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // IDs of the tasks matching the filter in ascending order, or null if the index can't answer it
+    public List<Long> search(TaskFilter filter) {
+        lock.readLock().lock();
+        try {
+            if (hasLargeIds) {
+                return null;
+            }
+            TaskBitmap matches = filter.evaluate(this);
+            List<Long> ids = new ArrayList<>(matches.cardinality());
+            matches.forEach(id -> ids.add((long) id));
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Counts of the indexed tasks, where overdue means open and due before today. Constant time, except that the
+    // first call on a new day adds up the open tasks due per day to move the overdue count on.
+    // Null if the index can't answer, like search().
+    public TaskStatistics statistics(LocalDate today) {
+        long day = today.toEpochDay();
+        lock.readLock().lock();
+        try {
+            if (hasLargeIds) {
+                return null;
+            }
+            if (day == overdueBefore) {
+                return TaskStatistics.of(today, completedCount, overdue, priorityCounts, categoryCounts);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (hasLargeIds) {
+                return null;
+            }
+            if (day != overdueBefore) {
+                overdue = 0;
+                for (long open : openByDueDay.headMap(day).values()) {
+                    overdue += open;
+                }
+                overdueBefore = day;
+            }
+            return TaskStatistics.of(today, completedCount, overdue, priorityCounts, categoryCounts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The bitmaps below are used by TaskFilter under the read lock, and must not be modified
+
+    TaskBitmap all() {
+        return all;
+    }
+
+    TaskBitmap priority(Priority priority) {
+        return byPriority[bucket(priority, byPriority)];
+    }
+
+    TaskBitmap category(Category category) {
+        return byCategory[bucket(category, byCategory)];
+    }
+
+    TaskBitmap completed(boolean isCompleted) {
+        return isCompleted ? completed : notCompleted;
+    }
+
+    TaskBitmap noDueDate() {
+        return noDueDate;
+    }
+
+    // Tasks due on any day from first to last (inclusive)
+    TaskBitmap dueBetween(LocalDate first, LocalDate last) {
+        if (first.isAfter(last)) {
+            return EMPTY;
+        }
+        Collection<TaskBitmap> days = byDueDay.subMap(first.toEpochDay(), true, last.toEpochDay(), true).values();
+        if (days.size() <= 1) {
+            return days.isEmpty() ? EMPTY : days.iterator().next();
+        }
+        return TaskBitmap.union(days);
+    }
+
+    private void addUnlocked(int id, TaskAttributes task) {
+        all.add(id);
+        int priority = bucket(task.priority(), byPriority);
+        byPriority[priority].add(id);
+        priorityCounts[priority]++;
+        int category = bucket(task.category(), byCategory);
+        byCategory[category].add(id);
+        categoryCounts[category]++;
+        if (task.completed()) {
+            completed.add(id);
+            completedCount++;
+        } else {
+            notCompleted.add(id);
+        }
+        if (task.dueDate() == null) {
+            noDueDate.add(id);
+        } else {
+            long day = task.dueDate().toEpochDay();
+            byDueDay.computeIfAbsent(day, k -> new TaskBitmap()).add(id);
+            setDueDay(id, day);
+            if (!task.completed()) {
+                countOpenDue(day, 1);
+            }
+        }
+    }
+
+    // Takes the ID out of the bitmaps that have it, found from the buckets and its due day. Returns the
+    // attributes that put it in those bitmaps, or null if it wasn't indexed.
+    private TaskAttributes removeUnlocked(int id) {
+        if (!all.contains(id)) {
+            return null;
+        }
+        all.remove(id);
+        int priority = removeFromBucket(byPriority, id);
+        priorityCounts[priority]--;
+        int category = removeFromBucket(byCategory, id);
+        categoryCounts[category]--;
+        boolean open = notCompleted.contains(id);
+        if (open) {
+            notCompleted.remove(id);
+        } else {
+            completed.remove(id);
+            completedCount--;
+        }
+        LocalDate dueDate = null;
+        long day = dueDay(id);
+        if (day == NO_DUE_DAY) {
+            noDueDate.remove(id);
+        } else {
+            TaskBitmap dueThatDay = byDueDay.get(day);
+            dueThatDay.remove(id);
+            if (dueThatDay.isEmpty()) {
+                byDueDay.remove(day);
+            }
+            if (open) {
+                countOpenDue(day, -1);
+            }
+            setDueDay(id, NO_DUE_DAY);
+            dueDate = LocalDate.ofEpochDay(day);
+        }
+        return new TaskAttributes(valueOf(Priority.values(), priority), valueOf(Category.values(), category), dueDate, !open);
+    }
+
+    // The enum constant for a bucket, or null for the last (null) bucket
+    private static <E extends Enum<E>> E valueOf(E[] values, int bucket) {
+        return bucket < values.length ? values[bucket] : null;
+    }
+
+    // Takes the ID out of the one bitmap of the buckets that has it, and returns that bucket
+    private static int removeFromBucket(TaskBitmap[] bitmaps, int id) {
+        for (int bucket = 0; bucket < bitmaps.length; bucket++) {
+            if (bitmaps[bucket].contains(id)) {
+                bitmaps[bucket].remove(id);
+                return bucket;
+            }
+        }
+        throw new IllegalStateException("Task " + id + " is indexed without a bucket");
+    }
+
+    private long dueDay(int id) {
+        long[] page = dueDays[id >>> PAGE_BITS];
+        return page == null ? NO_DUE_DAY : page[id & ((1 << PAGE_BITS) - 1)];
+    }
+
+    private void setDueDay(int id, long day) {
+        long[] page = dueDays[id >>> PAGE_BITS];
+        if (page == null) {
+            if (day == NO_DUE_DAY) {
+                return;
+            }
+            page = new long[1 << PAGE_BITS];
+            Arrays.fill(page, NO_DUE_DAY);
+            dueDays[id >>> PAGE_BITS] = page;
+        }
+        page[id & ((1 << PAGE_BITS) - 1)] = day;
+    }
+
+    private void countOpenDue(long day, long change) {
+        openByDueDay.merge(day, change, (count, delta) -> count + delta == 0 ? null : count + delta);
+        if (day < overdueBefore) {
+            overdue += change;
+        }
+    }
+
+    private void reset() {
+        all = new TaskBitmap();
+        byPriority = bitmaps(Priority.values().length + 1);
+        byCategory = bitmaps(Category.values().length + 1);
+        completed = new TaskBitmap();
+        notCompleted = new TaskBitmap();
+        noDueDate = new TaskBitmap();
+        byDueDay.clear();
+        dueDays = new long[(Integer.MAX_VALUE >>> PAGE_BITS) + 1][];
+        hasLargeIds = false;
+        priorityCounts = new long[byPriority.length];
+        categoryCounts = new long[byCategory.length];
+        completedCount = 0;
+        openByDueDay.clear();
+        overdueBefore = Long.MIN_VALUE;
+        overdue = 0;
+    }
+
+    private static boolean fitsInt(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    private static int bucket(Enum<?> value, TaskBitmap[] bitmaps) {
+        return value == null ? bitmaps.length - 1 : value.ordinal();
+    }
+
+    private static TaskBitmap[] bitmaps(int count) {
+        TaskBitmap[] bitmaps = new TaskBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new TaskBitmap();
+        }
+        return bitmaps;
+    }
+}
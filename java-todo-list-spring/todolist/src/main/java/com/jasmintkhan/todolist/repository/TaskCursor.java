@@ -0,0 +1,37 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position of the last task on a page, used to fetch the next page with a keyset (seek) query.
+// Clients only ever see the opaque Base64 form returned by encode().
+public record TaskCursor(TaskSortField sortField, boolean descending, Object value, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    // Builds the cursor that resumes right after the given task
+    public static TaskCursor after(TodoTask task, TaskSortField sortField, boolean descending) {
+        return new TaskCursor(sortField, descending, sortField.valueOf(task), task.getID());
+    }
+
+    public String encode() {
+        // The value goes last so it may itself contain the separator; "-" marks a null value
+        String raw = sortField.name() + SEPARATOR + (descending ? "desc" : "asc") + SEPARATOR + id + SEPARATOR
+                + (value == null ? "-" : "=" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            TaskSortField sortField = TaskSortField.valueOf(parts[0]);
+            Object value = parts[3].startsWith("=") ? sortField.parse(parts[3].substring(1)) : null;
+            return new TaskCursor(sortField, "desc".equals(parts[1]), value, Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+// A condition on a task's ID, priority, category, due date and completion status: single-attribute conditions
+// combined with and, or and not. TaskBitmapIndex answers it in memory with bitmap operations, so only the
+// IDs that match are ever touched; TodoTaskSpecifications.matching() turns it into a WHERE clause for when
+// the index can't be used; matches() checks a single task.
+// Text form (see parse()), case-insensitive:
+//   priority:HIGH,MEDIUM     category:WORK     completed:true
+//   dueDate:2024-05-01       dueDate:2024-05-01..2024-05-31 (inclusive)       dueDate:none
+//   dueDate:..2024-05-01 and dueDate:2024-05-01.. (open-ended)        id:12,15,20
+//   combined with and, or, not and parentheses, e.g. priority:HIGH and not (category:WORK or completed:true)
+//   ("and" binds tighter than "or"; comma-separated values are alternatives)
+public abstract class TaskFilter {
+
+    private static final Set<String> KEYWORDS = Set.of("and", "or", "not", "(", ")");
+
+    TaskFilter() {
+    }
+
+    public abstract boolean matches(TodoTask task);
+
+    // IDs of the matching tasks. May return one of the index's own bitmaps, which must not be modified.
+    abstract TaskBitmap evaluate(TaskBitmapIndex index);
+
+    // The same condition as a JPA criteria predicate. Conditions on a column are false, never unknown, when
+    // it is NULL, so not() keeps the tasks without a value just like matches() does.
+    abstract Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb);
+
+    public static TaskFilter priority(Priority... priorities) {
+        return new PriorityIs(EnumSet.copyOf(Arrays.asList(priorities)));
+    }
+
+    public static TaskFilter category(Category... categories) {
+        return new CategoryIs(EnumSet.copyOf(Arrays.asList(categories)));
+    }
+
+    public static TaskFilter completed(boolean isCompleted) {
+        return new CompletedIs(isCompleted);
+    }
+
+    public static TaskFilter id(Long... ids) {
+        if (ids.length == 0 || Arrays.asList(ids).contains(null)) {
+            throw new IllegalArgumentException("Task IDs cannot be null or empty.");
+        }
+        return new IdIs(new TreeSet<>(Arrays.asList(ids)));
+    }
+
+    public static TaskFilter dueDate(LocalDate dueDate) {
+        return dueBetween(dueDate, dueDate);
+    }
+
+    // Due on any day from first to last, both included; LocalDate.MIN and MAX leave that end open
+    public static TaskFilter dueBetween(LocalDate first, LocalDate last) {
+        if (first == null || last == null) {
+            throw new IllegalArgumentException("Due date cannot be null.");
+        }
+        return new DueBetween(first, last);
+    }
+
+    public static TaskFilter noDueDate() {
+        return new DueBetween(null, null);
+    }
+
+    public static TaskFilter and(TaskFilter... filters) {
+        requireSome(filters);
+        return filters.length == 1 ? filters[0] : new And(List.of(filters));
+    }
+
+    public static TaskFilter or(TaskFilter... filters) {
+        requireSome(filters);
+        return filters.length == 1 ? filters[0] : new Or(List.of(filters));
+    }
+
+    public static TaskFilter not(TaskFilter filter) {
+        return new Not(Objects.requireNonNull(filter));
+    }
+
+    // Parses the text form described above; throws IllegalArgumentException if it isn't valid
+    public static TaskFilter parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Filter cannot be null or empty.");
+        }
+        Parser parser = new Parser(text);
+        TaskFilter filter = parser.disjunction();
+        if (parser.hasNext()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in filter: " + text);
+        }
+        return filter;
+    }
+
+    private static final class IdIs extends TaskFilter {
+        private final Set<Long> ids;
+
+        IdIs(Set<Long> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return ids.contains(task.getID());
+        }
+
+        // Only IDs the index holds, so not() and the other conditions never see a task that doesn't exist
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = new TaskBitmap();
+            for (long id : ids) {
+                if (id >= 0 && id <= Integer.MAX_VALUE && index.all().contains((int) id)) {
+                    result.add((int) id);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return root.get("ID").in(ids);
+        }
+
+        @Override
+        public String toString() {
+            return "id:" + String.join(",", ids.stream().map(String::valueOf).toList());
+        }
+    }
+
+    private static final class PriorityIs extends TaskFilter {
+        private final Set<Priority> priorities;
+
+        PriorityIs(Set<Priority> priorities) {
+            this.priorities = priorities;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return priorities.contains(task.getPriority());
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = null;
+            for (Priority priority : priorities) {
+                result = result == null ? index.priority(priority) : result.or(index.priority(priority));
+            }
+            return result;
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return cb.and(cb.isNotNull(root.get("priority")), root.get("priority").in(priorities));
+        }
+
+        @Override
+        public String toString() {
+            return "priority:" + join(priorities);
+        }
+    }
+
+    private static final class CategoryIs extends TaskFilter {
+        private final Set<Category> categories;
+
+        CategoryIs(Set<Category> categories) {
+            this.categories = categories;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return categories.contains(task.getCategory());
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = null;
+            for (Category category : categories) {
+                result = result == null ? index.category(category) : result.or(index.category(category));
+            }
+            return result;
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return cb.and(cb.isNotNull(root.get("category")), root.get("category").in(categories));
+        }
+
+        @Override
+        public String toString() {
+            return "category:" + join(categories);
+        }
+    }
+
+    private static final class CompletedIs extends TaskFilter {
+        private final boolean isCompleted;
+
+        CompletedIs(boolean isCompleted) {
+            this.isCompleted = isCompleted;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return task.isCompleted() == isCompleted;
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            return index.completed(isCompleted);
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return cb.equal(root.get("isCompleted"), isCompleted);
+        }
+
+        @Override
+        public String toString() {
+            return "completed:" + isCompleted;
+        }
+    }
+
+    // Due between first and last (inclusive), or without a due date if both are null
+    private static final class DueBetween extends TaskFilter {
+        private final LocalDate first;
+        private final LocalDate last;
+
+        DueBetween(LocalDate first, LocalDate last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            LocalDate dueDate = task.getDueDate();
+            if (first == null) {
+                return dueDate == null;
+            }
+            return dueDate != null && !dueDate.isBefore(first) && !dueDate.isAfter(last);
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            return first == null ? index.noDueDate() : index.dueBetween(first, last);
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            Path<LocalDate> dueDate = root.get("dueDate");
+            if (first == null) {
+                return cb.isNull(dueDate);
+            }
+            List<Predicate> bounds = new ArrayList<>(List.of(cb.isNotNull(dueDate)));
+            if (!first.equals(LocalDate.MIN)) {
+                bounds.add(cb.greaterThanOrEqualTo(dueDate, first));
+            }
+            if (!last.equals(LocalDate.MAX)) {
+                bounds.add(cb.lessThanOrEqualTo(dueDate, last));
+            }
+            return cb.and(bounds.toArray(new Predicate[0]));
+        }
+
+        @Override
+        public String toString() {
+            if (first == null) {
+                return "dueDate:none";
+            }
+            if (first.equals(last)) {
+                return "dueDate:" + first;
+            }
+            return "dueDate:" + (first.equals(LocalDate.MIN) ? "" : first) + ".." + (last.equals(LocalDate.MAX) ? "" : last);
+        }
+    }
+
+    private static final class And extends TaskFilter {
+        private final List<TaskFilter> filters;
+
+        And(List<TaskFilter> filters) {
+            this.filters = filters;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            for (TaskFilter filter : filters) {
+                if (!filter.matches(task)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Intersects the positive conditions smallest first, then subtracts the negated ones
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            List<TaskBitmap> included = new ArrayList<>();
+            List<TaskBitmap> excluded = new ArrayList<>();
+            for (TaskFilter filter : filters) {
+                if (filter instanceof Not not) {
+                    excluded.add(not.filter.evaluate(index));
+                } else {
+                    included.add(filter.evaluate(index));
+                }
+            }
+            included.sort(Comparator.comparingInt(TaskBitmap::cardinality));
+            TaskBitmap result = included.isEmpty() ? index.all() : included.get(0);
+            for (int i = 1; i < included.size() && !result.isEmpty(); i++) {
+                result = result.and(included.get(i));
+            }
+            for (int i = 0; i < excluded.size() && !result.isEmpty(); i++) {
+                result = result.andNot(excluded.get(i));
+            }
+            return result;
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return cb.and(filters.stream().map(filter -> filter.toPredicate(root, cb)).toArray(Predicate[]::new));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + String.join(" and ", filters.stream().map(TaskFilter::toString).toList()) + ")";
+        }
+    }
+
+    private static final class Or extends TaskFilter {
+        private final List<TaskFilter> filters;
+
+        Or(List<TaskFilter> filters) {
+            this.filters = filters;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            for (TaskFilter filter : filters) {
+                if (filter.matches(task)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = filters.get(0).evaluate(index);
+            for (int i = 1; i < filters.size(); i++) {
+                result = result.or(filters.get(i).evaluate(index));
+            }
+            return result;
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return cb.or(filters.stream().map(filter -> filter.toPredicate(root, cb)).toArray(Predicate[]::new));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + String.join(" or ", filters.stream().map(TaskFilter::toString).toList()) + ")";
+        }
+    }
+
+    private static final class Not extends TaskFilter {
+        private final TaskFilter filter;
+
+        Not(TaskFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return !filter.matches(task);
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            return index.all().andNot(filter.evaluate(index));
+        }
+
+        @Override
+        Predicate toPredicate(Root<TodoTask> root, CriteriaBuilder cb) {
+            return cb.not(filter.toPredicate(root, cb));
+        }
+
+        @Override
+        public String toString() {
+            return "not " + filter;
+        }
+    }
+
+    private static void requireSome(TaskFilter[] filters) {
+        if (filters.length == 0) {
+            throw new IllegalArgumentException("At least one filter is required.");
+        }
+    }
+
+    private static String join(Set<? extends Enum<?>> values) {
+        return String.join(",", values.stream().map(Enum::name).toList());
+    }
+
+    // Recursive descent over whitespace-separated words, parentheses and field:value terms
+    private static final class Parser {
+        private final String text;
+        private final List<String> tokens = new ArrayList<>();
+        private int next;
+
+        Parser(String text) {
+            this.text = text;
+            for (String word : text.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+")) {
+                tokens.add(word);
+            }
+        }
+
+        boolean hasNext() {
+            return next < tokens.size();
+        }
+
+        String peek() {
+            return tokens.get(next);
+        }
+
+        TaskFilter disjunction() {
+            List<TaskFilter> filters = new ArrayList<>(List.of(conjunction()));
+            while (accept("or")) {
+                filters.add(conjunction());
+            }
+            return filters.size() == 1 ? filters.get(0) : new Or(filters);
+        }
+
+        private TaskFilter conjunction() {
+            List<TaskFilter> filters = new ArrayList<>(List.of(unary()));
+            while (accept("and")) {
+                filters.add(unary());
+            }
+            return filters.size() == 1 ? filters.get(0) : new And(filters);
+        }
+
+        private TaskFilter unary() {
+            if (accept("not")) {
+                return new Not(unary());
+            }
+            if (accept("(")) {
+                TaskFilter filter = disjunction();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')' in filter: " + text);
+                }
+                return filter;
+            }
+            if (!hasNext() || KEYWORDS.contains(peek().toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Expected a condition such as priority:HIGH in filter: " + text);
+            }
+            return term(tokens.get(next++));
+        }
+
+        private boolean accept(String keyword) {
+            if (hasNext() && peek().equalsIgnoreCase(keyword)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private TaskFilter term(String term) {
+            int colon = term.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected field:value but found '" + term + "' in filter: " + text);
+            }
+            String field = term.substring(0, colon).toLowerCase(Locale.ROOT);
+            String[] values = term.substring(colon + 1).split(",");
+            try {
+                switch (field) {
+                    case "priority": {
+                        List<Priority> priorities = new ArrayList<>();
+                        for (String value : values) {
+                            priorities.add(valueOf(Priority.class, value));
+                        }
+                        return priority(priorities.toArray(new Priority[0]));
+                    }
+                    case "category": {
+                        List<Category> categories = new ArrayList<>();
+                        for (String value : values) {
+                            categories.add(valueOf(Category.class, value));
+                        }
+                        return category(categories.toArray(new Category[0]));
+                    }
+                    case "completed": {
+                        List<TaskFilter> filters = new ArrayList<>();
+                        for (String value : values) {
+                            if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                                throw new IllegalArgumentException("Completed must be true or false in filter: " + text);
+                            }
+                            filters.add(completed(Boolean.parseBoolean(value)));
+                        }
+                        return TaskFilter.or(filters.toArray(new TaskFilter[0]));
+                    }
+                    case "duedate": {
+                        List<TaskFilter> filters = new ArrayList<>();
+                        for (String value : values) {
+                            int range = value.indexOf("..");
+                            if (value.equalsIgnoreCase("none")) {
+                                filters.add(noDueDate());
+                            } else if (range >= 0) {
+                                String first = value.substring(0, range);
+                                String last = value.substring(range + 2);
+                                if (first.isEmpty() && last.isEmpty()) {
+                                    throw new IllegalArgumentException("A due date range needs at least one end in filter: " + text);
+                                }
+                                filters.add(dueBetween(first.isEmpty() ? LocalDate.MIN : LocalDate.parse(first),
+                                        last.isEmpty() ? LocalDate.MAX : LocalDate.parse(last)));
+                            } else {
+                                filters.add(dueDate(LocalDate.parse(value)));
+                            }
+                        }
+                        return TaskFilter.or(filters.toArray(new TaskFilter[0]));
+                    }
+                    case "id": {
+                        List<Long> ids = new ArrayList<>();
+                        for (String value : values) {
+                            try {
+                                ids.add(Long.parseLong(value));
+                            } catch (NumberFormatException e) {
+                                throw new IllegalArgumentException("Unknown task ID '" + value + "' in filter: " + text);
+                            }
+                        }
+                        return id(ids.toArray(new Long[0]));
+                    }
+                    default:
+                        throw new IllegalArgumentException("Unknown field '" + field + "' in filter: " + text);
+                }
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Due dates must be yyyy-MM-dd in filter: " + text);
+            }
+        }
+
+        private <E extends Enum<E>> E valueOf(Class<E> type, String value) {
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName().toLowerCase(Locale.ROOT) + " '"
+                        + value + "' in filter: " + text);
+            }
+        }
+    }
+}
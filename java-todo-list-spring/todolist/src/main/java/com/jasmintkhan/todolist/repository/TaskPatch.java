@@ -0,0 +1,51 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+
+import java.time.LocalDate;
+
+// The fields a partial update sets, e.g. just completed to mark a task done. Null fields are left as they are,
+// so a patch can't clear a field.
+public record TaskPatch(String name, String description, LocalDate dueDate, Priority priority, Category category,
+                        @JsonAlias("isCompleted") Boolean completed) {
+
+    public boolean setsNothing() {
+        return name == null && description == null && dueDate == null && priority == null && category == null
+                && completed == null;
+    }
+
+    // A copy of the task with the patch applied, at the version the patch's UPDATE moves it to
+    public TodoTask applyTo(TodoTask task) {
+        TodoTask patched = task.copy(task.getVersion() == null ? null : task.getVersion() + 1);
+        if (name != null) {
+            patched.setName(name);
+        }
+        if (description != null) {
+            patched.setDescription(description);
+        }
+        if (dueDate != null) {
+            patched.setDueDate(dueDate);
+        }
+        if (priority != null) {
+            patched.setPriority(priority);
+        }
+        if (category != null) {
+            patched.setCategory(category);
+        }
+        if (completed != null) {
+            patched.setCompleted(completed);
+        }
+        return patched;
+    }
+
+    // A task's attributes once the patch has been applied
+    public TaskAttributes applyTo(TaskAttributes before) {
+        return new TaskAttributes(priority != null ? priority : before.priority(),
+                category != null ? category : before.category(),
+                dueDate != null ? dueDate : before.dueDate(),
+                completed != null ? completed : before.completed());
+    }
+}
@@ -0,0 +1,61 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+// Columns tasks can be ordered by. Every ordering is followed by the task ID as a tiebreak,
+// so pages are stable even when many tasks share the same priority, category, etc.
+public enum TaskSortField {
+    ID("ID", TodoTask::getID, Long::valueOf),
+    PRIORITY("priority", TodoTask::getPriority, TodoTask.Priority::valueOf),
+    CATEGORY("category", TodoTask::getCategory, TodoTask.Category::valueOf),
+    DUE_DATE("dueDate", TodoTask::getDueDate, LocalDate::parse),
+    NAME("name", TodoTask::getName, value -> value);
+
+    private final String attribute;
+    private final Function<TodoTask, Object> getter;
+    private final Function<String, Object> parser;
+
+    TaskSortField(String attribute, Function<TodoTask, Object> getter, Function<String, Object> parser) {
+        this.attribute = attribute;
+        this.getter = getter;
+        this.parser = parser;
+    }
+
+    // Entity attribute name used in queries
+    public String attribute() {
+        return attribute;
+    }
+
+    public Object valueOf(TodoTask task) {
+        return getter.apply(task);
+    }
+
+    // Converts a cursor value back into the attribute's type
+    public Object parse(String value) {
+        return value == null ? null : parser.apply(value);
+    }
+
+    // Parses the sortBy request parameter ("priority", "category", "duedate", "name" or "id")
+    public static TaskSortField fromParameter(String sortBy) {
+        if (sortBy == null) {
+            throw new IllegalArgumentException("Sort criteria cannot be null.");
+        }
+        switch (sortBy.toLowerCase()) {
+            case "id":
+                return ID;
+            case "priority":
+                return PRIORITY;
+            case "category":
+                return CATEGORY;
+            case "duedate":
+                return DUE_DATE;
+            case "name":
+                return NAME;
+            default:
+                throw new IllegalArgumentException("Invalid sort criteria: " + sortBy);
+        }
+    }
+}
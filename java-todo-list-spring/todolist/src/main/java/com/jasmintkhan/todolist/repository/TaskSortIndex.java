@@ -0,0 +1,163 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+// Task IDs kept sorted by every TaskSortField in concurrent skip lists, in the same order findPage returns them
+// (nulls last ascending and first descending, ties by ID). Adding, changing or removing a task costs O(log n)
+// per ordering, and reading a page walks the first entries after the cursor without sorting anything.
+// Safe for concurrent use: changes to one ID are serialized, and readers never block.
+public class TaskSortIndex {
+
+    // The attributes a task is sorted by, as they were when it was put
+    private record Entry(long id, Priority priority, Category category, LocalDate dueDate, String name) {
+
+        static Entry of(TodoTask task) {
+            return new Entry(task.getID(), task.getPriority(), task.getCategory(), task.getDueDate(), task.getName());
+        }
+    }
+
+    private static final Map<TaskSortField, Comparator<Entry>> ORDERS = new EnumMap<>(TaskSortField.class);
+
+    static {
+        ORDERS.put(TaskSortField.ID, Comparator.comparingLong(Entry::id));
+        ORDERS.put(TaskSortField.PRIORITY, byValue(Entry::priority));
+        ORDERS.put(TaskSortField.CATEGORY, byValue(Entry::category));
+        ORDERS.put(TaskSortField.DUE_DATE, byValue(Entry::dueDate));
+        ORDERS.put(TaskSortField.NAME, byValue(Entry::name));
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<TaskSortField, NavigableSet<Entry>> views = new EnumMap<>(TaskSortField.class);
+
+    public TaskSortIndex() {
+        ORDERS.forEach((sortField, order) -> views.put(sortField, new ConcurrentSkipListSet<>(order)));
+    }
+
+    // Indexes a saved task, replacing whatever was indexed for its ID before
+    public void put(TodoTask task) {
+        if (task.getID() == null) {
+            return; // Unsaved task
+        }
+        Entry entry = Entry.of(task);
+        entries.compute(entry.id(), (id, old) -> {
+            if (old != null) {
+                views.values().forEach(view -> view.remove(old));
+            }
+            views.values().forEach(view -> view.add(entry));
+            return entry;
+        });
+    }
+
+    // Applies a partial update to an indexed task, moving it only in the orderings whose field changed.
+    // Tasks that aren't indexed are left out, as their other attributes are unknown.
+    public void patch(Long id, TaskPatch patch) {
+        if (id == null) {
+            return;
+        }
+        entries.computeIfPresent(id, (key, old) -> {
+            Entry entry = new Entry(old.id(),
+                    patch.priority() != null ? patch.priority() : old.priority(),
+                    patch.category() != null ? patch.category() : old.category(),
+                    patch.dueDate() != null ? patch.dueDate() : old.dueDate(),
+                    patch.name() != null ? patch.name() : old.name());
+            views.forEach((sortField, view) -> {
+                if (ORDERS.get(sortField).compare(old, entry) != 0) {
+                    view.remove(old);
+                    view.add(entry);
+                }
+            });
+            return entry;
+        });
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        entries.computeIfPresent(id, (key, old) -> {
+            views.values().forEach(view -> view.remove(old));
+            return null;
+        });
+    }
+
+    public void clear() {
+        entries.clear();
+        views.values().forEach(NavigableSet::clear);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // IDs of up to limit tasks (all of them if limit is null) in the given order, starting right after the
+    // cursor (null for the beginning)
+    public List<Long> ids(TaskSortField sortField, boolean descending, TaskCursor after, Integer limit) {
+        NavigableSet<Entry> view = views.get(sortField);
+        if (descending) {
+            view = view.descendingSet();
+        }
+        if (after != null) {
+            view = view.tailSet(probe(sortField, after), false);
+        }
+        List<Long> ids = new ArrayList<>(limit == null ? entries.size() : Math.min(limit, entries.size()));
+        for (Iterator<Entry> it = view.iterator(); it.hasNext() && (limit == null || ids.size() < limit); ) {
+            ids.add(it.next().id());
+        }
+        return ids;
+    }
+
+    // Order of saved tasks the index uses, for checking tasks loaded by the IDs it returned
+    public static Comparator<TodoTask> order(TaskSortField sortField, boolean descending) {
+        Comparator<TodoTask> order = Comparator.comparing(Entry::of, ORDERS.get(sortField));
+        return descending ? order.reversed() : order;
+    }
+
+    // Order by each field in turn and then ID, the order findTop returns tasks in, for picking them in memory
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Comparator<TodoTask> order(List<TaskSortField> sortFields, boolean descending) {
+        Comparator<TodoTask> order = (a, b) -> 0;
+        for (TaskSortField sortField : sortFields) {
+            order = order.thenComparing((a, b) -> {
+                Comparable value = (Comparable) sortField.valueOf(a);
+                Object other = sortField.valueOf(b);
+                if (value == null || other == null) {
+                    return value == other ? 0 : value == null ? 1 : -1; // Nulls last
+                }
+                return value.compareTo(other);
+            });
+        }
+        order = order.thenComparing(TodoTask::getID);
+        return descending ? order.reversed() : order;
+    }
+
+    // An entry that sorts where the cursor's task did; only the cursor's field and ID are compared
+    private static Entry probe(TaskSortField sortField, TaskCursor after) {
+        Object value = after.value();
+        return switch (sortField) {
+            case ID -> new Entry(after.id(), null, null, null, null);
+            case PRIORITY -> new Entry(after.id(), (Priority) value, null, null, null);
+            case CATEGORY -> new Entry(after.id(), null, (Category) value, null, null);
+            case DUE_DATE -> new Entry(after.id(), null, null, (LocalDate) value, null);
+            case NAME -> new Entry(after.id(), null, null, null, (String) value);
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Entry> byValue(Function<Entry, T> value) {
+        return Comparator.comparing(value, Comparator.nullsLast(Comparator.<T>naturalOrder()))
+                .thenComparingLong(Entry::id);
+    }
+}
@@ -0,0 +1,53 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Task counts by priority, by category and by completion status, plus the open tasks due before asOf.
+// Tasks without a priority or category have no map key, so they are counted in noPriority and noCategory.
+public record TaskStatistics(LocalDate asOf, long total, long completed, long open, long overdue,
+                             Map<Priority, Long> byPriority, long noPriority,
+                             Map<Category, Long> byCategory, long noCategory) {
+
+    // From counts per bucket indexed by ordinal, the last bucket counting nulls. Every task has one priority
+    // bucket, so those add up to the total.
+    static TaskStatistics of(LocalDate asOf, long completed, long overdue, long[] priorityCounts, long[] categoryCounts) {
+        long total = 0;
+        for (long count : priorityCounts) {
+            total += count;
+        }
+        Map<Priority, Long> byPriority = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            byPriority.put(priority, priorityCounts[priority.ordinal()]);
+        }
+        Map<Category, Long> byCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            byCategory.put(category, categoryCounts[category.ordinal()]);
+        }
+        return new TaskStatistics(asOf, total, completed, total - completed, overdue,
+                Collections.unmodifiableMap(byPriority), priorityCounts[priorityCounts.length - 1],
+                Collections.unmodifiableMap(byCategory), categoryCounts[categoryCounts.length - 1]);
+    }
+
+    // From the [priority, category, isCompleted, count] rows of TodoTaskRepository.countGroups
+    public static TaskStatistics fromGroups(LocalDate asOf, List<Object[]> groups, long overdue) {
+        long[] priorityCounts = new long[Priority.values().length + 1];
+        long[] categoryCounts = new long[Category.values().length + 1];
+        long completed = 0;
+        for (Object[] group : groups) {
+            long count = ((Number) group[3]).longValue();
+            priorityCounts[group[0] == null ? priorityCounts.length - 1 : ((Priority) group[0]).ordinal()] += count;
+            categoryCounts[group[1] == null ? categoryCounts.length - 1 : ((Category) group[1]).ordinal()] += count;
+            if ((Boolean) group[2]) {
+                completed += count;
+            }
+        }
+        return of(asOf, completed, overdue, priorityCounts, categoryCounts);
+    }
+}
@@ -2,15 +2,56 @@ package com.jasmintkhan.todolist.repository;
 
 import com.jasmintkhan.todolist.model.TodoTask;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TodoTaskRepository extends JpaRepository<TodoTask, Long> {
+public interface TodoTaskRepository extends JpaRepository<TodoTask, Long>, JpaSpecificationExecutor<TodoTask>,
+        TodoTaskRepositoryCustom {
     // Custom query methods
+    List<TodoTask> findByPriority(TodoTask.Priority priority);
     List<TodoTask> findByCategory(TodoTask.Category category);
+    List<TodoTask> findByDueDate(LocalDate dueDate);
     List<TodoTask> findByIsCompleted(boolean isCompleted);
 
+    // Exact (case-sensitive) name lookup, served by the name index
+    Optional<TodoTask> findFirstByNameOrderByIDAsc(String name);
+
+    // ID of the oldest task whose case-folded name matches, or null. Answered from the normalized_name index;
+    // normalizedName must already be folded with TodoTask.normalizeName.
+    @Query("select min(t.ID) from TodoTask t where t.normalizedName = :normalizedName")
+    Long findFirstIdByNormalizedName(@Param("normalizedName") String normalizedName);
+
+    // Just the task's version, for checking a client's ETag without loading the task
+    @Query("select t.version from TodoTask t where t.ID = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Tasks whose case-folded name contains the fragment, oldest first, as the name index would return them.
+    // For searches made while that index isn't loaded; it scans the table.
+    default List<TodoTask> searchByNormalizedName(String normalizedFragment) {
+        String escaped = normalizedFragment.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return findByNormalizedNameLike("%" + escaped + "%");
+    }
+
+    // pattern is a LIKE pattern escaped with '!'
+    @Query("select t from TodoTask t where t.normalizedName like :pattern escape '!' order by t.ID")
+    List<TodoTask> findByNormalizedNameLike(@Param("pattern") String pattern);
+
+    // Task counts per combination of priority, category and completion status, as
+    // [priority, category, isCompleted, count] rows for TaskStatistics.fromGroups
+    @Query("select t.priority, t.category, t.isCompleted, count(t) from TodoTask t"
+            + " group by t.priority, t.category, t.isCompleted")
+    List<Object[]> countGroups();
+
+    // Open tasks due before the given day
+    @Query("select count(t) from TodoTask t where t.isCompleted = false and t.dueDate < :today")
+    long countOverdue(@Param("today") LocalDate today);
+
     // More custom methods can be added as needed
 }
@@ -0,0 +1,49 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Queries that Spring Data cannot derive from method names
+public interface TodoTaskRepositoryCustom {
+
+    // Returns up to limit tasks matching filter (null for all), ordered by sortField and then ID.
+    // When after is set only tasks positioned after that cursor are returned (keyset pagination),
+    // so the database seeks straight to the page instead of skipping over an OFFSET.
+    // A null limit returns every remaining task.
+    List<TodoTask> findPage(Specification<TodoTask> filter, TaskSortField sortField, boolean descending,
+                            TaskCursor after, Integer limit);
+
+    // Returns the first tasks (up to limit) matching filter (null for all), ordered by each field in turn and then
+    // ID, all ascending or all descending, as one ORDER BY ... LIMIT query.
+    List<TodoTask> findTop(Specification<TodoTask> filter, List<TaskSortField> order, boolean descending, int limit);
+
+    // Every task in ID order, read through a forward-only cursor fetchSize rows at a time. Tasks are detached as
+    // they are read, so the persistence context does not grow with the table. Must be consumed and closed inside
+    // a transaction.
+    Stream<TodoTask> streamAll(int fetchSize);
+
+    // Sets the fields present in the patch (and bumps the version) with one UPDATE of just those columns, without
+    // loading the task. With expected versions only a task still at one of them is updated. Returns the number of
+    // rows updated. Must be called inside a transaction.
+    int patch(Long id, TaskPatch patch, Set<Long> expectedVersions);
+
+    // IDs of the tasks matching the filter, in ID order, read with SELECT ... FOR UPDATE so that no other
+    // transaction can change or delete those rows until this one ends. Must be called inside a transaction.
+    List<Long> lockMatchingIds(TaskFilter filter);
+
+    // Applies the patch to every task matching the filter (bumping their versions) as one set-based UPDATE,
+    // and returns the number of rows updated. Must be called inside a transaction.
+    int patchMatching(TaskFilter filter, TaskPatch patch);
+
+    // Deletes every task matching the filter as one set-based DELETE, and returns the number of rows deleted.
+    // Must be called inside a transaction.
+    int deleteMatching(TaskFilter filter);
+
+    // Persists new tasks as JDBC batch inserts, then detaches them so the persistence context
+    // does not grow with the batch. Must be called inside a transaction.
+    void insertAll(List<TodoTask> tasks);
+}
@@ -0,0 +1,202 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Criteria-based implementation of TodoTaskRepositoryCustom, picked up by Spring Data by its Impl suffix
+public class TodoTaskRepositoryImpl implements TodoTaskRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TodoTask> findPage(Specification<TodoTask> filter, TaskSortField sortField, boolean descending,
+                                   TaskCursor after, Integer limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<TodoTask> query = cb.createQuery(TodoTask.class);
+        Root<TodoTask> root = query.from(TodoTask.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (after != null) {
+            predicates.add(seekAfter(cb, root, sortField, descending, after));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        query.orderBy(orderBy(cb, root, List.of(sortField), descending));
+
+        TypedQuery<TodoTask> typedQuery = entityManager.createQuery(query);
+        if (limit != null) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public List<TodoTask> findTop(Specification<TodoTask> filter, List<TaskSortField> order, boolean descending, int limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<TodoTask> query = cb.createQuery(TodoTask.class);
+        Root<TodoTask> root = query.from(TodoTask.class);
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(orderBy(cb, root, order, descending));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<TodoTask> streamAll(int fetchSize) {
+        return entityManager.createQuery("select t from TodoTask t order by t.ID", TodoTask.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(task -> {
+                    entityManager.detach(task);
+                    return task;
+                });
+    }
+
+    @Override
+    public int patch(Long id, TaskPatch patch, Set<Long> expectedVersions) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaUpdate<TodoTask> update = cb.createCriteriaUpdate(TodoTask.class);
+        Root<TodoTask> root = update.from(TodoTask.class);
+        setFields(cb, update, root, patch);
+
+        Predicate where = cb.equal(root.get(TaskSortField.ID.attribute()), id);
+        if (expectedVersions != null) {
+            where = cb.and(where, root.<Long>get("version").in(expectedVersions));
+        }
+        update.where(where);
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<Long> lockMatchingIds(TaskFilter filter) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<TodoTask> root = query.from(TodoTask.class);
+        Path<Long> id = root.get(TaskSortField.ID.attribute());
+        query.select(id).where(filter.toPredicate(root, cb)).orderBy(cb.asc(id)); // Locks in one order everywhere
+        return entityManager.createQuery(query).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+
+    @Override
+    public int patchMatching(TaskFilter filter, TaskPatch patch) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaUpdate<TodoTask> update = cb.createCriteriaUpdate(TodoTask.class);
+        Root<TodoTask> root = update.from(TodoTask.class);
+        setFields(cb, update, root, patch);
+        update.where(filter.toPredicate(root, cb));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public int deleteMatching(TaskFilter filter) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaDelete<TodoTask> delete = cb.createCriteriaDelete(TodoTask.class);
+        Root<TodoTask> root = delete.from(TodoTask.class);
+        delete.where(filter.toPredicate(root, cb));
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    // SET clauses for the fields present in the patch, plus a version bump so If-Match sees the change
+    private static void setFields(HibernateCriteriaBuilder cb, CriteriaUpdate<TodoTask> update, Root<TodoTask> root,
+                                  TaskPatch patch) {
+        if (patch.name() != null) {
+            update.set(root.<String>get("name"), patch.name());
+            update.set(root.<String>get("normalizedName"), TodoTask.normalizeName(patch.name()));
+        }
+        if (patch.description() != null) {
+            update.set(root.<String>get("description"), patch.description());
+        }
+        if (patch.dueDate() != null) {
+            update.set(root.<LocalDate>get("dueDate"), patch.dueDate());
+        }
+        if (patch.priority() != null) {
+            update.set(root.<TodoTask.Priority>get("priority"), patch.priority());
+        }
+        if (patch.category() != null) {
+            update.set(root.<TodoTask.Category>get("category"), patch.category());
+        }
+        if (patch.completed() != null) {
+            update.set(root.<Boolean>get("isCompleted"), patch.completed());
+        }
+        Path<Long> version = root.get("version");
+        update.set(version, cb.sum(version, 1L));
+    }
+
+    @Override
+    public void insertAll(List<TodoTask> tasks) {
+        for (TodoTask task : tasks) {
+            entityManager.persist(task);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // ORDER BY the fields and then ID. Nulls sort as the largest value: last when ascending, first when descending
+    private static List<Order> orderBy(HibernateCriteriaBuilder cb, Root<TodoTask> root, List<TaskSortField> fields,
+                                       boolean descending) {
+        List<Order> orders = new ArrayList<>();
+        for (TaskSortField field : fields) {
+            if (field == TaskSortField.ID) {
+                break; // IDs are unique, so nothing after them matters
+            }
+            Path<?> path = root.get(field.attribute());
+            orders.add(descending ? cb.desc(path, true) : cb.asc(path, false));
+        }
+        Path<Long> id = root.get(TaskSortField.ID.attribute());
+        orders.add(descending ? cb.desc(id) : cb.asc(id));
+        return orders;
+    }
+
+    // Predicate selecting the rows that come after the cursor in (sortField, ID) order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seekAfter(HibernateCriteriaBuilder cb, Root<TodoTask> root, TaskSortField sortField,
+                                boolean descending, TaskCursor after) {
+        Path<Long> id = root.get(TaskSortField.ID.attribute());
+        Predicate idAfter = descending ? cb.lessThan(id, after.id()) : cb.greaterThan(id, after.id());
+        if (sortField == TaskSortField.ID) {
+            return idAfter;
+        }
+
+        Path<Comparable> sortPath = root.get(sortField.attribute());
+        Comparable value = (Comparable) after.value();
+        if (value == null) {
+            Predicate sameNullGroup = cb.and(cb.isNull(sortPath), idAfter);
+            // Ascending: nulls are the last group. Descending: every non-null row follows them
+            return descending ? cb.or(sameNullGroup, cb.isNotNull(sortPath)) : sameNullGroup;
+        }
+        Predicate beyond = descending ? cb.lessThan(sortPath, value) : cb.greaterThan(sortPath, value);
+        Predicate sameValue = cb.and(cb.equal(sortPath, value), idAfter);
+        return descending ? cb.or(beyond, sameValue) : cb.or(beyond, sameValue, cb.isNull(sortPath));
+    }
+}
@@ -0,0 +1,45 @@
+package com.jasmintkhan.todolist.repository;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+// Reusable query predicates for TodoTask.
+// Each method returns null when its argument is null, and Specification.where/and skip
+// null specifications, so any combination of filters becomes a single SQL WHERE clause.
+public final class TodoTaskSpecifications {
+
+    private TodoTaskSpecifications() {
+    }
+
+    public static Specification<TodoTask> hasPriority(TodoTask.Priority priority) {
+        return priority == null ? null : (root, query, cb) -> cb.equal(root.get("priority"), priority);
+    }
+
+    public static Specification<TodoTask> hasCategory(TodoTask.Category category) {
+        return category == null ? null : (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<TodoTask> isDueOn(LocalDate dueDate) {
+        return dueDate == null ? null : (root, query, cb) -> cb.equal(root.get("dueDate"), dueDate);
+    }
+
+    public static Specification<TodoTask> hasCompletionStatus(Boolean isCompleted) {
+        return isCompleted == null ? null : (root, query, cb) -> cb.equal(root.get("isCompleted"), isCompleted);
+    }
+
+    // Any TaskFilter (and/or/not over the same fields) as a single WHERE clause
+    public static Specification<TodoTask> matching(TaskFilter filter) {
+        return (root, query, cb) -> filter.toPredicate(root, cb);
+    }
+
+    // Combines every non-null filter with AND
+    public static Specification<TodoTask> matching(TodoTask.Priority priority, TodoTask.Category category,
+                                                   LocalDate dueDate, Boolean isCompleted) {
+        return Specification.where(hasPriority(priority))
+                .and(hasCategory(category))
+                .and(isDueOn(dueDate))
+                .and(hasCompletionStatus(isCompleted));
+    }
+}
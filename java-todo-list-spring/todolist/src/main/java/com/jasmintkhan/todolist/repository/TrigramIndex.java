@@ -0,0 +1,146 @@
+package com.jasmintkhan.todolist.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index from name trigrams (3-character substrings) to task IDs, for case-insensitive
+// substring search. Every trigram of a query must appear in a matching name, so intersecting the query's
+// posting lists leaves a small candidate set that is verified against the stored case-folded names.
+// Names are folded once when indexed, so a search allocates nothing per task. Safe for concurrent use:
+// searches share a read lock and updates take the write lock.
+public class TrigramIndex {
+
+    private final Map<Long, Set<Long>> postings = new HashMap<>(); // Trigram -> IDs of tasks whose name contains it
+    private final Map<Long, String> foldedNames = new HashMap<>(); // Task ID -> case-folded name
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Indexes a task's name, replacing whatever was indexed for that ID before
+    public void put(Long id, String name) {
+        if (id == null) {
+            return; // Unsaved task
+        }
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+            if (name == null) {
+                return;
+            }
+            String folded = fold(name);
+            foldedNames.put(id, folded);
+            for (long trigram : trigramsOf(folded)) {
+                postings.computeIfAbsent(trigram, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            foldedNames.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return foldedNames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Returns the IDs (ascending) of tasks whose name contains the query, ignoring case
+    public List<Long> search(String query) {
+        String foldedQuery = fold(query);
+        List<Long> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (foldedQuery.length() < 3) {
+                // Too short to have a trigram: check every name (still without allocating per task)
+                for (Map.Entry<Long, String> entry : foldedNames.entrySet()) {
+                    if (entry.getValue().contains(foldedQuery)) {
+                        matches.add(entry.getKey());
+                    }
+                }
+            } else {
+                // Walk the smallest posting list and keep IDs present in all the others
+                List<Set<Long>> lists = new ArrayList<>();
+                for (long trigram : trigramsOf(foldedQuery)) {
+                    Set<Long> ids = postings.get(trigram);
+                    if (ids == null) {
+                        return matches; // Some trigram appears in no name at all
+                    }
+                    lists.add(ids);
+                }
+                lists.sort(Comparator.comparingInt(Set::size));
+                for (Long id : lists.get(0)) {
+                    if (inAll(lists, id) && foldedNames.get(id).contains(foldedQuery)) {
+                        matches.add(id);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    private void removeUnlocked(Long id) {
+        String folded = foldedNames.remove(id);
+        if (folded == null) {
+            return;
+        }
+        for (long trigram : trigramsOf(folded)) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private static boolean inAll(List<Set<Long>> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Distinct trigrams of an already folded string, each packed into a long (16 bits per char)
+    private static Set<Long> trigramsOf(String folded) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            trigrams.add(((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,121 @@
+package com.jasmintkhan.todolist.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Runs the batches of a large job (e.g. loading a filter's matches 1000 IDs at a time) on a bounded fork-join
+// pool of its own, so a result of hundreds of thousands of tasks is loaded on several threads without taking
+// request threads. A job is only split while workers are idle and its Kind's timings say that pays off.
+// Every worker holds a database connection while it loads, so keep todolist.parallel.threads below the
+// connection pool size.
+@Component
+public class ParallelBatches {
+
+    private static final long MIN_PARALLEL_NANOS = 2_000_000; // Jobs estimated below this run on the calling thread
+    private static final int RETRY_EVERY = 64; // How often a job splitting hasn't paid off for is split anyway
+    private static final double WEIGHT = 0.2; // Of a new timing in the moving averages
+
+    // Per-item timings of one kind of job, run on the calling thread and split
+    public static final class Kind {
+        private volatile double sequentialNanos = 1_000;
+        private volatile double parallelNanos = 250; // Optimistic, so splitting gets tried
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        private boolean worthSplitting(int items) {
+            if (items * sequentialNanos < MIN_PARALLEL_NANOS) {
+                return false;
+            }
+            return parallelNanos < sequentialNanos * 0.75 || skipped.incrementAndGet() % RETRY_EVERY == 0;
+        }
+
+        private void learn(boolean split, long nanos, int items) {
+            double perItem = (double) nanos / items;
+            if (split) {
+                parallelNanos += (perItem - parallelNanos) * WEIGHT;
+            } else {
+                sequentialNanos += (perItem - sequentialNanos) * WEIGHT;
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public ParallelBatches(@Value("${todolist.parallel.threads:4}") int threads) {
+        AtomicInteger started = new AtomicInteger();
+        this.pool = new ForkJoinPool(Math.max(1, threads), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("todolist-batch-" + started.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+
+    // Applies the work to every batch and returns the results in batch order; items is the total size of the
+    // batches. Inside a transaction everything runs on the calling thread, since other threads can't see the
+    // transaction's uncommitted writes.
+    public <B, R> List<R> map(Kind kind, List<B> batches, int items, Function<B, R> work) {
+        Object[] results = new Object[batches.size()];
+        boolean split = batches.size() > 1
+                && pool.getParallelism() - pool.getActiveThreadCount() > 1
+                && !TransactionSynchronizationManager.isActualTransactionActive()
+                && kind.worthSplitting(items);
+        long start = System.nanoTime();
+        if (split) {
+            pool.invoke(new Split<>(batches, work, results, 0, batches.size()));
+        } else {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = work.apply(batches.get(i));
+            }
+        }
+        if (items > 0) {
+            kind.learn(split, System.nanoTime() - start, items);
+        }
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) new ArrayList<>(Arrays.asList(results));
+        return list;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Halves its range of batches until a single batch is left
+    private static final class Split<B, R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<B> batches; // Never serialized; only run on the pool
+        private final transient Function<B, R> work;
+        private final transient Object[] results;
+        private final int first;
+        private final int end;
+
+        Split(List<B> batches, Function<B, R> work, Object[] results, int first, int end) {
+            this.batches = batches;
+            this.work = work;
+            this.results = results;
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first == 1) {
+                results[first] = work.apply(batches.get(first));
+                return;
+            }
+            int middle = (first + end) >>> 1;
+            invokeAll(new Split<>(batches, work, results, first, middle), new Split<>(batches, work, results, middle, end));
+        }
+    }
+}
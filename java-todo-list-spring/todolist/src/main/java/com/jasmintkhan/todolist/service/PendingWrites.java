@@ -0,0 +1,47 @@
+package com.jasmintkhan.todolist.service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// TodoTaskService's writes between committing and having been applied to the read side. Writes are numbered as
+// they commit and struck off once applied, so a read can wait for the writes committed before it started
+// (awaitCommitted) without waiting for the ones that follow. Outlives the read sides a rebuild swaps in.
+class PendingWrites {
+
+    private final AtomicLong committing = new AtomicLong(); // Number of the last write to start committing
+    private final ConcurrentSkipListSet<Long> unapplied = new ConcurrentSkipListSet<>(); // Numbers not applied yet
+
+    // Called by a write just before its transaction commits; returns its number for applied()
+    long committing() {
+        long write = committing.incrementAndGet();
+        unapplied.add(write);
+        return write;
+    }
+
+    // Called once the write has been applied, or has rolled back
+    void applied(long write) {
+        unapplied.remove(write);
+    }
+
+    // Waits up to timeout for every write that had started committing when this was called to be applied.
+    // Returns whether they all were.
+    boolean awaitCommitted(Duration timeout) {
+        return awaitCommitted(timeout, Set.of());
+    }
+
+    // The same, leaving out the given writes (e.g. ones that are waiting for the caller)
+    boolean awaitCommitted(Duration timeout, Set<Long> ignoring) {
+        long last = committing.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!ignoring.containsAll(unapplied.headSet(last, true))) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(10_000); // After-commit hooks only touch memory, so this is rarely reached twice
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.jasmintkhan.todolist.service;
+
+import java.util.Locale;
+
+// How current a read from TodoTaskService has to be. Both are answered from the in-memory read model once it is
+// loaded (TaskReadModel), and from the database until then.
+// READ_YOUR_WRITES (the default) first waits for the writes committed before the read to be applied in memory,
+// which takes microseconds, so it sees them all, the caller's own included. EVENTUAL answers at once and can miss
+// a write another request has just committed.
+// Chosen per thread, so a request can set it for every read it makes (the X-Read-Consistency header).
+public enum ReadConsistency {
+    READ_YOUR_WRITES,
+    EVENTUAL;
+
+    private static final ThreadLocal<ReadConsistency> CURRENT = new ThreadLocal<>();
+
+    // The consistency reads on this thread are made with
+    public static ReadConsistency current() {
+        ReadConsistency consistency = CURRENT.get();
+        return consistency != null ? consistency : READ_YOUR_WRITES;
+    }
+
+    // Makes the reads on this thread use the given consistency until clear()
+    public static void set(ReadConsistency consistency) {
+        CURRENT.set(consistency);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // From "read-your-writes" or "eventual" (any case)
+    public static ReadConsistency fromParameter(String value) {
+        if (value != null) {
+            for (ReadConsistency consistency : values()) {
+                if (consistency.parameter().equalsIgnoreCase(value.trim())) {
+                    return consistency;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown read consistency: " + value);
+    }
+
+    public String parameter() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
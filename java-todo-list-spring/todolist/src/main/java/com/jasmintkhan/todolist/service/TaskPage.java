@@ -0,0 +1,13 @@
+package com.jasmintkhan.todolist.service;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+
+import java.util.List;
+
+// One page of tasks plus the opaque cursor for the next page (null on the last page)
+public record TaskPage(List<TodoTask> tasks, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.jasmintkhan.todolist.service;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The rows of TodoTaskService's read side (TaskReadSide): a detached copy of every task by ID. The service's name,
+// filter and sort indexes find the IDs a read wants and the tasks come from here, so a read runs no query at all.
+// It is loaded with the indexes and applies each committed write from the same after-commit hook, so it only
+// misses writes that bypass the service. Tasks handed out are shared between readers and must not be modified.
+class TaskReadModel {
+
+    private final Map<Long, TodoTask> tasks = new ConcurrentHashMap<>();
+
+    // Keeps a copy of a saved task, replacing the one kept for its ID before
+    void put(TodoTask task) {
+        if (task.getID() != null) {
+            tasks.put(task.getID(), task.copy(task.getVersion()));
+        }
+    }
+
+    // Applies a partial update to the task kept for the ID, if there is one
+    void patch(Long id, TaskPatch patch) {
+        tasks.computeIfPresent(id, (key, task) -> patch.applyTo(task));
+    }
+
+    void remove(Long id) {
+        tasks.remove(id);
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    Optional<TodoTask> get(Long id) {
+        return Optional.ofNullable(tasks.get(id));
+    }
+
+    // The tasks with the given IDs in the IDs' order, leaving out any that aren't kept
+    List<TodoTask> get(List<Long> ids) {
+        List<TodoTask> found = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TodoTask task = tasks.get(id);
+            if (task != null) {
+                found.add(task);
+            }
+        }
+        return found;
+    }
+
+    Collection<TodoTask> all() {
+        return tasks.values();
+    }
+
+    // The first limit tasks in the given order, keeping only that many at a time instead of sorting them all
+    static List<TodoTask> first(Iterable<TodoTask> tasks, Comparator<TodoTask> order, int limit) {
+        PriorityQueue<TodoTask> kept = new PriorityQueue<>(limit + 1, order.reversed());
+        for (TodoTask task : tasks) {
+            kept.add(task);
+            if (kept.size() > limit) {
+                kept.poll(); // The last of them in the order
+            }
+        }
+        List<TodoTask> first = new ArrayList<>(kept);
+        first.sort(order);
+        return first;
+    }
+}
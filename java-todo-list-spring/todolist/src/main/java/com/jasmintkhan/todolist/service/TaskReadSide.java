@@ -0,0 +1,70 @@
+package com.jasmintkhan.todolist.service;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskAttributes;
+import com.jasmintkhan.todolist.repository.TaskBitmapIndex;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+import com.jasmintkhan.todolist.repository.TaskSortIndex;
+import com.jasmintkhan.todolist.repository.TrigramIndex;
+
+// One generation of TodoTaskService's read side: the trigram index over names for searchTasksByName, the bitmap
+// index for filters and statistics, the sort index for sorted listings and pages, and the read model with the
+// tasks themselves. They are loaded together and a rebuild swaps in a whole new one, so a read never sees them
+// cleared or half loaded.
+final class TaskReadSide {
+
+    private final TrigramIndex names = new TrigramIndex();
+    private final TaskBitmapIndex filters = new TaskBitmapIndex();
+    private final TaskSortIndex sorts = new TaskSortIndex();
+    private final TaskReadModel rows = new TaskReadModel();
+
+    TrigramIndex names() {
+        return names;
+    }
+
+    TaskBitmapIndex filters() {
+        return filters;
+    }
+
+    TaskSortIndex sorts() {
+        return sorts;
+    }
+
+    TaskReadModel rows() {
+        return rows;
+    }
+
+    // Adds a saved task, or replaces what was kept for its ID
+    void put(TodoTask task) {
+        names.put(task.getID(), task.getName());
+        filters.put(task);
+        sorts.put(task);
+        rows.put(task);
+    }
+
+    // Applies a partial update to the task, if it is kept. Returns what it matched before, or null.
+    TaskAttributes patch(Long id, TaskPatch patch) {
+        if (patch.name() != null) {
+            names.put(id, patch.name());
+        }
+        TaskAttributes before = filters.patch(id, patch);
+        sorts.patch(id, patch);
+        rows.patch(id, patch);
+        return before;
+    }
+
+    // Returns what the task matched, or null if it wasn't kept
+    TaskAttributes remove(Long id) {
+        names.remove(id);
+        TaskAttributes before = filters.remove(id);
+        sorts.remove(id);
+        rows.remove(id);
+        return before;
+    }
+
+    @Override
+    public String toString() {
+        return "task names indexed: " + names.size() + ", tasks in the filter index: " + filters.size()
+                + ", tasks in the sort index: " + sorts.size() + ", tasks in the read model: " + rows.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.jasmintkhan.todolist.service;
+
+// A change counter for the whole task table and when it last changed (epoch millis). The service moves it on
+// after every committed write, so a response tagged with it can be revalidated without reading a single task.
+// It starts at the boot time rather than 0, so tags handed out before a restart never match.
+public record TaskTableVersion(long changes, long lastModified) {
+
+    static TaskTableVersion startingNow() {
+        long now = System.currentTimeMillis();
+        return new TaskTableVersion(now, now);
+    }
+
+    TaskTableVersion next() {
+        return new TaskTableVersion(changes + 1, Math.max(lastModified, System.currentTimeMillis()));
+    }
+}
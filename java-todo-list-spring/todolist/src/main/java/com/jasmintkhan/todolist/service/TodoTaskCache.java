@@ -0,0 +1,164 @@
+package com.jasmintkhan.todolist.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskAttributes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Bounded read-through cache in front of TodoTaskRepository, used by TodoTaskService for the reads its in-memory
+// read model can't answer (before it is loaded, or when a read-your-writes read can't wait for it).
+// Holds tasks by ID, filter results keyed by their filter values, and sorted/paged results keyed by
+// their parameters. Entries are evicted by size and age (TTL), and invalidated by the service after every
+// committed write: the task's ID, the filter results the task matched before or after the change, and all
+// sorted results (any write can move a task within an ordering).
+// As a MeterBinder, its hit/miss/eviction counters are published as cache.* metrics.
+@Component
+public class TodoTaskCache implements MeterBinder {
+
+    // Values of the four filterTasks parameters; null means "any"
+    public record FilterKey(TodoTask.Priority priority, TodoTask.Category category, LocalDate dueDate,
+                            Boolean isCompleted) {
+
+        // The full attribute values of a task, for matching against cached filters
+        public static FilterKey of(TodoTask task) {
+            return new FilterKey(task.getPriority(), task.getCategory(), task.getDueDate(), task.isCompleted());
+        }
+
+        public static FilterKey of(TaskAttributes task) {
+            return new FilterKey(task.priority(), task.category(), task.dueDate(), task.completed());
+        }
+
+        // Whether a task in the given state would be part of this filter's result
+        public boolean matches(FilterKey state) {
+            return (priority == null || priority == state.priority)
+                    && (category == null || category == state.category)
+                    && (dueDate == null || dueDate.equals(state.dueDate))
+                    && (isCompleted == null || isCompleted.equals(state.isCompleted));
+        }
+    }
+
+    private final Cache<Long, TodoTask> tasksById;
+    private final Cache<FilterKey, List<TodoTask>> filterResults;
+    private final Cache<Object, Object> sortedResults;
+
+    // Bumped by every invalidation. A load that started before an invalidation is not stored,
+    // so a read racing with a write can never put pre-write data back into the cache.
+    private final AtomicLong generation = new AtomicLong();
+
+    public TodoTaskCache(@Value("${todolist.cache.max-tasks:10000}") long maxTasks,
+                         @Value("${todolist.cache.max-queries:1000}") long maxQueries,
+                         @Value("${todolist.cache.ttl:30s}") Duration ttl) {
+        this.tasksById = Caffeine.newBuilder().maximumSize(maxTasks).expireAfterWrite(ttl).recordStats().build();
+        this.filterResults = Caffeine.newBuilder().maximumSize(maxQueries).expireAfterWrite(ttl).recordStats().build();
+        this.sortedResults = Caffeine.newBuilder().maximumSize(maxQueries).expireAfterWrite(ttl).recordStats().build();
+    }
+
+    // Task by ID; only found tasks are cached
+    public Optional<TodoTask> findById(Long id, Function<Long, Optional<TodoTask>> loader) {
+        TodoTask cached = tasksById.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long loadedAt = generation.get();
+        Optional<TodoTask> loaded = loader.apply(id);
+        loaded.ifPresent(task -> putIfCurrent(tasksById, id, task, loadedAt));
+        return loaded;
+    }
+
+    // Filter result for the given filter values (stored as an unmodifiable list)
+    public List<TodoTask> filter(FilterKey key, Supplier<List<TodoTask>> loader) {
+        return readThrough(filterResults, key, () -> List.copyOf(loader.get()));
+    }
+
+    // Sorted or paged result; key must be a value object (e.g. a record) describing the query
+    @SuppressWarnings("unchecked")
+    public <T> T sorted(Object key, Supplier<T> loader) {
+        return (T) readThrough(sortedResults, key, loader::get);
+    }
+
+    // A task was added (before == null), updated, or deleted (after == null)
+    public void taskChanged(Long id, FilterKey before, FilterKey after) {
+        generation.incrementAndGet();
+        if (id != null) {
+            tasksById.invalidate(id);
+        }
+        filterResults.asMap().keySet().removeIf(key ->
+                (before != null && key.matches(before)) || (after != null && key.matches(after)));
+        sortedResults.invalidateAll();
+    }
+
+    // Many tasks were added at once
+    public void tasksAdded(Collection<FilterKey> states) {
+        generation.incrementAndGet();
+        filterResults.asMap().keySet().removeIf(key -> states.stream().anyMatch(key::matches));
+        sortedResults.invalidateAll();
+    }
+
+    // A task was deleted without its previous values being known
+    public void taskRemoved(Long id) {
+        generation.incrementAndGet();
+        tasksById.invalidate(id);
+        filterResults.invalidateAll();
+        sortedResults.invalidateAll();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        tasksById.invalidateAll();
+        filterResults.invalidateAll();
+        sortedResults.invalidateAll();
+    }
+
+    // Hit/miss/eviction counters per cache
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("tasksById", tasksById.stats());
+        stats.put("filterResults", filterResults.stats());
+        stats.put("sortedResults", sortedResults.stats());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, tasksById, "tasksById");
+        CaffeineCacheMetrics.monitor(registry, filterResults, "filterResults");
+        CaffeineCacheMetrics.monitor(registry, sortedResults, "sortedResults");
+    }
+
+    private <K, V> V readThrough(Cache<K, V> cache, K key, Supplier<V> loader) {
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        V loaded = loader.get();
+        putIfCurrent(cache, key, loaded, loadedAt);
+        return loaded;
+    }
+
+    private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, long loadedAt) {
+        if (value != null && generation.get() == loadedAt) {
+            cache.put(key, value);
+            if (generation.get() != loadedAt) {
+                cache.invalidate(key); // An invalidation slipped in between the check and the put
+            }
+        }
+    }
+}
@@ -1,14 +1,46 @@
 package com.jasmintkhan.todolist.service;
 
 import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskAttributes;
+import com.jasmintkhan.todolist.repository.TaskCursor;
+import com.jasmintkhan.todolist.repository.TaskFilter;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+import com.jasmintkhan.todolist.repository.TaskSortField;
+import com.jasmintkhan.todolist.repository.TaskSortIndex;
+import com.jasmintkhan.todolist.repository.TaskStatistics;
 import com.jasmintkhan.todolist.repository.TodoTaskRepository;
+import com.jasmintkhan.todolist.repository.TodoTaskSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,24 +50,123 @@ import java.util.stream.Stream;
 public class TodoTaskService {
 
     private final TodoTaskRepository todoTaskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TodoTaskCache cache;
+    private final ParallelBatches parallelBatches;
     private static final Logger LOGGER = Logger.getLogger(TodoTaskService.class.getName());
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int INDEX_LOAD_BATCH_SIZE = 1000;
+    private static final int INSERT_CHUNK_SIZE = 1000; // Tasks committed per transaction by addTasks
+    private static final int BULK_WRITE_BATCH_SIZE = 1000; // Task IDs per UPDATE or DELETE by patchTasks/deleteTasks
+    private static final int EXPORT_FETCH_SIZE = 500; // Rows fetched per round trip by exportTasks
+    private static final int MAX_UPDATE_ATTEMPTS = 3; // For an update without an expected version that keeps colliding
+    private static final ParallelBatches.Kind LOADING_BY_ID = new ParallelBatches.Kind();
+    private static final Duration READ_YOUR_WRITES_WAIT = Duration.ofMillis(100); // Then the read goes to the database
+    private static final Duration REBUILD_CATCH_UP_WAIT = Duration.ofSeconds(5); // For in-flight after-commit hooks
+
+    // The name, filter and sort indexes and the read model (see TaskReadSide). Loaded at startup and then kept
+    // current by this service's mutations, so writes that bypass the service are not reflected until a rebuild
+    // loads a new one. Until the first load, reads go to the database instead.
+    private final AtomicReference<TaskReadSide> readSide = new AtomicReference<>(new TaskReadSide());
+    private volatile boolean indexesLoaded;
+
+    // After-commit hooks apply their changes to the read side under the read lock; a rebuild takes the write lock
+    // to swap in the side it loaded. While one runs, the hooks also note the IDs they changed here.
+    private final ReentrantReadWriteLock readSideLock = new ReentrantReadWriteLock();
+    private Set<Long> changedDuringRebuild;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Set<Long> writesAwaitingRebuild = ConcurrentHashMap.newKeySet(); // Hooks waiting on rebuildLock
+    private static final ThreadLocal<Long> APPLYING_WRITE = new ThreadLocal<>(); // Set while a hook runs
+
+    // Writes committed but not applied to the read side yet, for read-your-writes reads (see readFromMemory)
+    private final PendingWrites pendingWrites = new PendingWrites();
+
+    // Moved on once every write has committed and the indexes and caches have caught up with it
+    private final AtomicReference<TaskTableVersion> tableVersion = new AtomicReference<>(TaskTableVersion.startingNow());
 
     @Autowired
-    public TodoTaskService(TodoTaskRepository todoTaskRepository) {
+    public TodoTaskService(TodoTaskRepository todoTaskRepository, PlatformTransactionManager transactionManager,
+                           TodoTaskCache cache, ParallelBatches parallelBatches) {
         this.todoTaskRepository = todoTaskRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cache = cache;
+        this.parallelBatches = parallelBatches;
+    }
+
+    // Keys for cached sorted and paged results
+    private record SortKey(TaskSortField sortField, boolean descending) {
+    }
+
+    private record PageKey(TaskSortField sortField, boolean descending, String cursor, int limit) {
+    }
+
+    private record TopKey(String filter, List<TaskSortField> order, boolean descending, int limit) {
+    }
+
+    // Receives the tasks of an export one at a time, e.g. writing each to the response
+    public interface TaskWriter {
+        void write(TodoTask task) throws IOException;
     }
 
     // Add a new task
+    @Transactional
     public TodoTask addTask(TodoTask task) {
         if (task == null) {
             LOGGER.severe("Attempted to add a null task.");
             throw new IllegalArgumentException("Task cannot be null");
         }
         LOGGER.info("Added a new task: " + task.getName());
-        return todoTaskRepository.save(task);
+        TodoTask saved = todoTaskRepository.save(task);
+        taskSaved(null, saved);
+        return saved;
+    }
+
+    // Add many tasks at once: JDBC batch inserts, committed in chunks of INSERT_CHUNK_SIZE.
+    // Tasks are consumed lazily, so a streamed source never has to fit in memory. If a task is
+    // invalid or a chunk fails, the chunks before it stay committed. Returns the number inserted.
+    public int addTasks(Iterable<TodoTask> tasks) {
+        if (tasks == null) {
+            LOGGER.severe("Attempted to add a null batch of tasks.");
+            throw new IllegalArgumentException("Tasks cannot be null");
+        }
+        int inserted = 0;
+        List<TodoTask> chunk = new ArrayList<>(INSERT_CHUNK_SIZE);
+        for (TodoTask task : tasks) {
+            if (task == null) {
+                LOGGER.severe("Attempted to add a null task in a batch after " + inserted + " tasks.");
+                throw new IllegalArgumentException("Task cannot be null");
+            }
+            chunk.add(task);
+            if (chunk.size() == INSERT_CHUNK_SIZE) {
+                inserted += insertChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            inserted += insertChunk(chunk);
+        }
+        LOGGER.info("Added a batch of tasks: " + inserted);
+        return inserted;
     }
 
-    // Delete a task by ID
+    private int insertChunk(List<TodoTask> chunk) {
+        List<TodoTask> tasks = List.copyOf(chunk);
+        transactionTemplate.executeWithoutResult(status -> {
+            todoTaskRepository.insertAll(tasks);
+            afterCommit(() -> {
+                applyToReadSide(tasks.stream().map(TodoTask::getID).toList(), side -> {
+                    tasks.forEach(side::put);
+                    return null;
+                });
+                cache.tasksAdded(tasks.stream().map(TodoTaskCache.FilterKey::of).collect(Collectors.toSet()));
+                tableChanged();
+            });
+        });
+        return tasks.size();
+    }
+
+    // Delete a task by ID, as one DELETE statement without loading the task first
+    @Transactional
     public void deleteTaskByID(Long id) {
         LOGGER.info("Attempting to delete task with ID: " + id);
 
@@ -45,18 +176,25 @@ public class TodoTaskService {
             throw new IllegalArgumentException("Task ID cannot be null.");
         }
 
-        // Check if task exists
-        if(!todoTaskRepository.existsById(id)) {
+        // Perform the delete operation; no row deleted means there was no such task
+        if (todoTaskRepository.deleteMatching(TaskFilter.id(id)) == 0) {
             LOGGER.warning("Delete operation failed: No task found with ID " + id);
             throw new IllegalArgumentException("No task found with ID: " + id);
         }
-
-        // Perform the delete operation
-        todoTaskRepository.deleteById(id);
+        afterCommit(() -> {
+            TaskAttributes before = applyToReadSide(List.of(id), side -> side.remove(id)); // Without loading it
+            if (before != null) {
+                cache.taskChanged(id, TodoTaskCache.FilterKey.of(before), null);
+            } else {
+                cache.taskRemoved(id);
+            }
+            tableChanged();
+        });
         LOGGER.info("Deleted task with ID: " + id);
     }
 
-    // Delete a task by name
+    // Delete a task by name (case-insensitive)
+    @Transactional
     public void deleteTaskByName(String name) {
         LOGGER.info("Attempting to delete task with name: " + name);
 
@@ -66,14 +204,16 @@ public class TodoTaskService {
             throw new IllegalArgumentException("Task name cannot be null or empty.");
         }
 
-        // Find and delete the task
-        List<TodoTask> tasks = todoTaskRepository.findAll();
-        Optional<TodoTask> taskToDelete = tasks.stream()
-                .filter(task -> task.getName().equalsIgnoreCase(name))
-                .findFirst();
+        // Find the task on the normalized name index, then delete it by ID without loading it
+        Long id = todoTaskRepository.findFirstIdByNormalizedName(TodoTask.normalizeName(name));
         
-        if(taskToDelete.isPresent()) {
-            todoTaskRepository.deleteById(taskToDelete.get().getID());
+        if(id != null) {
+            todoTaskRepository.deleteAllByIdInBatch(List.of(id));
+            afterCommit(() -> {
+                applyToReadSide(List.of(id), side -> side.remove(id));
+                cache.taskRemoved(id);
+                tableChanged();
+            });
             LOGGER.info("Deleted task with name: " + name);
         } else {
             LOGGER.warning("Delete operation failed: No task found with name " + name);
@@ -83,6 +223,7 @@ public class TodoTaskService {
 
 
     // Update a task by name
+    @Transactional
     public TodoTask updateTaskByName(String currentName, TodoTask updatedTask) {
         LOGGER.info("Attempting to update task: " + currentName);
     
@@ -98,9 +239,7 @@ public class TodoTaskService {
         TodoTask.Category newCategory = updatedTask.getCategory();
     
         // Check if the task with the given name exists
-        Optional<TodoTask> existingTaskOptional = todoTaskRepository.findAll().stream()
-                .filter(task -> task.getName().equals(currentName))
-                .findFirst();
+        Optional<TodoTask> existingTaskOptional = todoTaskRepository.findFirstByNameOrderByIDAsc(currentName);
     
         if (!existingTaskOptional.isPresent()) {
             LOGGER.warning("Update failed: No task found with name: " + currentName);
@@ -140,6 +279,7 @@ public class TodoTaskService {
         }
     
         // Update the task
+        TodoTaskCache.FilterKey before = TodoTaskCache.FilterKey.of(existingTask);
         existingTask.setName(newName);
         existingTask.setDescription(newDescription);
         existingTask.setDueDate(newDueDate);
@@ -148,12 +288,20 @@ public class TodoTaskService {
         existingTask.setCategory(newCategory);
     
         TodoTask updated = todoTaskRepository.save(existingTask);
+        taskSaved(before, updated);
         LOGGER.info("Task updated successfully: " + currentName + " to " + newName);
         return updated;
     }
     
     // Update a task by ID
     public Optional<TodoTask> updateTaskById(Long id, TodoTask updatedTask) {
+        return updateTaskById(id, updatedTask, null);
+    }
+
+    // Update a task by ID if it is still at one of the expected versions (e.g. from an If-Match header), throwing
+    // OptimisticLockingFailureException if it has moved on. Without expected versions the update overwrites
+    // whatever is there, retried if a concurrent update commits between reading and writing the task.
+    public Optional<TodoTask> updateTaskById(Long id, TodoTask updatedTask, Set<Long> expectedVersions) {
         LOGGER.info("Attempting to update task with ID: " + id);
 
         // Validate input task details
@@ -162,12 +310,147 @@ public class TodoTaskService {
             throw new IllegalArgumentException("Updated task cannot be null.");
         }
 
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> applyUpdate(id, updatedTask, expectedVersions));
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersions != null || attempt == MAX_UPDATE_ATTEMPTS) {
+                    LOGGER.warning("Update failed: Task with ID " + id + " was changed concurrently.");
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Patch a task by ID: sets only the fields present in the patch, with one UPDATE of those columns and without
+    // loading the task, so marking a task done writes a single column. With expected versions (e.g. from an
+    // If-Match header) only a task still at one of them is updated; OptimisticLockingFailureException is thrown
+    // if it has moved on. Returns false if there is no task with the ID.
+    @Transactional
+    public boolean patchTaskById(Long id, TaskPatch patch, Set<Long> expectedVersions) {
+        LOGGER.info("Attempting to patch task with ID: " + id);
+
+        if (id == null) {
+            LOGGER.warning("Patch failed: Provided task ID is null.");
+            throw new IllegalArgumentException("Task ID cannot be null.");
+        }
+        validatePatch(patch);
+
+        int updated = expectedVersions != null && expectedVersions.isEmpty()
+                ? 0 : todoTaskRepository.patch(id, patch, expectedVersions);
+        if (updated == 0) {
+            // Only now is it worth finding out which of the two it was
+            if (expectedVersions != null && todoTaskRepository.existsById(id)) {
+                LOGGER.warning("Patch failed: Task with ID " + id + " is not at an expected version.");
+                throw new OptimisticLockingFailureException("Task " + id + " is not at versions " + expectedVersions);
+            }
+            LOGGER.warning("Patch failed: No task found with ID: " + id);
+            return false;
+        }
+        afterCommit(() -> {
+            TaskAttributes before = applyToReadSide(List.of(id), side -> side.patch(id, patch));
+            if (before != null) {
+                cache.taskChanged(id, TodoTaskCache.FilterKey.of(before), TodoTaskCache.FilterKey.of(patch.applyTo(before)));
+            } else {
+                cache.taskRemoved(id); // Not indexed yet, so what it matched before is unknown
+            }
+            tableChanged();
+        });
+        LOGGER.info("Task patched successfully: Using task ID[" + id + "]");
+        return true;
+    }
+
+    // Patch every task matching the filter (e.g. id:4,8,15 or category:WORK and dueDate:..2024-06-30) and return
+    // how many tasks were updated. The matching rows are locked first, then updated by ID with set-based UPDATEs of
+    // the patched columns, so the read side is patched for exactly the rows the database changed.
+    @Transactional
+    public int patchTasks(TaskFilter filter, TaskPatch patch) {
+        LOGGER.info("Attempting to patch tasks matching: " + filter);
+        if (filter == null) {
+            LOGGER.severe("Attempted to patch tasks without a filter.");
+            throw new IllegalArgumentException("Filter cannot be null.");
+        }
+        validatePatch(patch);
+
+        List<Long> ids = todoTaskRepository.lockMatchingIds(filter);
+        int updated = writeByIds(ids, byIds -> todoTaskRepository.patchMatching(byIds, patch));
+        afterCommit(() -> bulkChanged(ids, updated, (side, id) -> side.patch(id, patch)));
+        LOGGER.info("Number of tasks patched: " + updated);
+        return updated;
+    }
+
+    // Delete every task matching the filter (e.g. completed:true and dueDate:..2024-06-30) and return how many tasks
+    // were deleted. Like patchTasks, it locks the matching rows and deletes them by ID.
+    @Transactional
+    public int deleteTasks(TaskFilter filter) {
+        LOGGER.info("Attempting to delete tasks matching: " + filter);
+        if (filter == null) {
+            LOGGER.severe("Attempted to delete tasks without a filter.");
+            throw new IllegalArgumentException("Filter cannot be null.");
+        }
+
+        List<Long> ids = todoTaskRepository.lockMatchingIds(filter);
+        int deleted = writeByIds(ids, todoTaskRepository::deleteMatching);
+        afterCommit(() -> bulkChanged(ids, deleted, TaskReadSide::remove));
+        LOGGER.info("Number of tasks deleted: " + deleted);
+        return deleted;
+    }
+
+    // Runs a set-based write over the given IDs, BULK_WRITE_BATCH_SIZE IDs per statement, and returns the number of
+    // rows it changed
+    private static int writeByIds(List<Long> ids, ToIntFunction<TaskFilter> write) {
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += BULK_WRITE_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + BULK_WRITE_BATCH_SIZE, ids.size()));
+            affected += write.applyAsInt(TaskFilter.id(batch.toArray(Long[]::new)));
+        }
+        return affected;
+    }
+
+    // Validates a patch like a full update, for the fields it sets
+    private static void validatePatch(TaskPatch patch) {
+        if (patch == null || patch.setsNothing()) {
+            LOGGER.severe("Attempted to patch a task without any fields.");
+            throw new IllegalArgumentException("Patch must set at least one field.");
+        }
+        if (patch.name() != null && patch.name().trim().isEmpty()) {
+            LOGGER.severe("Attempted to patch with an empty task name.");
+            throw new IllegalArgumentException("Task name cannot be empty.");
+        }
+        if (patch.dueDate() != null && patch.dueDate().isBefore(LocalDate.now())) {
+            LOGGER.severe("Attempted to patch with a due date in the past.");
+            throw new IllegalArgumentException("Due date cannot be in the past.");
+        }
+    }
+
+    // Catches the indexes up with a committed bulk write: task by task for the locked IDs when the database changed
+    // every one of them, otherwise (which the locks should rule out) by rebuilding them
+    private void bulkChanged(List<Long> ids, int affected, BiConsumer<TaskReadSide, Long> update) {
+        if (ids.size() == affected) {
+            applyToReadSide(ids, side -> {
+                ids.forEach(id -> update.accept(side, id));
+                return null;
+            });
+        } else {
+            LOGGER.warning("Bulk write changed " + affected + " of the " + ids.size() + " tasks it locked;"
+                    + " rebuilding the indexes.");
+            rebuildIndexes();
+        }
+        cache.invalidateAll();
+        tableChanged();
+    }
+
+    private Optional<TodoTask> applyUpdate(Long id, TodoTask updatedTask, Set<Long> expectedVersions) {
         // Check if the task with the given ID exists
         Optional<TodoTask> taskOptional = todoTaskRepository.findById(id);
         if (taskOptional.isPresent()) {
             TodoTask task = taskOptional.get();
+            if (expectedVersions != null && !expectedVersions.contains(task.getVersion())) {
+                throw new OptimisticLockingFailureException("Task " + id + " is at version " + task.getVersion());
+            }
 
             // Update the task
+            TodoTaskCache.FilterKey before = TodoTaskCache.FilterKey.of(task);
             task.setName(updatedTask.getName());
             task.setDescription(updatedTask.getDescription());
             task.setDueDate(updatedTask.getDueDate());
@@ -176,6 +459,7 @@ public class TodoTaskService {
             task.setCategory(updatedTask.getCategory());
 
             TodoTask updated = todoTaskRepository.save(task);
+            taskSaved(before, updated);
             LOGGER.info("Task updated successfully: Using task ID[" + id + "]");
 
             return Optional.of(updated);
@@ -196,9 +480,11 @@ public class TodoTaskService {
         }
         
         // Perform the filtering
-        List<TodoTask> filteredTasks = todoTaskRepository.findAll().stream()
-                    .filter(task -> task.getPriority() == priority)
-                    .collect(Collectors.toList());
+        List<TodoTask> filteredTasks = matchingFromMemory(TaskFilter.priority(priority));
+        if (filteredTasks == null) {
+            filteredTasks = cache.filter(new TodoTaskCache.FilterKey(priority, null, null, null),
+                    () -> todoTaskRepository.findByPriority(priority));
+        }
         
         // Log the results
         LOGGER.info("Number of tasks found with priority " + priority + ": " + filteredTasks.size());
@@ -216,9 +502,11 @@ public class TodoTaskService {
         }
 
         // Perform the filtering
-        List<TodoTask> filteredTasks = todoTaskRepository.findAll().stream()
-                    .filter(task -> task.getCategory() == category)
-                    .collect(Collectors.toList());
+        List<TodoTask> filteredTasks = matchingFromMemory(TaskFilter.category(category));
+        if (filteredTasks == null) {
+            filteredTasks = cache.filter(new TodoTaskCache.FilterKey(null, category, null, null),
+                    () -> todoTaskRepository.findByCategory(category));
+        }
 
         // Log the results
         LOGGER.info("Number of tasks found with category " + category + ": " + filteredTasks.size());
@@ -236,9 +524,11 @@ public class TodoTaskService {
         }
 
         // Perform the filtering
-        List<TodoTask> filteredTasks = todoTaskRepository.findAll().stream()
-                    .filter(task -> task.getDueDate() != null && task.getDueDate().equals(dueDate))
-                    .collect(Collectors.toList());
+        List<TodoTask> filteredTasks = matchingFromMemory(TaskFilter.dueDate(dueDate));
+        if (filteredTasks == null) {
+            filteredTasks = cache.filter(new TodoTaskCache.FilterKey(null, null, dueDate, null),
+                    () -> todoTaskRepository.findByDueDate(dueDate));
+        }
 
         // Log the results
         LOGGER.info("Number of tasks found with due date " + dueDate + ": " + filteredTasks.size());
@@ -248,38 +538,124 @@ public class TodoTaskService {
     // Filters tasks by completion status
     public List<TodoTask> filterTasksByCompletionStatus(boolean isCompleted) {
         LOGGER.info("Filtering tasks by completion status: " + isCompleted);
-        List<TodoTask> filteredTasks = todoTaskRepository.findAll().stream()
-                .filter(task -> task.isCompleted() == isCompleted)
-                .collect(Collectors.toList());
+        List<TodoTask> filteredTasks = matchingFromMemory(TaskFilter.completed(isCompleted));
+        if (filteredTasks == null) {
+            filteredTasks = cache.filter(new TodoTaskCache.FilterKey(null, null, null, isCompleted),
+                    () -> todoTaskRepository.findByIsCompleted(isCompleted));
+        }
         LOGGER.info("Number of tasks found: " + filteredTasks.size());
         return filteredTasks;
     }
 
+    // Filters tasks by any combination of priority, category, due date and completion status.
+    // Null arguments are ignored; the rest are combined with AND.
     public List<TodoTask> filterTasks(TodoTask.Priority priority, TodoTask.Category category, LocalDate dueDate, Boolean isCompleted) {
-        Stream<TodoTask> taskStream = todoTaskRepository.findAll().stream();
-    
+        LOGGER.info("Filtering tasks by priority: " + priority + ", category: " + category
+                + ", due date: " + dueDate + ", completion status: " + isCompleted);
+        List<TaskFilter> conditions = new ArrayList<>();
         if (priority != null) {
-            taskStream = taskStream.filter(task -> task.getPriority() == priority);
+            conditions.add(TaskFilter.priority(priority));
         }
         if (category != null) {
-            taskStream = taskStream.filter(task -> task.getCategory() == category);
+            conditions.add(TaskFilter.category(category));
         }
         if (dueDate != null) {
-            taskStream = taskStream.filter(task -> task.getDueDate().equals(dueDate));
+            conditions.add(TaskFilter.dueDate(dueDate));
         }
         if (isCompleted != null) {
-            taskStream = taskStream.filter(task -> task.isCompleted() == isCompleted);
+            conditions.add(TaskFilter.completed(isCompleted));
         }
-    
-        return taskStream.collect(Collectors.toList());
+        List<TodoTask> filteredTasks = conditions.isEmpty()
+                ? null : matchingFromMemory(TaskFilter.and(conditions.toArray(new TaskFilter[0])));
+        if (filteredTasks == null) {
+            filteredTasks = cache.filter(new TodoTaskCache.FilterKey(priority, category, dueDate, isCompleted),
+                    () -> conditions.isEmpty()
+                            ? todoTaskRepository.findAll(TodoTaskSpecifications.matching(priority, category, dueDate, isCompleted))
+                            : findMatching(TaskFilter.and(conditions.toArray(new TaskFilter[0]))));
+        }
+        LOGGER.info("Number of tasks found: " + filteredTasks.size());
+        return filteredTasks;
+    }
+
+    // Filters tasks by any and/or/not combination of conditions (see TaskFilter.parse), in ID order
+    public List<TodoTask> filterTasks(TaskFilter filter) {
+        LOGGER.info("Filtering tasks by: " + filter);
+        if (filter == null) {
+            LOGGER.severe("Attempted to filter by a null filter.");
+            throw new IllegalArgumentException("Filter cannot be null.");
+        }
+        List<TodoTask> filteredTasks = findMatching(filter);
+        LOGGER.info("Number of tasks found: " + filteredTasks.size());
+        return filteredTasks;
+    }
+
+    // Finds the matching IDs with bitmap operations on the filter index and takes those tasks from the read model,
+    // or else loads them by primary key; runs the filter as one WHERE clause if the index isn't loaded yet.
+    // Loaded tasks are checked again, so a write the index hasn't caught up with never produces a wrong result.
+    private List<TodoTask> findMatching(TaskFilter filter) {
+        List<TodoTask> fromMemory = matchingFromMemory(filter);
+        if (fromMemory != null) {
+            return fromMemory;
+        }
+        List<Long> ids = indexesLoaded ? readSide.get().filters().search(filter) : null;
+        if (ids == null) {
+            return todoTaskRepository.findPage(TodoTaskSpecifications.matching(filter), TaskSortField.ID, false, null, null);
+        }
+        List<TodoTask> tasks = loadInOrder(ids);
+        tasks.removeIf(task -> !filter.matches(task));
+        return tasks;
+    }
+
+    // The tasks matching the filter, in ID order, from the filter index and the read model; null if they can't
+    // answer the read. They are checked again in case a write reached the index but not yet the read model.
+    private List<TodoTask> matchingFromMemory(TaskFilter filter) {
+        TaskReadSide side = readFromMemory();
+        List<Long> ids = side != null ? side.filters().search(filter) : null;
+        if (ids == null) {
+            return null;
+        }
+        List<TodoTask> tasks = side.rows().get(ids);
+        tasks.removeIf(task -> !filter.matches(task));
+        return tasks;
+    }
+
+    // The read side to answer a read from, or null if it has to go to the database: once it has been loaded, and for
+    // a read-your-writes read (see ReadConsistency) once the writes committed before it have been applied to it.
+    // If that takes longer than READ_YOUR_WRITES_WAIT (e.g. a rebuild holds them up), it goes to the database.
+    private TaskReadSide readFromMemory() {
+        boolean current = indexesLoaded && (ReadConsistency.current() == ReadConsistency.EVENTUAL
+                || pendingWrites.awaitCommitted(READ_YOUR_WRITES_WAIT));
+        return current ? readSide.get() : null;
+    }
+
+    // Loads the tasks with the given IDs by primary key in the IDs' order, leaving out any that no longer exist.
+    // Many IDs are loaded in batches, on several threads when that pays off (ParallelBatches).
+    private List<TodoTask> loadInOrder(List<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += INDEX_LOAD_BATCH_SIZE) {
+            batches.add(ids.subList(from, Math.min(from + INDEX_LOAD_BATCH_SIZE, ids.size())));
+        }
+        List<List<TodoTask>> loaded = parallelBatches.map(LOADING_BY_ID, batches, ids.size(), batch -> {
+            Map<Long, TodoTask> byId = new HashMap<>();
+            todoTaskRepository.findAllById(batch).forEach(task -> byId.put(task.getID(), task));
+            List<TodoTask> tasks = new ArrayList<>(batch.size());
+            for (Long id : batch) {
+                TodoTask task = byId.get(id);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+            return tasks;
+        });
+        List<TodoTask> tasks = new ArrayList<>(ids.size());
+        loaded.forEach(tasks::addAll);
+        return tasks;
     }
     
     // Sorts tasks by priority
     public List<TodoTask> sortTasksByPriority() {
         LOGGER.info("Sorting tasks by priority.");
-        List<TodoTask> sortedTasks = todoTaskRepository.findAll().stream()
-                .sorted(Comparator.comparing(TodoTask::getPriority, Comparator.nullsLast(Enum::compareTo)))
-                .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = sortAll(TaskSortField.PRIORITY, false);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
@@ -287,9 +663,7 @@ public class TodoTaskService {
     // Sorts tasks by category
     public List<TodoTask> sortTasksByCategory() {
         LOGGER.info("Sorting tasks by category.");
-        List<TodoTask> sortedTasks = todoTaskRepository.findAll().stream()
-                .sorted(Comparator.comparing(TodoTask::getCategory, Comparator.nullsLast(Enum::compareTo)))
-                .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = sortAll(TaskSortField.CATEGORY, false);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
@@ -297,9 +671,7 @@ public class TodoTaskService {
     // Sorts tasks by due date
     public List<TodoTask> sortTasksByDueDate() {
         LOGGER.info("Sorting tasks by due date.");
-        List<TodoTask> sortedTasks = todoTaskRepository.findAll().stream()
-                .sorted(Comparator.comparing(TodoTask::getDueDate, Comparator.nullsLast(LocalDate::compareTo)))
-                .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = sortAll(TaskSortField.DUE_DATE, false);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
@@ -307,50 +679,179 @@ public class TodoTaskService {
     // Sorts tasks by name
     public List<TodoTask> sortTasksByName() {
         LOGGER.info("Sorting tasks by name.");
-        List<TodoTask> sortedTasks = todoTaskRepository.findAll().stream()
-                .sorted(Comparator.comparing(TodoTask::getName, Comparator.nullsLast(String::compareTo)))
-                .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = sortAll(TaskSortField.NAME, false);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
 
+    // Sorts all tasks by name, due date, priority, category or ID (ORDER BY <field>, ID)
     public List<TodoTask> sortTasks(String sortBy, String order) {
-        List<TodoTask> tasks = findAllTasks(); // Assuming you have a method to get all tasks
-    
-        Comparator<TodoTask> comparator;
-        switch (sortBy.toLowerCase()) {
-            case "priority":
-                comparator = Comparator.comparing(TodoTask::getPriority);
-                break;
-            case "category":
-                comparator = Comparator.comparing(TodoTask::getCategory);
-                break;
-            case "duedate":
-                comparator = Comparator.comparing(TodoTask::getDueDate);
-                break;
-            case "name":
-                comparator = Comparator.comparing(TodoTask::getName);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid sort criteria: " + sortBy);
+        TaskSortField sortField = TaskSortField.fromParameter(sortBy);
+        return sortAll(sortField, "desc".equalsIgnoreCase(order));
+    }
+
+    private List<TodoTask> sortAll(TaskSortField sortField, boolean descending) {
+        TaskReadSide side = readFromMemory();
+        if (side != null) {
+            return side.rows().get(side.sorts().ids(sortField, descending, null, null));
         }
-    
-        if ("desc".equalsIgnoreCase(order)) {
-            comparator = comparator.reversed();
+        return cache.sorted(new SortKey(sortField, descending), () -> List.copyOf(findSorted(sortField, descending, null, null)));
+    }
+
+    // Up to limit tasks (all if null) in the given order after the cursor. Reads the order off the sort index and
+    // loads the tasks by primary key, so the database never sorts. If a task is missing, out of order or (for all
+    // tasks) not in the index yet because a write hasn't reached the index, the database does the sorting instead.
+    private List<TodoTask> findSorted(TaskSortField sortField, boolean descending, TaskCursor after, Integer limit) {
+        if (indexesLoaded) {
+            List<Long> ids = readSide.get().sorts().ids(sortField, descending, after, limit);
+            List<TodoTask> sorted = loadInOrder(ids);
+            Comparator<TodoTask> order = TaskSortIndex.order(sortField, descending);
+            boolean inOrder = sorted.size() == ids.size();
+            for (int i = 1; i < sorted.size() && inOrder; i++) {
+                inOrder = order.compare(sorted.get(i - 1), sorted.get(i)) <= 0;
+            }
+            if (inOrder && (limit != null || todoTaskRepository.count() == ids.size())) {
+                return sorted;
+            }
+            LOGGER.info("Sort index is behind the database; sorting by " + sortField + " in the database.");
         }
-    
-        return tasks.stream().sorted(comparator).collect(Collectors.toList());
+        return todoTaskRepository.findPage(null, sortField, descending, after, limit);
+    }
+
+    // Returns one page of tasks sorted by sortBy/order, resuming after the given cursor (null for the first page).
+    // Uses keyset pagination, so each page costs the same no matter how deep into the table it is.
+    public TaskPage findTasksPage(String sortBy, String order, String cursor, int limit) {
+        LOGGER.info("Fetching a page of " + limit + " tasks sorted by " + sortBy + " " + order + ".");
+
+        // Validate the page size
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            LOGGER.warning("Page size out of range: " + limit);
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        TaskSortField sortField = TaskSortField.fromParameter(sortBy);
+        boolean descending = "desc".equalsIgnoreCase(order);
+
+        // A cursor is only valid for the ordering it was issued for
+        TaskCursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = TaskCursor.decode(cursor);
+            if (after.sortField() != sortField || after.descending() != descending) {
+                LOGGER.warning("Cursor does not match sort order " + sortBy + " " + order);
+                throw new IllegalArgumentException("Cursor does not match the requested sort order.");
+            }
+        }
+
+        // Fetch one extra task to find out whether another page follows
+        TaskCursor start = after;
+        TaskReadSide side = readFromMemory();
+        TaskPage page = side != null
+                ? pageOf(side.rows().get(side.sorts().ids(sortField, descending, after, limit + 1)), sortField, descending, limit)
+                : cache.sorted(new PageKey(sortField, descending, cursor, limit),
+                        () -> pageOf(findSorted(sortField, descending, start, limit + 1), sortField, descending, limit));
+
+        LOGGER.info("Number of tasks retrieved: " + page.tasks().size());
+        return page;
+    }
+
+    // The first limit of the tasks as a page, with a cursor for the next page if there are more
+    private static TaskPage pageOf(List<TodoTask> tasks, TaskSortField sortField, boolean descending, int limit) {
+        String nextCursor = null;
+        if (tasks.size() > limit) {
+            tasks = tasks.subList(0, limit);
+            nextCursor = TaskCursor.after(tasks.get(limit - 1), sortField, descending).encode();
+        }
+        return new TaskPage(List.copyOf(tasks), nextCursor);
+    }
+
+    // Returns the first tasks (up to limit) matching the filter (null for all), ordered by each field in turn and
+    // then ID, e.g. the next open tasks due by due date and then priority. Runs as one ORDER BY ... LIMIT query,
+    // so the database keeps just the first limit rows as it goes instead of sorting every match.
+    public List<TodoTask> findTopTasks(TaskFilter filter, List<TaskSortField> order, boolean descending, int limit) {
+        LOGGER.info("Fetching the first " + limit + " tasks by " + order + (descending ? " descending" : "")
+                + (filter == null ? "" : " matching " + filter) + ".");
+
+        // Validate the limit and ordering
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            LOGGER.warning("Limit out of range: " + limit);
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (order == null || order.isEmpty() || order.contains(null)) {
+            LOGGER.warning("Attempted to fetch top tasks without a sort order.");
+            throw new IllegalArgumentException("Sort fields cannot be null or empty.");
+        }
+
+        List<TaskSortField> fields = List.copyOf(order);
+        List<TodoTask> tasks = topFromMemory(filter, fields, descending, limit);
+        if (tasks == null) {
+            tasks = cache.sorted(new TopKey(filter == null ? null : filter.toString(), fields, descending, limit),
+                    () -> List.copyOf(todoTaskRepository.findTop(
+                            filter == null ? null : TodoTaskSpecifications.matching(filter), fields, descending, limit)));
+        }
+
+        LOGGER.info("Number of tasks retrieved: " + tasks.size());
+        return tasks;
+    }
+
+    // findTopTasks from the indexes and the read model, or null if they can't answer the read. Without a filter,
+    // one field's order is read straight off the sort index; otherwise only the first limit tasks are kept while
+    // going through the candidates.
+    private List<TodoTask> topFromMemory(TaskFilter filter, List<TaskSortField> order, boolean descending, int limit) {
+        if (filter != null) {
+            List<TodoTask> matching = matchingFromMemory(filter);
+            return matching == null ? null : TaskReadModel.first(matching, TaskSortIndex.order(order, descending), limit);
+        }
+        TaskReadSide side = readFromMemory();
+        if (side == null) {
+            return null;
+        }
+        if (order.size() == 1) {
+            return side.rows().get(side.sorts().ids(order.get(0), descending, null, limit));
+        }
+        return TaskReadModel.first(side.rows().all(), TaskSortIndex.order(order, descending), limit);
     }
-    
 
     // Find all tasks: RETURNS ALL TASKS
     public List<TodoTask> findAllTasks() {
         LOGGER.info("Fetching all tasks.");
-        List<TodoTask> tasks = todoTaskRepository.findAll();
+        List<TodoTask> tasks = sortAll(TaskSortField.ID, false);
         LOGGER.info("Number of tasks retrieved: " + tasks.size());
         return tasks;
     }
 
+    // Export all tasks: hands every task, in ID order, to the writer as it is read and returns how many there were.
+    // The rows come off one forward-only cursor inside a repeatable-read transaction, so the export sees the table
+    // as it was when it started, and only one fetch of rows is held in memory however big the table is.
+    // The transaction (and its connection) stays open until the writer has taken the last task.
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long exportTasks(TaskWriter writer) throws IOException {
+        LOGGER.info("Exporting all tasks.");
+        long exported = 0;
+        try (Stream<TodoTask> tasks = todoTaskRepository.streamAll(EXPORT_FETCH_SIZE)) {
+            for (TodoTask task : (Iterable<TodoTask>) tasks::iterator) {
+                writer.write(task);
+                exported++;
+            }
+        }
+        LOGGER.info("Number of tasks exported: " + exported);
+        return exported;
+    }
+
+    // The version of the task with the ID, or empty if there is none. Taken from the read model, or else read on
+    // its own without loading the task, so a conditional GET can be answered before the task is read.
+    public Optional<Long> findTaskVersion(Long id) {
+        if (id == null) {
+            LOGGER.warning("Task ID provided is null.");
+            throw new IllegalArgumentException("Task ID cannot be null.");
+        }
+
+        TaskReadSide side = readFromMemory();
+        if (side != null) {
+            return side.rows().get(id).map(TodoTask::getVersion);
+        }
+        return todoTaskRepository.findVersionById(id);
+    }
+
     // Find a task by ID: FIND IS SPECIFIC TO A TASK
     public Optional<TodoTask> findTaskById(Long id) {
         LOGGER.info("Searching for task with ID: " + id);
@@ -361,7 +862,11 @@ public class TodoTaskService {
             throw new IllegalArgumentException("Task ID cannot be null.");
         }
         
-        return todoTaskRepository.findById(id);
+        TaskReadSide side = readFromMemory();
+        if (side != null) {
+            return side.rows().get(id);
+        }
+        return cache.findById(id, todoTaskRepository::findById);
     }
     
 
@@ -375,16 +880,203 @@ public class TodoTaskService {
             throw new IllegalArgumentException("Search query cannot be null or empty.");
         }
 
-        // Perform the search
-        String lowerCaseQuery = query.toLowerCase();
-        List<TodoTask> searchResults = todoTaskRepository.findAll().stream()
-                .filter(task -> task.getName().toLowerCase().contains(lowerCaseQuery))
-                .collect(Collectors.toList());
+        // Find matching IDs in the trigram index, then take just those tasks from the read model. If the index isn't
+        // loaded, or hasn't caught up with the writes this read must see, it could miss or wrongly match tasks, so
+        // the database is searched instead.
+        TaskReadSide side = readFromMemory();
+        List<TodoTask> searchResults = side != null ? side.rows().get(side.names().search(query))
+                : todoTaskRepository.searchByNormalizedName(TodoTask.normalizeName(query));
 
         // Log the results
         LOGGER.info("Number of tasks found containing '" + query + "': " + searchResults.size());
         return searchResults;
     }
 
+    // Builds the name search, filter and sort indexes and the read model from the database, one keyset page at a
+    // time, into a new read side, and swaps it in once it has caught up with the writes committed meanwhile. Reads
+    // keep going to the old side until then. Writes whose after-commit hooks ran during the load are caught up with
+    // by loading their tasks again, after waiting for every hook of a write the load may have seen.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndexes() {
+        Long applying = APPLYING_WRITE.get(); // A bulk write's hook that found the indexes behind
+        if (applying != null) {
+            writesAwaitingRebuild.add(applying); // So a rebuild already running doesn't wait for it in turn
+        }
+        rebuildLock.lock();
+        try {
+            LOGGER.info("Building the task name search, filter and sort indexes.");
+            Set<Long> changed = ConcurrentHashMap.newKeySet();
+            readSideLock.writeLock().lock();
+            try {
+                changedDuringRebuild = changed;
+            } finally {
+                readSideLock.writeLock().unlock();
+            }
+            try {
+                TaskReadSide loaded = new TaskReadSide();
+                TaskCursor after = null;
+                List<TodoTask> batch;
+                do {
+                    batch = todoTaskRepository.findPage(null, TaskSortField.ID, false, after, INDEX_LOAD_BATCH_SIZE);
+                    batch.forEach(loaded::put);
+                    if (!batch.isEmpty()) {
+                        after = TaskCursor.after(batch.get(batch.size() - 1), TaskSortField.ID, false);
+                    }
+                } while (batch.size() == INDEX_LOAD_BATCH_SIZE);
+                while (true) {
+                    // Every write the load (or reload) could have seen now has its IDs in changed
+                    if (!pendingWrites.awaitCommitted(REBUILD_CATCH_UP_WAIT, writesAwaitingRebuild)) {
+                        LOGGER.warning("After-commit hooks are still running; the rebuilt indexes may miss their writes.");
+                    }
+                    List<Long> reload;
+                    readSideLock.writeLock().lock();
+                    try {
+                        if (changed.isEmpty()) {
+                            readSide.set(loaded);
+                            changedDuringRebuild = null;
+                            break;
+                        }
+                        reload = List.copyOf(changed);
+                        changed.clear();
+                    } finally {
+                        readSideLock.writeLock().unlock();
+                    }
+                    List<TodoTask> found = loadInOrder(reload);
+                    reload.forEach(loaded::remove);
+                    found.forEach(loaded::put);
+                }
+            } finally {
+                readSideLock.writeLock().lock();
+                changedDuringRebuild = null; // Already so unless the load failed
+                readSideLock.writeLock().unlock();
+            }
+            indexesLoaded = true;
+            tableChanged(); // The rebuild may have picked up writes made behind the service's back
+            LOGGER.info("Rebuilt the read side; " + readSide.get());
+        } finally {
+            rebuildLock.unlock();
+            if (applying != null) {
+                writesAwaitingRebuild.remove(applying);
+            }
+        }
+    }
+
+    // Applies an after-commit hook's change to the current read side, noting the IDs it changed for a rebuild
+    // that is loading a new one
+    private <T> T applyToReadSide(Collection<Long> ids, Function<TaskReadSide, T> change) {
+        readSideLock.readLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(ids);
+            }
+            return change.apply(readSide.get());
+        } finally {
+            readSideLock.readLock().unlock();
+        }
+    }
+
+    // Task counts by priority, category and completion status, and how many open tasks are overdue. Read from
+    // the counters the filter index keeps with every mutation, so it costs the same for any number of tasks.
+    // Until the index has been loaded, the database counts them instead.
+    public TaskStatistics getStatistics() {
+        LOGGER.info("Fetching task statistics.");
+        LocalDate today = LocalDate.now();
+        TaskStatistics statistics = indexesLoaded ? readSide.get().filters().statistics(today) : null;
+        return statistics != null ? statistics : countStatistics(today);
+    }
+
+    // Counts the tasks in the database and checks the maintained counters against them, rebuilding the indexes
+    // if they have drifted (e.g. after writes that bypassed this service). Returns the database's counts.
+    // A write committed between the two reads makes them differ too, which costs an unneeded rebuild.
+    public TaskStatistics reconcileStatistics() {
+        LOGGER.info("Reconciling task statistics with the database.");
+        LocalDate today = LocalDate.now();
+        TaskStatistics maintained = indexesLoaded ? readSide.get().filters().statistics(today) : null;
+        TaskStatistics counted = countStatistics(today);
+        if (maintained != null && !maintained.equals(counted)) {
+            LOGGER.warning("Task statistics have drifted from the database: " + maintained + " instead of " + counted);
+            rebuildIndexes();
+        }
+        return counted;
+    }
+
+    // GROUP BY counts, read in one transaction so they agree with each other
+    private TaskStatistics countStatistics(LocalDate today) {
+        return transactionTemplate.execute(status -> TaskStatistics.fromGroups(
+                today, todoTaskRepository.countGroups(), todoTaskRepository.countOverdue(today)));
+    }
+
+    // The task table's change counter, for tagging responses that can be revalidated without reading tasks
+    public TaskTableVersion tableVersion() {
+        return tableVersion.get();
+    }
+
+    // Hit/miss/eviction counters of the read cache, per cache
+    public Map<String, Map<String, Number>> cacheStats() {
+        Map<String, Map<String, Number>> stats = new LinkedHashMap<>();
+        cache.stats().forEach((name, cacheStats) -> stats.put(name, Map.of(
+                "hits", cacheStats.hitCount(),
+                "misses", cacheStats.missCount(),
+                "evictions", cacheStats.evictionCount(),
+                "hitRate", cacheStats.hitRate())));
+        return stats;
+    }
+
+    // Updates the name, filter and sort indexes and invalidates cached reads once a saved task is committed
+    private void taskSaved(TodoTaskCache.FilterKey before, TodoTask task) {
+        TodoTaskCache.FilterKey after = TodoTaskCache.FilterKey.of(task);
+        afterCommit(() -> {
+            if (task.getID() != null) { // Never saved, e.g. by a mocked repository
+                applyToReadSide(List.of(task.getID()), side -> {
+                    side.put(task);
+                    return null;
+                });
+            }
+            cache.taskChanged(task.getID(), before, after);
+            tableChanged();
+        });
+    }
+
+    // Called last in every write's after-commit hook, so nothing tagged with the new counter can come from an
+    // index or cache that hasn't caught up with the write yet
+    private void tableChanged() {
+        tableVersion.updateAndGet(TaskTableVersion::next);
+    }
+
+    // Runs an in-memory index update once the surrounding transaction commits (or right away without one),
+    // so a rolled-back write never shows up in the index. pendingWrites is told when the write starts committing
+    // and when it has been applied, for reads that have to wait for it.
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private long write; // Its number with pendingWrites, once it is committing
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write = pendingWrites.committing();
+                }
+
+                @Override
+                public void afterCommit() {
+                    APPLYING_WRITE.set(write);
+                    try {
+                        action.run();
+                    } finally {
+                        APPLYING_WRITE.remove();
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (write != 0) {
+                        pendingWrites.applied(write);
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
 
 }
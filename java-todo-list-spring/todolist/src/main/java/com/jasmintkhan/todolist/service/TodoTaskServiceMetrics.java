@@ -0,0 +1,74 @@
+package com.jasmintkhan.todolist.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// Records a latency timer and a result-size distribution for every public TodoTaskService method.
+// Timers are tagged with the operation (method name), outcome (success/error) and exception class;
+// result sizes are tagged with the operation. HTTP endpoints are timed by Spring Boot (http.server.requests).
+@Aspect
+@Component
+public class TodoTaskServiceMetrics {
+
+    static final String OPERATION_TIMER = "todolist.service.operation";
+    static final String RESULT_SIZE = "todolist.service.result.size";
+
+    private final MeterRegistry registry;
+
+    public TodoTaskServiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.jasmintkhan.todolist.service.TodoTaskService.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "success";
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            Integer size = resultSize(result);
+            if (size != null) {
+                DistributionSummary.builder(RESULT_SIZE)
+                        .description("Number of tasks returned by a TodoTaskService operation")
+                        .tag("operation", operation)
+                        .register(registry)
+                        .record(size);
+            }
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(OPERATION_TIMER)
+                    .description("Latency of TodoTaskService operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+
+    // Number of tasks in a result, or null for results that are not task collections
+    private static Integer resultSize(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof TaskPage page) {
+            return page.tasks().size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,361 @@
+package com.jasmintkhan.todolist.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TodoTaskRepository;
+import com.jasmintkhan.todolist.service.TodoTaskService;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TodoTaskControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TodoTaskRepository repository;
+
+    @Autowired
+    private TodoTaskService service;
+
+    private final String dueDate = LocalDate.now().plusDays(1).toString();
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAllInBatch();
+        service.rebuildIndexes(); // The rows were deleted behind the service's back
+    }
+
+    private String taskJson(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"Imported\",\"dueDate\":\"" + dueDate
+                + "\",\"priority\":\"LOW\",\"category\":\"WORK\"}";
+    }
+
+    @Test
+    public void whenPostingJsonArrayToBatch_thenAllTasksAreInserted() throws Exception {
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + taskJson("One") + "," + taskJson("Two") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2));
+
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenPostingNdjsonToBatch_thenEveryLineIsInserted() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            body.append(taskJson("Task " + i)).append('\n');
+        }
+
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(TodoTaskController.NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2500));
+
+        assertThat(repository.count()).isEqualTo(2500);
+    }
+
+    @Test
+    public void whenFilteringWithWhereExpression_thenOnlyMatchingTasksAreReturned() throws Exception {
+        String highWork = "{\"name\":\"High work\",\"description\":\"d\",\"dueDate\":\"" + dueDate
+                + "\",\"priority\":\"HIGH\",\"category\":\"WORK\"}";
+        String highHealth = "{\"name\":\"High health\",\"description\":\"d\",\"dueDate\":\"" + dueDate
+                + "\",\"priority\":\"HIGH\",\"category\":\"HEALTH\"}";
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + taskJson("Low work") + "," + highWork + "," + highHealth + "]"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/tasks/tasks/filter")
+                        .param("where", "(priority:HIGH or category:WORK) and not category:HEALTH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Low work"))
+                .andExpect(jsonPath("$[1].name").value("High work"));
+
+        mockMvc.perform(get("/api/tasks/tasks/filter").param("where", "priority:URGENT"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenPagingThroughSortedTasks_thenPagesFollowTheSortOrder() throws Exception {
+        String high = taskJson("High").replace("LOW", "HIGH");
+        String medium = taskJson("Medium").replace("LOW", "MEDIUM");
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + taskJson("Low") + "," + high + "," + medium + "]"))
+                .andExpect(status().isOk());
+
+        String cursor = mockMvc.perform(get("/api/tasks/tasks/sort")
+                        .param("sortBy", "priority").param("order", "desc").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("High"))
+                .andExpect(jsonPath("$[1].name").value("Medium"))
+                .andReturn().getResponse().getHeader(TodoTaskController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/api/tasks/tasks/sort")
+                        .param("sortBy", "priority").param("order", "desc").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Low"));
+    }
+
+    @Test
+    public void whenListingTopTasks_thenFirstMatchingTasksComeInOrder() throws Exception {
+        String later = taskJson("Later").replace(dueDate, LocalDate.now().plusDays(5).toString());
+        String high = taskJson("High").replace("LOW", "HIGH");
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + later + "," + high + "," + taskJson("Low") + "]"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/tasks/tasks/top").param("orderBy", "dueDate,priority").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Low"))
+                .andExpect(jsonPath("$[1].name").value("High"));
+
+        mockMvc.perform(get("/api/tasks/tasks/top").param("orderBy", "dueDate,urgency"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenTasksChange_thenStatisticsFollowAndReconcileCatchesWritesBehindTheService() throws Exception {
+        TodoTask high = service.addTask(new TodoTask("High", "d", LocalDate.now().plusDays(1), TodoTask.Priority.HIGH,
+                TodoTask.Category.WORK));
+        service.addTask(new TodoTask("Low", "d", LocalDate.now().plusDays(2), TodoTask.Priority.LOW, TodoTask.Category.HEALTH));
+        service.addTask(new TodoTask("Gone", "d", LocalDate.now().plusDays(2), TodoTask.Priority.LOW, TodoTask.Category.WORK));
+        TodoTask done = new TodoTask("High", "d", LocalDate.now().plusDays(1), TodoTask.Priority.MEDIUM, TodoTask.Category.WORK);
+        done.setCompleted(true);
+        service.updateTaskById(high.getID(), done);
+        service.deleteTaskByName("gone");
+
+        mockMvc.perform(get("/api/tasks/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.completed").value(1))
+                .andExpect(jsonPath("$.open").value(1))
+                .andExpect(jsonPath("$.overdue").value(0))
+                .andExpect(jsonPath("$.byPriority.MEDIUM").value(1))
+                .andExpect(jsonPath("$.byPriority.HIGH").value(0))
+                .andExpect(jsonPath("$.byCategory.WORK").value(1))
+                .andExpect(jsonPath("$.byCategory.HEALTH").value(1));
+
+        // Saved straight to the database, so only reconciling counts it
+        repository.save(new TodoTask("Late", "d", LocalDate.now().minusDays(1), null, TodoTask.Category.STUDY));
+        mockMvc.perform(get("/api/tasks/stats"))
+                .andExpect(jsonPath("$.total").value(2));
+
+        mockMvc.perform(post("/api/tasks/stats/reconcile"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.overdue").value(1));
+        mockMvc.perform(get("/api/tasks/stats"))
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.overdue").value(1))
+                .andExpect(jsonPath("$.noPriority").value(1))
+                .andExpect(jsonPath("$.byCategory.STUDY").value(1));
+    }
+
+    @Test
+    public void whenExportingTasks_thenEveryTaskIsWrittenAsNdjsonOrCsv() throws Exception {
+        String quoted = taskJson("Two").replace("Imported", "Says \\\"hi\\\", twice");
+        mockMvc.perform(post("/api/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + taskJson("One") + "," + quoted + "," + taskJson("Three") + "]"))
+                .andExpect(status().isOk());
+
+        String ndjson = mockMvc.perform(get("/api/tasks/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{").contains("\"name\":\"One\"");
+        assertThat(lines[2]).contains("\"name\":\"Three\"");
+
+        String csv = mockMvc.perform(get("/api/tasks/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] records = csv.split("\r\n");
+        assertThat(records).hasSize(4);
+        assertThat(records[0]).isEqualTo("id,name,description,completed,dueDate,priority,category");
+        assertThat(records[2]).endsWith(",Two,\"Says \"\"hi\"\", twice\",false," + dueDate + ",LOW,WORK");
+
+        mockMvc.perform(get("/api/tasks/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenPollingWithETags_thenNotModifiedUntilSomethingChanges() throws Exception {
+        TodoTask task = service.addTask(new TodoTask("Poll", "d", LocalDate.now().plusDays(1), TodoTask.Priority.LOW,
+                TodoTask.Category.WORK));
+
+        String listTag = mockMvc.perform(get("/api/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/tasks").header(HttpHeaders.IF_NONE_MATCH, listTag))
+                .andExpect(status().isNotModified());
+        String taskTag = mockMvc.perform(get("/api/tasks/" + task.getID()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/tasks/" + task.getID()).header(HttpHeaders.IF_NONE_MATCH, taskTag))
+                .andExpect(status().isNotModified());
+
+        service.addTask(new TodoTask("Other", "d", LocalDate.now().plusDays(1), TodoTask.Priority.LOW, TodoTask.Category.WORK));
+
+        mockMvc.perform(get("/api/tasks").header(HttpHeaders.IF_NONE_MATCH, listTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/tasks/" + task.getID()).header(HttpHeaders.IF_NONE_MATCH, taskTag))
+                .andExpect(status().isNotModified()); // Only its own version counts
+    }
+
+    @Test
+    public void whenUpdatingWithIfMatch_thenOnlyTheCurrentVersionIsAccepted() throws Exception {
+        TodoTask task = service.addTask(new TodoTask("Edit", "d", LocalDate.now().plusDays(1), TodoTask.Priority.LOW,
+                TodoTask.Category.WORK));
+        String update = taskJson("Edited");
+
+        mockMvc.perform(put("/api/tasks/" + task.getID()).header(HttpHeaders.IF_MATCH, "\"v0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""));
+        mockMvc.perform(put("/api/tasks/" + task.getID()).header(HttpHeaders.IF_MATCH, "\"v0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/tasks/" + task.getID()).header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON).content(taskJson("Edited again")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""));
+
+        assertThat(repository.findById(task.getID()).orElseThrow().getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenPatchingTask_thenOnlySentFieldsChangeAndReadsFollow() throws Exception {
+        TodoTask task = service.addTask(new TodoTask("Patch me", "Keep", LocalDate.now().plusDays(1), TodoTask.Priority.LOW,
+                TodoTask.Category.WORK));
+        String url = "/api/tasks/" + task.getID();
+
+        mockMvc.perform(patch(url).contentType(MediaType.APPLICATION_JSON).content("{\"isCompleted\":true}"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(patch(url).header(HttpHeaders.IF_MATCH, "\"v1\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Patched\",\"priority\":\"HIGH\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""));
+
+        TodoTask patched = repository.findById(task.getID()).orElseThrow();
+        assertThat(patched.isCompleted()).isTrue();
+        assertThat(patched.getName()).isEqualTo("Patched");
+        assertThat(patched.getPriority()).isEqualTo(TodoTask.Priority.HIGH);
+        assertThat(patched.getDescription()).isEqualTo("Keep");
+        assertThat(patched.getVersion()).isEqualTo(2);
+        mockMvc.perform(get("/api/tasks/tasks/filter").param("where", "completed:true and priority:HIGH"))
+                .andExpect(jsonPath("$.length()").value(1));
+        mockMvc.perform(get("/api/tasks/tasks/name/patched"))
+                .andExpect(jsonPath("$[0].name").value("Patched"));
+        mockMvc.perform(get(url))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""));
+
+        mockMvc.perform(patch(url).header(HttpHeaders.IF_MATCH, "\"v1\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"completed\":false}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch(url).contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/tasks/" + (task.getID() + 1000)).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\":true}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void whenWritingInBulk_thenMatchingTasksChangeAndReadsFollow() throws Exception {
+        LocalDate soon = LocalDate.now().plusDays(1);
+        TodoTask report = service.addTask(new TodoTask("Report", "Quarterly", soon, TodoTask.Priority.HIGH, TodoTask.Category.WORK));
+        TodoTask email = service.addTask(new TodoTask("Email", "Reply", soon, TodoTask.Priority.LOW, TodoTask.Category.WORK));
+        service.addTask(new TodoTask("Gym", "Leg day", soon.plusDays(7), TodoTask.Priority.LOW, TodoTask.Category.HEALTH));
+        mockMvc.perform(get("/api/tasks/tasks/filter").param("where", "completed:true"))
+                .andExpect(jsonPath("$.length()").value(0)); // Cached, so the bulk write has to invalidate it
+
+        mockMvc.perform(patch("/api/tasks/bulk").param("ids", report.getID() + "," + email.getID())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"completed\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(2));
+        mockMvc.perform(get("/api/tasks/tasks/filter").param("where", "completed:true"))
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(patch("/api/tasks/bulk").param("where", "category:WORK").param("ids", report.getID().toString())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Annual report\"}"))
+                .andExpect(jsonPath("$.updated").value(1));
+        mockMvc.perform(get("/api/tasks/tasks/name/annual"))
+                .andExpect(jsonPath("$[0].name").value("Annual report"));
+        assertThat(repository.findById(report.getID()).orElseThrow().getVersion()).isEqualTo(2);
+
+        mockMvc.perform(delete("/api/tasks/bulk").param("where", "completed:true and dueDate:.." + soon.plusDays(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+        mockMvc.perform(get("/api/tasks/tasks/filter").param("where", "completed:true"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/tasks/stats"))
+                .andExpect(jsonPath("$.total").value(1));
+        assertThat(repository.findAll()).extracting(TodoTask::getName).containsExactly("Gym");
+
+        mockMvc.perform(delete("/api/tasks/bulk"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/api/tasks/bulk").param("where", "priority:URGENT"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/tasks/bulk").param("where", "category:HEALTH")
+                        .contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenChoosingReadConsistency_thenEitherIsServedAndUnknownOnesAreRejected() throws Exception {
+        TodoTask task = service.addTask(new TodoTask("Consistent", "Read", LocalDate.now().plusDays(1),
+                TodoTask.Priority.MEDIUM, TodoTask.Category.STUDY));
+
+        for (String consistency : new String[] {"eventual", "read-your-writes", "EVENTUAL"}) {
+            mockMvc.perform(get("/api/tasks/" + task.getID())
+                            .header(ReadConsistencyFilter.READ_CONSISTENCY_HEADER, consistency))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value("Consistent"));
+            mockMvc.perform(get("/api/tasks/tasks/filter").param("where", "category:STUDY")
+                            .header(ReadConsistencyFilter.READ_CONSISTENCY_HEADER, consistency))
+                    .andExpect(jsonPath("$.length()").value(1));
+        }
+        mockMvc.perform(get("/api/tasks").header(ReadConsistencyFilter.READ_CONSISTENCY_HEADER, "strong"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void whenReadingCacheStats_thenCountersArePerCache() throws Exception {
+        mockMvc.perform(get("/api/tasks/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasksById.hits").isNumber())
+                .andExpect(jsonPath("$.filterResults.misses").isNumber())
+                .andExpect(jsonPath("$.sortedResults.evictions").isNumber());
+    }
+}
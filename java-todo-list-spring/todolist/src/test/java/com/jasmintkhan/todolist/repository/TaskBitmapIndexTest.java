@@ -0,0 +1,127 @@
+package com.jasmintkhan.todolist.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+public class TaskBitmapIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private static TodoTask task(long id, Priority priority, Category category, LocalDate dueDate, boolean completed) {
+        TodoTask task = new TodoTask("Task " + id, "", dueDate, priority, category);
+        task.setID(id);
+        task.setCompleted(completed);
+        return task;
+    }
+
+    @Test
+    public void whenSearchingWithCombinedFilter_thenMatchingIdsAreReturnedInOrder() {
+        TaskBitmapIndex index = new TaskBitmapIndex();
+        index.put(task(1, Priority.HIGH, Category.WORK, DAY, false));
+        index.put(task(2, Priority.HIGH, Category.HEALTH, DAY.plusDays(3), false));
+        index.put(task(3, Priority.LOW, Category.WORK, null, true));
+        index.put(task(4, Priority.MEDIUM, Category.STUDY, DAY.plusDays(10), false));
+
+        assertThat(index.search(TaskFilter.parse("priority:HIGH and not category:WORK"))).containsExactly(2L);
+        assertThat(index.search(TaskFilter.parse("category:WORK or completed:true"))).containsExactly(1L, 3L);
+        assertThat(index.search(TaskFilter.parse("dueDate:2030-01-01..2030-01-05 or dueDate:none")))
+                .containsExactly(1L, 2L, 3L);
+        assertThat(index.search(TaskFilter.parse("not (priority:high,low)"))).containsExactly(4L);
+    }
+
+    @Test
+    public void whenTaskIsUpdatedOrRemoved_thenIndexFollows() {
+        TaskBitmapIndex index = new TaskBitmapIndex();
+        index.put(task(1, Priority.HIGH, Category.WORK, DAY, false));
+        index.put(task(2, Priority.HIGH, Category.WORK, DAY, false));
+        index.put(task(1, Priority.LOW, Category.HEALTH, DAY.plusDays(1), true));
+        assertThat(index.remove(2L)).isEqualTo(new TaskAttributes(Priority.HIGH, Category.WORK, DAY, false));
+        assertThat(index.remove(2L)).isNull();
+
+        assertThat(index.search(TaskFilter.priority(Priority.HIGH))).isEmpty();
+        assertThat(index.search(TaskFilter.dueDate(DAY))).isEmpty();
+        assertThat(index.search(TaskFilter.and(TaskFilter.priority(Priority.LOW), TaskFilter.completed(true))))
+                .containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenTasksArePutAndRemoved_thenStatisticsCountThem() {
+        TaskBitmapIndex index = new TaskBitmapIndex();
+        index.put(task(1, Priority.HIGH, Category.WORK, DAY.minusDays(2), false));
+        index.put(task(2, Priority.HIGH, Category.WORK, DAY.minusDays(1), false));
+        index.put(task(3, null, Category.HEALTH, DAY.minusDays(1), true));
+        index.put(task(4, Priority.LOW, null, null, false));
+        assertThat(index.statistics(DAY).overdue()).isEqualTo(2);
+
+        index.put(task(1, Priority.LOW, Category.WORK, DAY.minusDays(2), true));
+        index.remove(2L);
+        index.put(task(5, Priority.MEDIUM, Category.STUDY, DAY, false));
+
+        TaskStatistics statistics = index.statistics(DAY);
+        assertThat(statistics.total()).isEqualTo(4);
+        assertThat(statistics.completed()).isEqualTo(2);
+        assertThat(statistics.open()).isEqualTo(2);
+        assertThat(statistics.overdue()).isZero();
+        assertThat(statistics.byPriority()).containsEntry(Priority.HIGH, 0L).containsEntry(Priority.LOW, 2L)
+                .containsEntry(Priority.MEDIUM, 1L);
+        assertThat(statistics.noPriority()).isEqualTo(1);
+        assertThat(statistics.byCategory()).containsEntry(Category.WORK, 1L).containsEntry(Category.HEALTH, 1L)
+                .containsEntry(Category.STUDY, 1L);
+        assertThat(statistics.noCategory()).isEqualTo(1);
+        // A day later task 5 is overdue too
+        assertThat(index.statistics(DAY.plusDays(1)).overdue()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenTaskIsPatched_thenItMovesOnlyForPatchedAttributes() {
+        TaskBitmapIndex index = new TaskBitmapIndex();
+        index.put(task(1, Priority.HIGH, Category.WORK, DAY, false));
+
+        TaskAttributes before = index.patch(1L, new TaskPatch(null, null, null, null, null, true));
+
+        assertThat(before).isEqualTo(new TaskAttributes(Priority.HIGH, Category.WORK, DAY, false));
+        assertThat(index.search(TaskFilter.parse("completed:true and priority:HIGH and category:WORK and dueDate:2030-01-01")))
+                .containsExactly(1L);
+        assertThat(index.search(TaskFilter.completed(false))).isEmpty();
+        assertThat(index.statistics(DAY.plusDays(1)).overdue()).isZero();
+        assertThat(index.patch(2L, new TaskPatch(null, null, null, null, null, true))).isNull();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenIndexHoldsManyTasks_thenSearchAgreesWithMatches() {
+        Random random = new Random(7);
+        TaskBitmapIndex index = new TaskBitmapIndex();
+        List<TodoTask> tasks = new ArrayList<>();
+        for (long id = 1; id <= 200_000; id += 1 + random.nextInt(3)) {
+            TodoTask task = task(id, Priority.values()[random.nextInt(3)], Category.values()[random.nextInt(4)],
+                    random.nextInt(5) == 0 ? null : DAY.plusDays(random.nextInt(60)), random.nextBoolean());
+            tasks.add(task);
+            index.put(task);
+        }
+        TaskFilter filter = TaskFilter.parse(
+                "(priority:HIGH or dueDate:2030-01-10..2030-02-10) and not (category:WORK or completed:true)");
+
+        List<Long> expected = tasks.stream().filter(filter::matches).map(TodoTask::getID).toList();
+        assertThat(index.search(filter)).isEqualTo(expected);
+    }
+
+    @Test
+    public void whenParsingInvalidFilter_thenIllegalArgumentExceptionIsThrown() {
+        assertThatThrownBy(() -> TaskFilter.parse("priority:URGENT")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskFilter.parse("(category:WORK")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskFilter.parse("name:x")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskFilter.parse("dueDate:tomorrow")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.jasmintkhan.todolist.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.model.TodoTask.Category;
+import com.jasmintkhan.todolist.model.TodoTask.Priority;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+public class TaskSortIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private static TodoTask task(long id, String name, Priority priority, LocalDate dueDate) {
+        TodoTask task = new TodoTask(name, "", dueDate, priority, Category.WORK);
+        task.setID(id);
+        return task;
+    }
+
+    // The order findPage sorts in, built independently of TaskSortIndex
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<TodoTask> expectedOrder(TaskSortField sortField) {
+        Comparator<Comparable> values = Comparator.nullsLast(Comparator.naturalOrder());
+        Comparator<TodoTask> order = (a, b) -> values.compare((Comparable) sortField.valueOf(a), (Comparable) sortField.valueOf(b));
+        return order.thenComparing(TodoTask::getID);
+    }
+
+    @Test
+    public void whenListingIds_thenNullsComeLastAscendingAndFirstDescending() {
+        TaskSortIndex index = new TaskSortIndex();
+        index.put(task(1, "b", Priority.HIGH, null));
+        index.put(task(2, "a", null, DAY.plusDays(1)));
+        index.put(task(3, "c", Priority.LOW, DAY));
+        index.put(task(4, "a", Priority.LOW, null));
+
+        assertThat(index.ids(TaskSortField.PRIORITY, false, null, null)).containsExactly(3L, 4L, 1L, 2L);
+        assertThat(index.ids(TaskSortField.PRIORITY, true, null, null)).containsExactly(2L, 1L, 4L, 3L);
+        assertThat(index.ids(TaskSortField.DUE_DATE, false, null, null)).containsExactly(3L, 2L, 1L, 4L);
+        assertThat(index.ids(TaskSortField.NAME, false, null, 3)).containsExactly(2L, 4L, 1L);
+        assertThat(index.ids(TaskSortField.ID, true, null, 2)).containsExactly(4L, 3L);
+    }
+
+    @Test
+    public void whenResumingAfterCursor_thenNextIdsFollowTheCursorTask() {
+        TaskSortIndex index = new TaskSortIndex();
+        TodoTask last = task(2, "x", null, DAY);
+        index.put(task(1, "x", Priority.MEDIUM, DAY));
+        index.put(last);
+        index.put(task(3, "x", null, DAY));
+
+        TaskCursor ascending = TaskCursor.decode(TaskCursor.after(last, TaskSortField.PRIORITY, false).encode());
+        TaskCursor descending = TaskCursor.decode(TaskCursor.after(last, TaskSortField.PRIORITY, true).encode());
+        assertThat(index.ids(TaskSortField.PRIORITY, false, ascending, 10)).containsExactly(3L);
+        assertThat(index.ids(TaskSortField.PRIORITY, true, descending, 10)).containsExactly(1L);
+    }
+
+    @Test
+    public void whenTaskIsPatchedAndThenRemoved_thenOrdersFollowAndNothingIsLeftBehind() {
+        TaskSortIndex index = new TaskSortIndex();
+        index.put(task(1, "a", Priority.LOW, DAY));
+        index.put(task(2, "b", Priority.MEDIUM, DAY.plusDays(1)));
+        index.patch(1L, new TaskPatch("c", null, null, Priority.HIGH, null, null));
+        index.patch(3L, new TaskPatch("z", null, null, null, null, null)); // Not indexed
+
+        assertThat(index.ids(TaskSortField.NAME, false, null, null)).containsExactly(2L, 1L);
+        assertThat(index.ids(TaskSortField.PRIORITY, false, null, null)).containsExactly(2L, 1L);
+        assertThat(index.ids(TaskSortField.DUE_DATE, false, null, null)).containsExactly(1L, 2L);
+
+        index.patch(1L, new TaskPatch(null, null, DAY.plusDays(2), null, null, null));
+        index.remove(1L);
+        for (TaskSortField sortField : TaskSortField.values()) {
+            assertThat(index.ids(sortField, false, null, null)).containsExactly(2L);
+        }
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenTasksAreUpdatedAndRemoved_thenEveryOrderFollows() {
+        Random random = new Random(11);
+        TaskSortIndex index = new TaskSortIndex();
+        List<TodoTask> tasks = new ArrayList<>();
+        for (long id = 1; id <= 5_000; id++) {
+            TodoTask task = task(id, "Task " + random.nextInt(500), random.nextInt(4) == 0 ? null : Priority.values()[random.nextInt(3)],
+                    random.nextInt(4) == 0 ? null : DAY.plusDays(random.nextInt(30)));
+            tasks.add(task);
+            index.put(task);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            TodoTask task = tasks.get(random.nextInt(tasks.size()));
+            if (random.nextBoolean()) {
+                task.setName("Renamed " + random.nextInt(500));
+                task.setDueDate(null);
+                index.put(task);
+            } else {
+                tasks.remove(task);
+                index.remove(task.getID());
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(tasks.size());
+        for (TaskSortField sortField : TaskSortField.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                Comparator<TodoTask> order = expectedOrder(sortField);
+                List<Long> expected = tasks.stream().sorted(descending ? order.reversed() : order).map(TodoTask::getID).toList();
+                assertThat(index.ids(sortField, descending, null, null)).as(sortField + " " + descending).isEqualTo(expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.jasmintkhan.todolist.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+
+@DataJpaTest
+public class TodoTaskRepositoryTest {
+
+    @Autowired
+    private TodoTaskRepository repository;
+
+    private final LocalDate dueDate = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    public void setUp() {
+        TodoTask done = new TodoTask("Report", "Quarterly", dueDate, TodoTask.Priority.HIGH, TodoTask.Category.WORK);
+        done.setCompleted(true);
+        repository.save(done);
+        repository.save(new TodoTask("Email", "Reply", dueDate, TodoTask.Priority.HIGH, TodoTask.Category.WORK));
+        repository.save(new TodoTask("Gym", "Leg day", dueDate.plusDays(1), TodoTask.Priority.LOW, TodoTask.Category.HEALTH));
+    }
+
+    @Test
+    public void whenFilteringWithSpecification_thenOnlyMatchingTasksAreReturned() {
+        List<TodoTask> tasks = repository.findAll(
+                TodoTaskSpecifications.matching(TodoTask.Priority.HIGH, TodoTask.Category.WORK, dueDate, false));
+
+        assertThat(tasks).extracting(TodoTask::getName).containsExactly("Email");
+    }
+
+    @Test
+    public void whenFilteringWithTaskFilter_thenWhereClauseMatchesInMemoryFilter() {
+        repository.save(new TodoTask("Someday", "No priority", null, null, TodoTask.Category.PERSONAL));
+        TaskFilter filter = TaskFilter.parse("not (priority:HIGH or completed:true) or dueDate:none");
+
+        List<TodoTask> tasks = repository.findAll(TodoTaskSpecifications.matching(filter));
+
+        assertThat(tasks).extracting(TodoTask::getName).containsExactlyInAnyOrder("Gym", "Someday");
+        assertThat(repository.findAll()).filteredOn(filter::matches).containsExactlyInAnyOrderElementsOf(tasks);
+    }
+
+    @Test
+    public void whenPatchingAndDeletingMatching_thenOneStatementChangesExactlyTheMatchingRows() {
+        TaskFilter highBeforeGym = TaskFilter.parse("priority:HIGH and dueDate:.." + dueDate);
+        List<Long> expected = repository.findAll().stream().filter(highBeforeGym::matches).map(TodoTask::getID).toList();
+
+        assertThat(repository.patchMatching(highBeforeGym, new TaskPatch(null, null, null, null, null, true))).isEqualTo(2);
+        assertThat(repository.findAll(TodoTaskSpecifications.matching(TaskFilter.parse("completed:true"))))
+                .extracting(TodoTask::getID).containsExactlyInAnyOrderElementsOf(expected);
+
+        TaskFilter byId = TaskFilter.id(expected.get(0), -1L);
+        assertThat(byId.toString()).isEqualTo("id:-1," + expected.get(0));
+        assertThat(repository.deleteMatching(byId)).isEqualTo(1);
+        assertThat(repository.deleteMatching(TaskFilter.parse("completed:true or dueDate:" + dueDate.plusDays(1) + ".."))).isEqualTo(2);
+        assertThat(repository.count()).isZero();
+    }
+
+    @Test
+    public void whenLockingMatchingIds_thenTheMatchingIdsAreReturnedInIdOrder() {
+        List<Long> high = repository.findAll().stream().filter(task -> task.getPriority() == TodoTask.Priority.HIGH)
+                .map(TodoTask::getID).sorted().toList();
+
+        assertThat(repository.lockMatchingIds(TaskFilter.parse("priority:HIGH"))).containsExactlyElementsOf(high);
+        assertThat(repository.lockMatchingIds(TaskFilter.parse("category:PERSONAL"))).isEmpty();
+    }
+
+    @Test
+    public void whenAllFiltersAreNull_thenEveryTaskIsReturned() {
+        assertThat(repository.findAll(TodoTaskSpecifications.matching(null, null, null, null))).hasSize(3);
+    }
+
+    @Test
+    public void whenFindingTopTasks_thenFirstTasksInMultiFieldOrderAreReturned() {
+        repository.save(new TodoTask("Someday", "No due date", null, TodoTask.Priority.MEDIUM, TodoTask.Category.PERSONAL));
+        repository.save(new TodoTask("Soon", "Low priority", dueDate, TodoTask.Priority.LOW, TodoTask.Category.STUDY));
+        List<TaskSortField> byDueDateThenPriority = List.of(TaskSortField.DUE_DATE, TaskSortField.PRIORITY);
+
+        assertThat(repository.findTop(TodoTaskSpecifications.matching(TaskFilter.completed(false)), byDueDateThenPriority, false, 3))
+                .extracting(TodoTask::getName).containsExactly("Soon", "Email", "Gym");
+        assertThat(repository.findTop(null, byDueDateThenPriority, true, 2))
+                .extracting(TodoTask::getName).containsExactly("Someday", "Gym");
+    }
+
+    @Test
+    public void whenPagingWithCursor_thenPagesFollowTheFullSortOrder() {
+        repository.save(new TodoTask("Someday", "No due date", null, TodoTask.Priority.LOW, TodoTask.Category.PERSONAL));
+        repository.save(new TodoTask("Later", "No due date", null, TodoTask.Priority.LOW, TodoTask.Category.PERSONAL));
+
+        for (boolean descending : new boolean[] {false, true}) {
+            List<TodoTask> expected = repository.findPage(null, TaskSortField.DUE_DATE, descending, null, null);
+            List<TodoTask> paged = new ArrayList<>();
+            TaskCursor cursor = null;
+            List<TodoTask> page;
+            do {
+                page = repository.findPage(null, TaskSortField.DUE_DATE, descending, cursor, 2);
+                paged.addAll(page);
+                if (!page.isEmpty()) {
+                    TaskCursor last = TaskCursor.after(page.get(page.size() - 1), TaskSortField.DUE_DATE, descending);
+                    cursor = TaskCursor.decode(last.encode());
+                }
+            } while (page.size() == 2);
+
+            assertThat(paged).extracting(TodoTask::getID).containsExactlyElementsOf(
+                    expected.stream().map(TodoTask::getID).toList());
+            assertThat(expected).hasSize(5);
+        }
+        List<TodoTask> ascending = repository.findPage(null, TaskSortField.DUE_DATE, false, null, null);
+        assertThat(ascending.get(3).getDueDate()).isNull();
+        assertThat(ascending.get(4).getDueDate()).isNull();
+    }
+
+    @Test
+    public void whenFindingByNormalizedName_thenTheOldestCaseInsensitiveMatchIsReturned() {
+        TodoTask gym = repository.findFirstByNameOrderByIDAsc("Gym").orElseThrow();
+        repository.save(new TodoTask("GYM", "Arm day", dueDate, TodoTask.Priority.LOW, TodoTask.Category.HEALTH));
+
+        assertThat(repository.findFirstIdByNormalizedName(TodoTask.normalizeName("gYm"))).isEqualTo(gym.getID());
+        assertThat(repository.findFirstIdByNormalizedName("missing")).isNull();
+    }
+
+    @Test
+    public void whenSearchingByNormalizedName_thenNamesContainingTheFragmentAreReturnedInIdOrder() {
+        repository.save(new TodoTask("50% GYM_time", "Arm day", dueDate, TodoTask.Priority.LOW, TodoTask.Category.HEALTH));
+        repository.save(new TodoTask("500 gymXtime", "Arm day", dueDate, TodoTask.Priority.LOW, TodoTask.Category.HEALTH));
+
+        assertThat(repository.searchByNormalizedName("gym")).extracting(TodoTask::getName)
+                .containsExactly("Gym", "50% GYM_time", "500 gymXtime");
+        // LIKE wildcards in the fragment only match themselves
+        assertThat(repository.searchByNormalizedName("0% gym_")).extracting(TodoTask::getName)
+                .containsExactly("50% GYM_time");
+        assertThat(repository.searchByNormalizedName("!")).isEmpty();
+    }
+
+    @Test
+    public void whenFindingVersionById_thenOnlyTheVersionIsRead() {
+        TodoTask gym = repository.findFirstByNameOrderByIDAsc("Gym").orElseThrow();
+
+        assertThat(repository.findVersionById(gym.getID())).contains(gym.getVersion());
+        assertThat(repository.findVersionById(-1L)).isEmpty();
+    }
+
+    @Test
+    public void whenFindingByExactName_thenMatchIsCaseSensitive() {
+        assertThat(repository.findFirstByNameOrderByIDAsc("Email")).isPresent();
+        assertThat(repository.findFirstByNameOrderByIDAsc("email")).isEmpty();
+    }
+}
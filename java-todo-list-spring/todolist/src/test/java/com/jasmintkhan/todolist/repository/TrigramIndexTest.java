@@ -0,0 +1,35 @@
+package com.jasmintkhan.todolist.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+
+public class TrigramIndexTest {
+
+    @Test
+    public void whenSearching_thenCaseInsensitiveSubstringMatchesAreReturned() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, "Weekly Stand-Up");
+        index.put(2L, "Study Java");
+        index.put(3L, "stand by");
+
+        assertThat(index.search("STAND")).containsExactly(1L, 3L);
+        assertThat(index.search("d-u")).containsExactly(1L);
+        assertThat(index.search("st")).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("xyz")).isEmpty();
+    }
+
+    @Test
+    public void whenNameChangesOrTaskIsRemoved_thenIndexFollows() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, "Groceries");
+        index.put(1L, "Supermarket");
+        index.put(2L, "Market day");
+        index.remove(2L);
+
+        assertThat(index.search("groc")).isEmpty();
+        assertThat(index.search("market")).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
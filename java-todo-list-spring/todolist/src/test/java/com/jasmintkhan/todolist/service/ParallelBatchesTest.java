@@ -0,0 +1,57 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+
+public class ParallelBatchesTest {
+
+    private final ParallelBatches parallelBatches = new ParallelBatches(4);
+
+    @AfterEach
+    public void tearDown() {
+        parallelBatches.shutdown();
+    }
+
+    private static int slowDouble(int batch) {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return batch * 2;
+    }
+
+    @Test
+    public void whenJobIsLarge_thenBatchesRunOnThePoolAndResultsKeepBatchOrder() {
+        List<Integer> batches = IntStream.range(0, 100).boxed().toList();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        List<Integer> results = parallelBatches.map(new ParallelBatches.Kind(), batches, 100_000, batch -> {
+            threads.add(Thread.currentThread().getName());
+            return slowDouble(batch);
+        });
+
+        assertThat(results).isEqualTo(batches.stream().map(batch -> batch * 2).toList());
+        assertThat(threads).allMatch(name -> name.startsWith("todolist-batch-"));
+    }
+
+    @Test
+    public void whenJobIsSmall_thenItRunsOnTheCallingThread() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        List<Integer> results = parallelBatches.map(new ParallelBatches.Kind(), List.of(1, 2, 3), 3, batch -> {
+            threads.add(Thread.currentThread().getName());
+            return batch * 2;
+        });
+
+        assertThat(results).containsExactly(2, 4, 6);
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+}
@@ -0,0 +1,75 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+public class TodoTaskCacheTest {
+
+    private final TodoTaskCache cache = new TodoTaskCache(100, 100, Duration.ofMinutes(1));
+
+    private final TodoTaskCache.FilterKey highWork =
+            new TodoTaskCache.FilterKey(TodoTask.Priority.HIGH, TodoTask.Category.WORK, null, null);
+    private final TodoTaskCache.FilterKey lowTasks =
+            new TodoTaskCache.FilterKey(TodoTask.Priority.LOW, null, null, null);
+
+    private List<TodoTask> load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return List.of();
+    }
+
+    @Test
+    public void whenReadingTwice_thenSecondReadIsAHit() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.filter(highWork, () -> load(loads));
+        cache.filter(highWork, () -> load(loads));
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().get("filterResults").hitCount()).isEqualTo(1);
+        assertThat(cache.stats().get("filterResults").missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenTaskChanges_thenOnlyFiltersItMatchedBeforeOrAfterAreInvalidated() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.filter(highWork, () -> load(loads));
+        cache.filter(lowTasks, () -> load(loads));
+
+        // A HIGH/HEALTH task becomes HIGH/STUDY: it matches neither cached filter
+        TodoTask task = new TodoTask("Run", "5k", LocalDate.now(), TodoTask.Priority.HIGH, TodoTask.Category.HEALTH);
+        TodoTaskCache.FilterKey before = TodoTaskCache.FilterKey.of(task);
+        task.setCategory(TodoTask.Category.STUDY);
+        cache.taskChanged(1L, before, TodoTaskCache.FilterKey.of(task));
+        cache.filter(highWork, () -> load(loads));
+        assertThat(loads).hasValue(2);
+
+        // It becomes HIGH/WORK: the HIGH/WORK result is reloaded, the LOW one stays cached
+        before = TodoTaskCache.FilterKey.of(task);
+        task.setCategory(TodoTask.Category.WORK);
+        cache.taskChanged(1L, before, TodoTaskCache.FilterKey.of(task));
+        cache.filter(highWork, () -> load(loads));
+        cache.filter(lowTasks, () -> load(loads));
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    public void whenWriteHappensDuringLoad_thenLoadedValueIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        TodoTask added = new TodoTask("New", "", null, TodoTask.Priority.LOW, TodoTask.Category.WORK);
+
+        cache.filter(lowTasks, () -> {
+            cache.taskChanged(1L, null, TodoTaskCache.FilterKey.of(added));
+            return load(loads);
+        });
+        cache.filter(lowTasks, () -> load(loads));
+
+        assertThat(loads).hasValue(2);
+    }
+}
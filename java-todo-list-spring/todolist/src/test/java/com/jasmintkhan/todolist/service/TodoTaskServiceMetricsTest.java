@@ -0,0 +1,40 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+
+@SpringBootTest
+public class TodoTaskServiceMetricsTest {
+
+    @Autowired
+    private TodoTaskService service;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void whenServiceMethodsRun_thenLatencyAndResultSizeAreRecordedPerOperationAndOutcome() {
+        service.addTask(new TodoTask("Metrics", "Check", LocalDate.now().plusDays(1), TodoTask.Priority.HIGH, TodoTask.Category.WORK));
+        service.filterTasks(TodoTask.Priority.HIGH, null, null, null);
+        service.filterTasks(null, null, null, null); // Unfiltered, so read through the cache rather than the read model
+        assertThatThrownBy(() -> service.findTaskById(null)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(registry.get(TodoTaskServiceMetrics.OPERATION_TIMER)
+                .tags("operation", "filterTasks", "outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(registry.get(TodoTaskServiceMetrics.RESULT_SIZE)
+                .tags("operation", "filterTasks").summary().max()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.get(TodoTaskServiceMetrics.OPERATION_TIMER)
+                .tags("operation", "findTaskById", "outcome", "error", "exception", "IllegalArgumentException")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", "filterResults", "result", "miss")
+                .functionCounter().count()).isGreaterThanOrEqualTo(1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskFilter;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+@SpringBootTest
+public class TodoTaskServiceReadConsistencyTest {
+
+    @Autowired
+    private TodoTaskService service;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void whenWriteHasCommittedButIsNotAppliedYet_thenEventualReadsMissItAndReadYourWritesWaitsForIt() throws Exception {
+        Long id = service.addTask(new TodoTask("Consistency", "Check", LocalDate.now().plusDays(1),
+                TodoTask.Priority.HIGH, TodoTask.Category.WORK)).getID();
+        AtomicBoolean eventualSawWrite = new AtomicBoolean(true);
+        AtomicBoolean readYourWritesWaited = new AtomicBoolean();
+        CompletableFuture<Boolean> readYourWritesSawWrite = new CompletableFuture<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // Registered ahead of the service's own hook, so it runs once the write has committed but before the
+            // read model has applied it
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReadConsistency.set(ReadConsistency.EVENTUAL);
+                    try {
+                        eventualSawWrite.set(service.findTaskById(id).orElseThrow().isCompleted());
+                    } finally {
+                        ReadConsistency.clear();
+                    }
+                    Thread.ofVirtual().start(() -> readYourWritesSawWrite.complete(
+                            service.findTaskById(id).orElseThrow().isCompleted()));
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    readYourWritesWaited.set(!readYourWritesSawWrite.isDone());
+                }
+            });
+            service.patchTaskById(id, new TaskPatch(null, null, null, null, null, true), null);
+        });
+
+        assertThat(eventualSawWrite).isFalse();
+        assertThat(readYourWritesWaited).isTrue();
+        assertThat(readYourWritesSawWrite.get(5, TimeUnit.SECONDS)).isTrue();
+        ReadConsistency.set(ReadConsistency.EVENTUAL);
+        try {
+            assertThat(service.findTaskById(id).orElseThrow().isCompleted()).isTrue(); // Applied by now
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+
+    @Test
+    public void whenReadYourWritesWaitTimesOut_thenSearchGoesToTheDatabase() {
+        Long id = service.addTask(new TodoTask("Timed out before", "Check", LocalDate.now().plusDays(1),
+                TodoTask.Priority.LOW, TodoTask.Category.WORK)).getID();
+        List<List<Long>> found = new ArrayList<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // The rename can't be applied until this hook returns, so waiting for it times out
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    found.add(service.searchTasksByName("timed out before").stream().map(TodoTask::getID).toList());
+                    found.add(service.searchTasksByName("timed out after").stream().map(TodoTask::getID).toList());
+                }
+            });
+            service.patchTaskById(id, new TaskPatch("Timed out after", null, null, null, null, null), null);
+        });
+
+        assertThat(found).containsExactly(List.of(), List.of(id));
+    }
+
+    @Test
+    public void whenBulkPatchRunsBeforeAnEarlierWriteIsApplied_thenTheTasksItChangedArePatchedInMemory() throws Exception {
+        Long low = service.addTask(new TodoTask("Bulk low", "Check", LocalDate.now().plusDays(1),
+                TodoTask.Priority.LOW, TodoTask.Category.WORK)).getID();
+        Long high = service.addTask(new TodoTask("Bulk high", "Check", LocalDate.now().plusDays(1),
+                TodoTask.Priority.HIGH, TodoTask.Category.WORK)).getID();
+        TaskFilter highOfTheTwo = TaskFilter.and(TaskFilter.id(low, high), TaskFilter.priority(TodoTask.Priority.HIGH));
+        CompletableFuture<Integer> patched = new CompletableFuture<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // While the swap of priorities has committed but isn't applied, the filter index still has the old ones
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    Thread.ofVirtual().start(() -> patched.complete(
+                            service.patchTasks(highOfTheTwo, new TaskPatch(null, null, null, null, null, true))));
+                    patched.join();
+                }
+            });
+            service.patchTaskById(low, new TaskPatch(null, null, null, TodoTask.Priority.HIGH, null, null), null);
+            service.patchTaskById(high, new TaskPatch(null, null, null, TodoTask.Priority.LOW, null, null), null);
+        });
+
+        assertThat(patched.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        ReadConsistency.set(ReadConsistency.EVENTUAL);
+        try {
+            assertThat(service.findTaskById(low).orElseThrow().isCompleted()).isTrue();
+            assertThat(service.findTaskById(high).orElseThrow().isCompleted()).isFalse();
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+}
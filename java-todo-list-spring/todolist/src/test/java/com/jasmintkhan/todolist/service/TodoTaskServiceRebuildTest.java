@@ -0,0 +1,72 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TaskPatch;
+import com.jasmintkhan.todolist.repository.TodoTaskRepository;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+
+@SpringBootTest
+public class TodoTaskServiceRebuildTest {
+
+    @Autowired
+    private TodoTaskService service;
+
+    @SpyBean
+    private TodoTaskRepository repository;
+
+    @Test
+    public void whenTasksChangeAfterTheRebuildHasLoadedThem_thenTheRebuiltReadSideHasTheChanges() throws Exception {
+        Long deleted = service.addTask(new TodoTask("Rebuild delete", "Rebuild", LocalDate.now().plusDays(1),
+                TodoTask.Priority.LOW, TodoTask.Category.PERSONAL)).getID();
+        Long patched = service.addTask(new TodoTask("Rebuild patch", "Rebuild", LocalDate.now().plusDays(1),
+                TodoTask.Priority.LOW, TodoTask.Category.PERSONAL)).getID();
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the rebuild once it has read the tasks, before it swaps in what it loaded
+        doAnswer(invocation -> {
+            // A spy of the repository's interface proxy forwards to it from its default answer, not a real method
+            Object page = mockingDetails(invocation.getMock()).getMockCreationSettings().getDefaultAnswer().answer(invocation);
+            loaded.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return page;
+        }).when(repository).findPage(any(), any(), anyBoolean(), any(), anyInt());
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(service::rebuildIndexes);
+        try {
+            assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+            service.deleteTaskByID(deleted);
+            service.patchTaskById(patched, new TaskPatch(null, null, null, null, null, true), null);
+            assertThat(service.findTaskById(deleted)).isEmpty(); // Served by the old read side meanwhile
+        } finally {
+            release.countDown();
+        }
+        rebuild.get(5, TimeUnit.SECONDS);
+
+        ReadConsistency.set(ReadConsistency.EVENTUAL);
+        try {
+            assertThat(service.findTaskById(deleted)).isEmpty();
+            TodoTask task = service.findTaskById(patched).orElseThrow();
+            assertThat(task.isCompleted()).isTrue();
+            assertThat(task.getVersion()).isEqualTo(repository.findById(patched).orElseThrow().getVersion());
+            assertThat(service.filterTasks(null, TodoTask.Category.PERSONAL, null, null))
+                    .extracting(TodoTask::getID).contains(patched).doesNotContain(deleted);
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+}
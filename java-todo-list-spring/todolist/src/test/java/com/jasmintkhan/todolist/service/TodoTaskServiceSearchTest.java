@@ -0,0 +1,57 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import com.jasmintkhan.todolist.repository.TodoTaskRepository;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+
+@SpringBootTest
+public class TodoTaskServiceSearchTest {
+
+    @Autowired
+    private TodoTaskService service;
+
+    @SpyBean
+    private TodoTaskRepository repository;
+
+    @Test
+    public void whenSearchingWhileIndexesAreRebuilt_thenEveryMatchingTaskIsFound() throws Exception {
+        TodoTask task = service.addTask(new TodoTask("Rebuild 100% done", "Search", LocalDate.now().plusDays(1),
+                TodoTask.Priority.LOW, TodoTask.Category.PERSONAL));
+        service.addTask(new TodoTask("Rebuild 1000 done", "Search", LocalDate.now().plusDays(1),
+                TodoTask.Priority.LOW, TodoTask.Category.PERSONAL));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the rebuild at its first page, before it has indexed anything
+        doAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            // A spy of the repository's interface proxy forwards to it from its default answer, not a real method
+            return mockingDetails(invocation.getMock()).getMockCreationSettings().getDefaultAnswer().answer(invocation);
+        }).when(repository).findPage(any(), any(), anyBoolean(), any(), anyInt());
+
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(service::rebuildIndexes);
+        try {
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(service.searchTasksByName("rebuild 100%")).extracting(TodoTask::getID).containsExactly(task.getID());
+        } finally {
+            release.countDown();
+        }
+        rebuild.get(5, TimeUnit.SECONDS);
+        assertThat(service.searchTasksByName("rebuild 100%")).extracting(TodoTask::getID).containsExactly(task.getID());
+    }
+}
@@ -0,0 +1,61 @@
+package com.jasmintkhan.todolist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jasmintkhan.todolist.model.TodoTask;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+
+@SpringBootTest
+public class TodoTaskServiceVirtualThreadTest {
+
+    private static final int CLIENTS = 200; // Far more than the connection pool, so most of them wait for a connection
+
+    @Autowired
+    private TodoTaskService service;
+
+    @Test
+    public void whenManyVirtualThreadsUseTheDatabase_thenNoCarrierThreadIsPinned() throws Exception {
+        Queue<String> pinnedStacks = new ConcurrentLinkedQueue<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinnedStacks.add(String.valueOf(event.getStackTrace())));
+            recording.startAsync();
+
+            List<Future<?>> clients = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CLIENTS; i++) {
+                    int client = i;
+                    clients.add(executor.submit(() -> {
+                        TodoTask task = service.addTask(new TodoTask("Client " + client, "Load", LocalDate.now().plusDays(client % 30),
+                                TodoTask.Priority.values()[client % 3], TodoTask.Category.values()[client % 4]));
+                        service.filterTasks(task.getPriority(), task.getCategory(), null, false);
+                        service.findTasksPage("duedate", "asc", null, 20);
+                        task.setCompleted(true);
+                        service.updateTaskById(task.getID(), task);
+                        service.deleteTaskByID(task.getID());
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> client : clients) {
+                client.get(); // Rethrows any failure
+            }
+            recording.stop();
+        }
+
+        assertThat(pinnedStacks).isEmpty();
+    }
+}
@@ -4,7 +4,11 @@ import todolist.controller.TodoTaskController;
 import todolist.model.TodoTask;
 import todolist.model.TodoTask.Priority;
 import todolist.model.TodoTask.Category;
+import todolist.persistence.TaskPersistence;
+import todolist.repository.TaskFilter;
+import todolist.repository.TaskSortField;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.List;
@@ -17,7 +21,7 @@ public class TodoTaskApp {
     private TodoTaskController.NotificationService notificationService;
 
     public TodoTaskApp(TodoTaskController controller) {
-        this.controller = new TodoTaskController();
+        this.controller = controller;
         this.scanner = new Scanner(System.in);
         this.notificationService = new TodoTaskController.NotificationService(controller);
 
@@ -212,7 +216,7 @@ public class TodoTaskApp {
     }
 
     private void filterTasks() {
-        System.out.println("Filter by: \n1. Priority \n2. Category \n3. Due Date \n4. Completion Status");
+        System.out.println("Filter by: \n1. Priority \n2. Category \n3. Due Date \n4. Completion Status \n5. Combined");
         System.out.print("Your choice: ");
         int filterChoice = scanner.nextInt();
         scanner.nextLine(); // Consume the remaining newline
@@ -246,6 +250,17 @@ public class TodoTaskApp {
                 displayTasks(controller.filterTasksByCompletionStatus(isCompleted));
                 scanner.nextLine(); // Consume the remaining newline
                 break;
+            case 5:
+                // Filter by a combination of conditions
+                System.out.println("Enter filter (e.g. priority:HIGH,MEDIUM and not (category:WORK or completed:true)");
+                System.out.println("  fields: priority, category, completed, dueDate (YYYY-MM-DD, YYYY-MM-DD..YYYY-MM-DD or none)):");
+                String filterString = scanner.nextLine();
+                try {
+                    displayTasks(controller.filterTasks(TaskFilter.parse(filterString)));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid filter: " + e.getMessage());
+                }
+                break;
             default:
                 System.out.println("Invalid choice. Please choose a valid option.");
                 break;
@@ -253,7 +268,7 @@ public class TodoTaskApp {
     }
     
     private void sortTasks() {
-        System.out.println("Sort by: \n1. Priority \n2. Category \n3. Due Date \n4. Name");
+        System.out.println("Sort by: \n1. Priority \n2. Category \n3. Due Date \n4. Name \n5. Next due (open tasks by due date, then priority)");
         System.out.print("Your choice: ");
         int sortChoice = scanner.nextInt();
         scanner.nextLine(); // Consume the remaining newline
@@ -275,6 +290,18 @@ public class TodoTaskApp {
                 // Sort by Name
                 displayTasks(controller.sortTasksByName());
                 break;
+            case 5:
+                // The first few open tasks by due date, then priority
+                System.out.println("How many tasks?");
+                int count = scanner.nextInt();
+                scanner.nextLine(); // Consume the remaining newline
+                try {
+                    displayTasks(controller.topTasks(TaskFilter.completed(false), count,
+                            TaskSortField.DUE_DATE, TaskSortField.PRIORITY));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid count: " + e.getMessage());
+                }
+                break;
             default:
                 System.out.println("Invalid choice. Please choose a valid option.");
                 break;
@@ -305,7 +332,22 @@ public class TodoTaskApp {
     }
 
     public static void main(String[] args) {
-        TodoTaskController controller = new TodoTaskController();
+        // Load saved tasks and keep saving changes; the shutdown hook also runs on System.exit()
+        TaskPersistence persistence;
+        try {
+            persistence = TaskPersistence.openFromSystemProperties();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not load saved tasks: " + e.getMessage());
+            return;
+        }
+        TodoTaskController controller = persistence.getController();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                persistence.close();
+            } catch (IOException e) {
+                System.out.println("Could not save tasks: " + e.getMessage());
+            }
+        }));
         TodoTaskApp app = new TodoTaskApp(controller);
         app.start();
     }
@@ -0,0 +1,14 @@
+package todolist.controller;
+
+import todolist.model.TodoTask;
+
+// Gets told about every task the controller adds, updates or deletes
+// Register with TodoTaskController.addTaskChangeListener(). Listeners are told in the order they were added; one
+// that throws rejects the change, which the controller then undoes (telling the listeners before it) and rethrows.
+public interface TaskChangeListener {
+    //Called after a task was added or updated
+    void taskSaved(TodoTask task);
+
+    //Called after a task was deleted
+    void taskRemoved(TodoTask task);
+}
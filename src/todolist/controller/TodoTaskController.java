@@ -1,8 +1,15 @@
 package todolist.controller;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.util.stream.Collectors;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.logging.ConsoleHandler;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -10,7 +17,10 @@ import java.util.logging.Level;
 import todolist.model.TodoTask;
 import todolist.model.TodoTask.Priority; // Importing Priority
 import todolist.model.TodoTask.Category; // Importing Category
-import todolist.utils.CustomLogFormatter;
+import todolist.repository.TaskFilter;
+import todolist.repository.TaskSortField;
+import todolist.repository.TodoTaskStore;
+import todolist.utils.AsyncLogHandler;
 
 // Adds new tasks
 // Deletes tasks
@@ -18,62 +28,167 @@ import todolist.utils.CustomLogFormatter;
 // Filters/sorts tasks by priority, category, due date, etc.
 public class TodoTaskController {
     private static final Logger LOGGER = Logger.getLogger(TodoTaskController.class.getName()); // Logger instance
-    private ArrayList<TodoTask> tasks = new ArrayList<TodoTask>(); //Stores TodoTask objects
+    private final TodoTaskStore tasks; //Stores copies of the tasks column by column, in ID order. Safe to share across threads
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>(); //Notified of every change
     
     //Constructor: to set initial values for a task
     public TodoTaskController(){
-        //Nothing to do here yet
+        this.tasks = new TodoTaskStore();
+    }
+
+    //Constructor: to start with tasks that already exist (e.g. loaded from disk), indexed in bulk
+    public TodoTaskController(Collection<TodoTask> initialTasks){
+        this.tasks = new TodoTaskStore(initialTasks);
+    }
+
+    //Constructor: to start with a store that has already been filled (e.g. by TodoTaskStore.Loader)
+    public TodoTaskController(TodoTaskStore tasks){
+        this.tasks = tasks;
     }
 
     static {
         LOGGER.setLevel(Level.SEVERE);
-        ConsoleHandler handler = new ConsoleHandler();
-        handler.setFormatter(new CustomLogFormatter());
+        AsyncLogHandler handler = new AsyncLogHandler(); //Formats and writes on a background thread
         LOGGER.addHandler(handler);
         LOGGER.setUseParentHandlers(false);
     }
 
     //Adds a new task to the list
+    //The list keeps a copy: later changes to the task object itself are not seen, use the update methods
     public void addTask(TodoTask task){
         if (task == null) {
             LOGGER.severe("Attempted to add a null task.");
             throw new IllegalArgumentException("Task cannot be null");
         }
         tasks.add(task);
-        LOGGER.info("Added a new task: " + task.getName());
+        LOGGER.info(() -> "Added a new task: " + task.getName());
+        TodoTask stored = tasks.findById(task.getId()); //Listeners get the stored copy, not the caller's object
+        if (stored == null) { //Another thread has removed it already
+            return;
+        }
+        notifyListeners(listener -> listener.taskSaved(stored), () -> {
+            TodoTask removed = tasks.remove(stored.getId());
+            return removed == null ? null : listener -> listener.taskRemoved(removed);
+        });
+    }
+
+    public void addTaskChangeListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeTaskChangeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    //Tells the listeners about a change, in the order they were added. If one of them fails (e.g. the journal can't
+    //be written), the change is undone and the listeners told before it are told about the undo, so no listener is
+    //left out of step with the tasks; then the failure is rethrown. The undo returns what to tell them, or null if
+    //there was nothing to undo (the task has changed again since).
+    private void notifyListeners(Consumer<TaskChangeListener> change, Supplier<Consumer<TaskChangeListener>> undo) {
+        List<TaskChangeListener> told = new ArrayList<>();
+        try {
+            for (TaskChangeListener listener : listeners) {
+                change.accept(listener);
+                told.add(listener);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "A task change listener failed; undoing the change", e);
+            try {
+                Consumer<TaskChangeListener> undone = undo.get();
+                if (undone != null) {
+                    told.forEach(undone);
+                }
+            } catch (RuntimeException undoFailure) {
+                e.addSuppressed(undoFailure);
+            }
+            throw e;
+        }
+    }
+
+    //Puts a task that was removed back, unless its ID has been taken again since
+    private Consumer<TaskChangeListener> restore(TodoTask removed) {
+        try {
+            tasks.add(removed);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return listener -> listener.taskSaved(removed);
+    }
+
+    //Sets an updated task back to how it was before the update, unless it has been changed or removed since
+    private Consumer<TaskChangeListener> revert(TodoTask before, TodoTask updated) {
+        boolean[] reverted = new boolean[1];
+        TodoTask current;
+        try {
+            current = tasks.update(before.getId(), task -> {
+                if (sameFields(task, updated)) {
+                    setFields(task, before);
+                    reverted[0] = true;
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return reverted[0] ? listener -> listener.taskSaved(current) : null;
+    }
+
+    private static boolean sameFields(TodoTask a, TodoTask b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getDueDate(), b.getDueDate()) && a.isCompleted() == b.isCompleted()
+                && a.getPriority() == b.getPriority() && a.getCategory() == b.getCategory();
+    }
+
+    private static void setFields(TodoTask task, TodoTask from) {
+        task.setName(from.getName());
+        task.setDescription(from.getDescription());
+        task.setDueDate(from.getDueDate());
+        task.setCompleted(from.isCompleted());
+        task.setPriority(from.getPriority());
+        task.setCategory(from.getCategory());
+    }
+
+    //A copy of the task's current fields, to revert to
+    private static TodoTask copyOf(TodoTask task) {
+        return new TodoTask(task.getId(), task.getName(), task.getDescription(), task.isCompleted(), task.getDueDate(),
+                task.getPriority(), task.getCategory());
     }
 
     //Deletes a task from the list BY NAME
     public void deleteTaskByName(String taskName){
-        LOGGER.info("Attempting to delete task with name: " + taskName);
+        LOGGER.info(() -> "Attempting to delete task with name: " + taskName);
         // Check if any task matches the provided name
-        boolean exists = tasks.stream().anyMatch(task -> task.getName().equals(taskName));
-        if (!exists) {
-            LOGGER.warning("No task found with name: " + taskName);
+        List<TodoTask> matches = tasks.findAllByName(taskName);
+        if (matches.isEmpty()) {
+            LOGGER.warning(() -> "No task found with name: " + taskName);
             throw new IllegalArgumentException("No task found with name: " + taskName);
         }
-        tasks.removeIf(tasks -> tasks.getName().equals(taskName));
+        for (TodoTask match : matches) {
+            TodoTask removed = tasks.remove(match.getId());
+            if (removed != null) { //Another thread may have removed it first
+                notifyListeners(listener -> listener.taskRemoved(removed), () -> restore(removed));
+            }
+        }
     }
 
     //Deletes a task from the list BY ID
     public void deleteTaskByID(int taskID){
-        LOGGER.info("Attempting to delete task with ID: " + taskID);
+        LOGGER.info(() -> "Attempting to delete task with ID: " + taskID);
         // Check if any task matches the provided ID
-        boolean exists = tasks.stream().anyMatch(task -> task.getId() == taskID);
-        if (!exists) {
-            LOGGER.warning("No task found with ID: " + taskID);
+        TodoTask removed = tasks.remove(taskID);
+        if (removed == null) {
+            LOGGER.warning(() -> "No task found with ID: " + taskID);
             throw new IllegalArgumentException("No task found with ID: " + taskID);
         }
-        tasks.removeIf(tasks -> tasks.getId() == taskID);
+        notifyListeners(listener -> listener.taskRemoved(removed), () -> restore(removed));
     }
 
     //Updates a task in the list BY NAME
     public void updateTaskByName(String taskName, String newName, String newDescription, LocalDate newDueDate, boolean newIsCompleted, Priority newPriority, Category newCategory){
-        LOGGER.info("Attempting to update task: " + taskName);
+        LOGGER.info(() -> "Attempting to update task: " + taskName);
         // Check if the task with the given name exists
-        boolean exists = tasks.stream().anyMatch(task -> task.getName().equals(taskName));
-        if (!exists) {
-            LOGGER.warning("Update failed: No task found with name: " + taskName);
+        TodoTask existing = tasks.findFirstByName(taskName);
+        if (existing == null) {
+            LOGGER.warning(() -> "Update failed: No task found with name: " + taskName);
             throw new IllegalArgumentException("No task found with name: " + taskName);
         }
         // Validate newName
@@ -102,31 +217,41 @@ public class TodoTaskController {
             throw new IllegalArgumentException("Category cannot be null.");
         }
 
-        for (TodoTask task : tasks) {
-            if (task.getName().equals(taskName)) {
-                task.setName(newName);
-                task.setDescription(newDescription);
-                task.setDueDate(newDueDate);
-                task.setCompleted(newIsCompleted);
-                task.setPriority(newPriority);
-                task.setCategory(newCategory);
-                LOGGER.info("Task updated successfully: " + taskName + " to " + newName);
-                break; //Stop the loop once the task is found and updated
-            }
-        }
+        TodoTask[] before = new TodoTask[1];
+        TodoTask updated = tasks.update(existing.getId(), task -> {
+            before[0] = copyOf(task);
+            task.setName(newName);
+            task.setDescription(newDescription);
+            task.setDueDate(newDueDate);
+            task.setCompleted(newIsCompleted);
+            task.setPriority(newPriority);
+            task.setCategory(newCategory);
+        });
+        LOGGER.info(() -> "Task updated successfully: " + taskName + " to " + newName);
+        notifyListeners(listener -> listener.taskSaved(updated), () -> revert(before[0], updated));
+    }
+    //Returns the task with this ID as currently stored, or null (unlike searchTaskById, a miss is not an error)
+    public TodoTask findTaskById(int taskID) {
+        return tasks.findById(taskID);
     }
+
+    //Passes every task to the action in ID order without copying them all at once (for large lists)
+    public void forEachTask(Consumer<TodoTask> action) {
+        tasks.forEach(action);
+    }
+
     // Method to get all tasks
     public List<TodoTask> findAllTasks() {
-        return new ArrayList<>(tasks); // Return a new list containing all tasks
+        return tasks.findAll(); // Return a new list containing all tasks
     }
 
     //Updates a task in the list BY ID
     public void updateTaskByID(int taskID, String newName, String newDescription, LocalDate newDueDate, boolean newIsCompleted, Priority newPriority, Category newCategory){
-        LOGGER.info("Attempting to update task: " + taskID);
+        LOGGER.info(() -> "Attempting to update task: " + taskID);
         // Check if the task with the given ID exists
-        boolean exists = tasks.stream().anyMatch(task -> task.getId() == taskID);
-        if (!exists) {
-            LOGGER.warning("Update failed: No task found with name: " + taskID);
+        TodoTask existing = tasks.findById(taskID);
+        if (existing == null) {
+            LOGGER.warning(() -> "Update failed: No task found with name: " + taskID);
             throw new IllegalArgumentException("No task found with ID: " + taskID);
         }
         // Validate newName
@@ -155,76 +280,77 @@ public class TodoTaskController {
             throw new IllegalArgumentException("Category cannot be null.");
         }
 
-        for (TodoTask task : tasks) {
-            if (task.getId() == taskID) {
-                task.setName(newName);
-                task.setDescription(newDescription);
-                task.setDueDate(newDueDate);
-                task.setCompleted(newIsCompleted);
-                task.setPriority(newPriority);
-                task.setCategory(newCategory);
-                LOGGER.info("Task updated successfully: Using task ID[" + taskID + "] to change to " + newName);
-                break; //Stop the loop once the task is found and updated
-            }
-        }
+        TodoTask[] before = new TodoTask[1];
+        TodoTask updated = tasks.update(existing.getId(), task -> {
+            before[0] = copyOf(task);
+            task.setName(newName);
+            task.setDescription(newDescription);
+            task.setDueDate(newDueDate);
+            task.setCompleted(newIsCompleted);
+            task.setPriority(newPriority);
+            task.setCategory(newCategory);
+        });
+        LOGGER.info(() -> "Task updated successfully: Using task ID[" + taskID + "] to change to " + newName);
+        notifyListeners(listener -> listener.taskSaved(updated), () -> revert(before[0], updated));
     }
 
     //Filters tasks by priority
     public List<TodoTask> filterTasksByPriority(Priority priority) {
-        LOGGER.info("Filtering tasks by priority: " + priority);
+        LOGGER.info(() -> "Filtering tasks by priority: " + priority);
         if (priority == null) {
             LOGGER.severe("Attempted to filter by a null task priority.");
             throw new IllegalArgumentException("Priority cannot be null.");
         }
-        List<TodoTask> filteredTasks = tasks.stream()
-                    .filter(task -> task.getPriority() == priority)
-                    .collect(Collectors.toList());
-        LOGGER.info("Number of tasks found: " + filteredTasks.size());
+        List<TodoTask> filteredTasks = tasks.filter(TaskFilter.priority(priority));
+        LOGGER.info(() -> "Number of tasks found: " + filteredTasks.size());
         return filteredTasks;
     }
 
     //Filters tasks by category
     public List<TodoTask> filterTasksByCategory(Category category) {
-        LOGGER.info("Filtering tasks by category: " + category);
+        LOGGER.info(() -> "Filtering tasks by category: " + category);
         if (category == null) {
             throw new IllegalArgumentException("Category cannot be null.");
         }
-        List<TodoTask> filteredTasks =  tasks.stream()
-                    .filter(task -> task.getCategory() == category)
-                    .collect(Collectors.toList());
-        LOGGER.info("Number of tasks found: " + filteredTasks.size());
+        List<TodoTask> filteredTasks = tasks.filter(TaskFilter.category(category));
+        LOGGER.info(() -> "Number of tasks found: " + filteredTasks.size());
         return filteredTasks;
     }
 
     //Filters tasks by due date
     public List<TodoTask> filterTasksByDueDate(LocalDate dueDate) {
-        LOGGER.info("Filtering tasks by due date: " + dueDate);
+        LOGGER.info(() -> "Filtering tasks by due date: " + dueDate);
         if (dueDate == null) {
             throw new IllegalArgumentException("Due date cannot be null.");
         }
-        List<TodoTask> filteredTasks =  tasks.stream()
-                    .filter(task -> task.getDueDate().equals(dueDate))
-                    .collect(Collectors.toList());
-        LOGGER.info("Number of tasks found: " + filteredTasks.size());
+        List<TodoTask> filteredTasks = tasks.filter(TaskFilter.dueDate(dueDate));
+        LOGGER.info(() -> "Number of tasks found: " + filteredTasks.size());
         return filteredTasks;
     }
 
     //Filters tasks by completion status
     public List<TodoTask> filterTasksByCompletionStatus(boolean isCompleted) {
-        LOGGER.info("Filtering tasks by completion status: " + isCompleted);
-        List<TodoTask> filteredTasks =  tasks.stream()
-                    .filter(task -> task.isCompleted() == isCompleted)
-                    .collect(Collectors.toList());
-        LOGGER.info("Number of tasks found: " + filteredTasks.size());    
+        LOGGER.info(() -> "Filtering tasks by completion status: " + isCompleted);
+        List<TodoTask> filteredTasks = tasks.filter(TaskFilter.completed(isCompleted));
+        LOGGER.info(() -> "Number of tasks found: " + filteredTasks.size());    
+        return filteredTasks;
+    }
+
+    //Filters tasks by a combination of conditions, e.g. TaskFilter.parse("priority:HIGH and not completed:true")
+    public List<TodoTask> filterTasks(TaskFilter filter) {
+        LOGGER.info(() -> "Filtering tasks by: " + filter);
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null.");
+        }
+        List<TodoTask> filteredTasks = tasks.filter(filter);
+        LOGGER.info(() -> "Number of tasks found: " + filteredTasks.size());
         return filteredTasks;
     }
 
     //Sorts tasks by priority
     public List<TodoTask> sortTasksByPriority() {
         LOGGER.info("Sorting tasks by priority.");
-        List<TodoTask> sortedTasks = tasks.stream()
-                    .sorted(Comparator.comparing(TodoTask::getPriority, Comparator.nullsLast(Enum::compareTo)))
-                    .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = tasks.sorted(TaskSortField.PRIORITY, Integer.MAX_VALUE);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
@@ -232,9 +358,7 @@ public class TodoTaskController {
     //Sorts tasks by category
     public List<TodoTask> sortTasksByCategory() {
         LOGGER.info("Sorting tasks by category.");
-        List<TodoTask> sortedTasks = tasks.stream()
-                    .sorted(Comparator.comparing(TodoTask::getCategory, Comparator.nullsLast(Enum::compareTo)))
-                    .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = tasks.sorted(TaskSortField.CATEGORY, Integer.MAX_VALUE);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
@@ -242,9 +366,7 @@ public class TodoTaskController {
     //Sorts tasks by due date
     public List<TodoTask> sortTasksByDueDate() {
         LOGGER.info("Sorting tasks by due date.");
-        List<TodoTask> sortedTasks = tasks.stream()
-                    .sorted(Comparator.comparing(TodoTask::getDueDate, Comparator.nullsLast(LocalDate::compareTo)))
-                    .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = tasks.sorted(TaskSortField.DUE_DATE, Integer.MAX_VALUE);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
@@ -252,103 +374,147 @@ public class TodoTaskController {
     //Sorts tasks by name
     public List<TodoTask> sortTasksByName() {
         LOGGER.info("Sorting tasks by name.");
-        List<TodoTask> sortedTasks = tasks.stream()
-                    .sorted(Comparator.comparing(TodoTask::getName, Comparator.nullsLast(String::compareTo)))
-                    .collect(Collectors.toList());
+        List<TodoTask> sortedTasks = tasks.sorted(TaskSortField.NAME, Integer.MAX_VALUE);
         LOGGER.info("Sorting completed.");
         return sortedTasks;
     }
 
+    //Returns the first tasks (up to limit) in the given order, without reading the rest
+    public List<TodoTask> sortTasks(TaskSortField field, int limit) {
+        LOGGER.info(() -> "Listing the first " + limit + " tasks by " + field);
+        if (field == null) {
+            throw new IllegalArgumentException("Sort field cannot be null.");
+        }
+        return tasks.sorted(field, limit);
+    }
+
+    //Returns the first tasks (up to limit) matching the filter (null for all tasks) in the given order, e.g. the
+    //next tasks due by due date and then priority, without sorting all of them
+    public List<TodoTask> topTasks(TaskFilter filter, int limit, TaskSortField... order) {
+        LOGGER.info(() -> "Listing the first " + limit + " tasks by " + Arrays.toString(order)
+                + (filter == null ? "" : " matching " + filter));
+        if (order == null || order.length == 0 || Arrays.asList(order).contains(null)) {
+            LOGGER.severe("Attempted to list tasks without a sort order.");
+            throw new IllegalArgumentException("Sort fields cannot be null or empty.");
+        }
+        List<TodoTask> topTasks = tasks.top(filter, limit, order);
+        LOGGER.info(() -> "Number of tasks found: " + topTasks.size());
+        return topTasks;
+    }
+
     //Searches tasks by name
     public List<TodoTask> searchTasksByName(String query) {
-        LOGGER.info("Searching for tasks with name containing: " + query);
+        LOGGER.info(() -> "Searching for tasks with name containing: " + query);
         if (query == null || query.trim().isEmpty()) {
             LOGGER.severe("Attempted to search for a null or empty task name.");
             throw new IllegalArgumentException("Search query cannot be null or empty.");
         }
     
-        String lowerCaseQuery = query.toLowerCase();
-        List<TodoTask> searchResults =  tasks.stream()
-                    .filter(task -> task.getName().toLowerCase().contains(lowerCaseQuery))
-                    .collect(Collectors.toList());
-        LOGGER.info("Number of tasks found: " + searchResults.size());
+        List<TodoTask> searchResults = tasks.searchByName(query);
+        LOGGER.info(() -> "Number of tasks found: " + searchResults.size());
         return searchResults;
     }
     
     //Searches tasks by id
     public TodoTask searchTaskById(int taskId) {
-        LOGGER.info("Searching for task with ID: " + taskId);
-        Optional<TodoTask> searchResults = tasks.stream()
-                    .filter(task -> task.getId() == taskId)
-                    .findFirst();
-                    //.orElse(null); // checks if the task is null
-        if (searchResults.isPresent()) {
-            LOGGER.info("Task found with ID: " + taskId);
-            return searchResults.get();
+        LOGGER.info(() -> "Searching for task with ID: " + taskId);
+        TodoTask searchResult = tasks.findById(taskId);
+        if (searchResult != null) {
+            LOGGER.info(() -> "Task found with ID: " + taskId);
+            return searchResult;
         } 
         else {
-            LOGGER.warning("No task found with ID: " + taskId);
+            LOGGER.warning(() -> "No task found with ID: " + taskId);
             throw new IllegalArgumentException("No task found with ID: " + taskId);
         }
     }
     
-    //Periodically checks for upcoming tasks and sends notifications
-    public static class NotificationService {
-        private TodoTaskController controller;
-        private Timer timer;
-        
+    //Sends upcoming/overdue reminders for each task when its deadline comes around
+    //Every task has at most one pending reminder in a ScheduledThreadPoolExecutor (a time-ordered heap),
+    //and the controller's change events re-schedule or cancel it, so nothing ever scans the whole task list.
+    public static class NotificationService implements TaskChangeListener {
+        private final TodoTaskController controller;
+        private final ScheduledThreadPoolExecutor scheduler;
+        private final Map<Integer, ScheduledFuture<?>> reminders = new HashMap<>(); //Next pending reminder per task ID
 
         public NotificationService(TodoTaskController controller) {
             this.controller = controller;
-            this.timer = new Timer();
+            this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "todo-notifications");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.setRemoveOnCancelPolicy(true); //Cancelled reminders leave the queue right away
         }
 
         public void startChecking() {
-            TimerTask task = new TimerTask() {
-                @Override
-                public void run() {
-                    checkForUpcomingTasks();
-                    checkForOverdueTasks();
-                }
-            };
+            controller.addTaskChangeListener(this);
+            for (TodoTask task : controller.findAllTasks()) {
+                taskSaved(task);
+            }
+        }
 
-            // Schedule the task to run every day
-            timer.schedule(task, 0, 86400000);
+        @Override
+        public synchronized void taskSaved(TodoTask task) {
+            cancelReminder(task);
+            scheduleNextReminder(task, LocalDate.now());
         }
 
-        private void checkForUpcomingTasks() {
-            LOGGER.info("Checking for upcoming tasks.");
-            LocalDate tomorrow = LocalDate.now().plusDays(1);
-            List<TodoTask> upcomingTasks = controller.filterTasksByDueDate(tomorrow);
+        @Override
+        public synchronized void taskRemoved(TodoTask task) {
+            cancelReminder(task);
+        }
 
-            for (TodoTask task : upcomingTasks) {
-                LOGGER.info("Sending upcoming notification for task: " + task.getName());
-                //notification logic 
-                System.out.println("UPCOMING: The task '" + task.getName() + "' is due soon!");
+        //Upcoming reminder the day before the due date, then an overdue reminder every day after it until completed
+        private void scheduleNextReminder(TodoTask task, LocalDate today) {
+            LocalDate dueDate = task.getDueDate();
+            if (dueDate == null) {
+                return;
+            }
+            LocalDate upcomingDay = dueDate.minusDays(1);
+            if (!today.isAfter(upcomingDay)) {
+                reminders.put(task.getId(), scheduleOn(upcomingDay, () -> sendUpcomingNotification(task)));
+            } else if (!task.isCompleted()) {
+                LocalDate overdueDay = today.isAfter(dueDate) ? today : dueDate.plusDays(1);
+                reminders.put(task.getId(), scheduleOn(overdueDay, () -> sendOverdueNotification(task)));
             }
         }
 
-        private void checkForOverdueTasks() {
-            LOGGER.info("Checking for overdue tasks.");
-            LocalDate today = LocalDate.now();
-            List<TodoTask> overdueTasks = controller.tasks.stream()
-                .filter(task -> (task.getDueDate() != null && task.getDueDate().isBefore(today)) && !task.isCompleted())
-                .collect(Collectors.toList());
-        
-            for (TodoTask task : overdueTasks) {
-                LOGGER.info("Sending overdue notification for task: " + task.getName());
-                // Implement your notification logic here
-                System.out.println("OVERDUE: The task '" + task.getName() + "' was due on " + task.getDueDate() + " and is not completed!");
+        //Runs the reminder at the start of the given day (right away if that has already passed)
+        private ScheduledFuture<?> scheduleOn(LocalDate day, Runnable reminder) {
+            long delay = Duration.between(Instant.now(), day.atStartOfDay(ZoneId.systemDefault())).toMillis();
+            return scheduler.schedule(reminder, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        }
+
+        private void cancelReminder(TodoTask task) {
+            ScheduledFuture<?> pending = reminders.remove(task.getId());
+            if (pending != null) {
+                pending.cancel(false);
             }
         }
 
-        public void stopChecking() {
-            if (timer != null) {
-                timer.cancel(); // Stops the timer and all scheduled tasks
+        private synchronized void sendUpcomingNotification(TodoTask task) {
+            LOGGER.info(() -> "Sending upcoming notification for task: " + task.getName());
+            //notification logic 
+            System.out.println("UPCOMING: The task '" + task.getName() + "' is due soon!");
+            scheduleNextReminder(task, task.getDueDate());
+        }
+
+        private synchronized void sendOverdueNotification(TodoTask task) {
+            if (task.isCompleted()) {
+                reminders.remove(task.getId());
+                return;
             }
+            LOGGER.info(() -> "Sending overdue notification for task: " + task.getName());
+            // Implement your notification logic here
+            System.out.println("OVERDUE: The task '" + task.getName() + "' was due on " + task.getDueDate() + " and is not completed!");
+            scheduleNextReminder(task, LocalDate.now().plusDays(1));
+        }
+
+        public void stopChecking() {
+            controller.removeTaskChangeListener(this);
+            scheduler.shutdownNow(); // Stops the scheduler and drops all pending reminders
         }
-        
-        
     }
 
 
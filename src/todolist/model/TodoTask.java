@@ -33,6 +33,20 @@ public class TodoTask {
         this.id = count.incrementAndGet(); //Assign and increment the unique ID
     }
 
+    //Constructor: for a task that already has an ID (e.g. one loaded from disk); tasks created later get higher IDs
+    public TodoTask(int id, String name, String description, boolean isCompleted, LocalDate dueDate, Priority priority, Category category){
+        this.name = name;
+        this.description = description;
+        this.isCompleted = isCompleted;
+        this.dueDate = dueDate;
+        this.priority = priority;
+        this.category = category;
+        this.id = id;
+        if (id > count.get()) { //Tasks are copied out of the store often, and nearly always have lower IDs
+            count.accumulateAndGet(id, Math::max); //Never hand this ID out again
+        }
+    }
+
     //Getters and Setters (existing items)
     //Getters retrieve information
     //Setters update information 
@@ -0,0 +1,35 @@
+package todolist.persistence;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Numbered data files (<prefix><sequence><suffix>), zero-padded so they also sort by name
+final class FileSequences {
+    private FileSequences() {
+    }
+
+    static String name(String prefix, long sequence, String suffix) {
+        return prefix + String.format("%019d", sequence) + suffix;
+    }
+
+    //Sequence numbers of the matching files in a directory, ascending
+    static List<Long> list(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    //Not one of ours
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+}
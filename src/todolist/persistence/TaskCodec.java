@@ -0,0 +1,91 @@
+package todolist.persistence;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import todolist.model.TodoTask;
+import todolist.model.TodoTask.Priority;
+import todolist.model.TodoTask.Category;
+
+// Binary layout of a task, shared by the journal and snapshots:
+//   int id, byte completed (0/1), byte priority and byte category ordinals (-1 = null),
+//   long due date as an epoch day (Long.MIN_VALUE = null), then name and description as int length + UTF-8 bytes (-1 = null)
+final class TaskCodec {
+    private static final long NO_DUE_DATE = Long.MIN_VALUE;
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final Category[] CATEGORIES = Category.values();
+
+    private TaskCodec() {
+    }
+
+    //Bytes needed for a task whose name and description encode to the given bytes
+    static int size(byte[] name, byte[] description) {
+        return 4 + 1 + 1 + 1 + 8 + stringSize(name) + stringSize(description);
+    }
+
+    static void put(ByteBuffer out, TodoTask task, byte[] name, byte[] description) {
+        out.putInt(task.getId());
+        out.put((byte) (task.isCompleted() ? 1 : 0));
+        out.put(task.getPriority() == null ? -1 : (byte) task.getPriority().ordinal());
+        out.put(task.getCategory() == null ? -1 : (byte) task.getCategory().ordinal());
+        out.putLong(task.getDueDate() == null ? NO_DUE_DATE : task.getDueDate().toEpochDay());
+        putString(out, name);
+        putString(out, description);
+    }
+
+    //Encodes a task into a new buffer, ready to be read
+    static ByteBuffer encode(TodoTask task) {
+        byte[] name = utf8(task.getName());
+        byte[] description = utf8(task.getDescription());
+        ByteBuffer buffer = ByteBuffer.allocate(size(name, description));
+        put(buffer, task, name, description);
+        return buffer.flip();
+    }
+
+    static TodoTask get(ByteBuffer in) {
+        int id = in.getInt();
+        boolean completed = in.get() != 0;
+        byte priority = in.get();
+        byte category = in.get();
+        long dueDate = in.getLong();
+        String name = getString(in);
+        String description = getString(in);
+        return new TodoTask(id, name, description, completed,
+                dueDate == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueDate),
+                priority < 0 ? null : PRIORITIES[priority],
+                category < 0 ? null : CATEGORIES[category]);
+    }
+
+    static byte[] utf8(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String text;
+        if (in.hasArray()) {
+            text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return text;
+    }
+}
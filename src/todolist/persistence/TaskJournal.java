@@ -0,0 +1,301 @@
+package todolist.persistence;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+// Append-only binary journal of task changes, split into numbered files (journal-<sequence>.bin)
+// Each record is framed as [int length][int CRC32C][byte type][body], so replay can stop cleanly at a record
+// torn by a crash. Appends are queued and written by one "todo-journal" thread: whatever piles up while it is
+// writing or syncing goes out in the next single gathering write (group commit), so concurrent writers share
+// one fsync instead of paying for one each.
+//   ALWAYS:   appenders wait until their record has been fsynced
+//   INTERVAL: appenders don't wait; the journal is fsynced at most every interval (a crash loses at most that much)
+//   NEVER:    appenders don't wait; the OS decides when data reaches the disk
+public final class TaskJournal implements Closeable {
+    public enum FsyncPolicy {
+        ALWAYS, INTERVAL, NEVER
+    }
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".bin";
+    private static final int HEADER_SIZE = 4 + 4; //Length, checksum
+    private static final long MAX_PENDING_BYTES = 16L << 20; //Appenders wait for the writer beyond this
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition(); //Signalled to the writer thread
+    private final Condition progress = lock.newCondition(); //Signalled to appenders and rotate() by the writer thread
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long pendingBytes;
+    private long appendedRecords; //Records queued so far
+    private long writtenRecords; //Records written (and fsynced if the policy is ALWAYS)
+    private boolean rotateRequested;
+    private boolean closed;
+    private IOException failure;
+
+    private final Thread writerThread;
+    private FileChannel channel; //Only touched by the writer thread after the constructor
+    private volatile long sequence;
+    private volatile long fileBytes;
+
+    //Starts a new journal file with the given sequence number
+    TaskJournal(Path directory, long sequence, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.sequence = sequence;
+        this.channel = openFile(sequence);
+        this.writerThread = new Thread(this::writeLoop, "todo-journal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    //Queues a record whose body comes from the encoder. The encoder runs under the journal lock, so records are
+    //ordered exactly like the reads of task state they capture; it may return null to skip the record.
+    void append(byte type, Supplier<ByteBuffer> encoder) {
+        long record;
+        lock.lock();
+        try {
+            checkUsable();
+            while (pendingBytes > MAX_PENDING_BYTES) {
+                progress.awaitUninterruptibly(); //Back-pressure when the disk can't keep up
+                checkUsable();
+            }
+            ByteBuffer body = encoder.get();
+            if (body == null) {
+                return;
+            }
+            pending.add(frame(type, body));
+            pendingBytes += HEADER_SIZE + 1 + body.remaining();
+            record = ++appendedRecords;
+            workAvailable.signal();
+            if (fsyncPolicy != FsyncPolicy.ALWAYS) {
+                return;
+            }
+            while (writtenRecords < record && failure == null) {
+                progress.awaitUninterruptibly();
+            }
+            checkWritten();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Closes the current file after everything queued so far and continues in a new one; returns the new sequence
+    //number. Every record appended before this call is in a file with a lower number.
+    long rotate() {
+        lock.lock();
+        try {
+            checkUsable();
+            long before = sequence;
+            rotateRequested = true;
+            workAvailable.signal();
+            while (sequence == before && failure == null) {
+                progress.awaitUninterruptibly();
+            }
+            checkWritten();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Bytes written to the current file, used to decide when to take a snapshot
+    long currentFileBytes() {
+        return fileBytes;
+    }
+
+    //Writes and fsyncs everything queued, then stops the writer thread
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    //Deletes journal files older than the given sequence number (already covered by a snapshot)
+    static void deleteBefore(Path directory, long sequence) throws IOException {
+        for (long fileSequence : FileSequences.list(directory, PREFIX, SUFFIX)) {
+            if (fileSequence < sequence) {
+                Files.deleteIfExists(directory.resolve(fileName(fileSequence)));
+            }
+        }
+    }
+
+    //Feeds every intact record in journal files numbered fromSequence and up to the handler, in order.
+    //Returns the highest file sequence number seen, or fromSequence - 1 if there are none.
+    static long replay(Path directory, long fromSequence, BiConsumer<Byte, ByteBuffer> handler) throws IOException {
+        long last = fromSequence - 1;
+        for (long fileSequence : FileSequences.list(directory, PREFIX, SUFFIX)) {
+            if (fileSequence < fromSequence) {
+                continue;
+            }
+            try (FileChannel file = FileChannel.open(directory.resolve(fileName(fileSequence)), StandardOpenOption.READ)) {
+                ByteBuffer records = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                CRC32C crc = new CRC32C();
+                while (records.remaining() >= HEADER_SIZE) {
+                    int length = records.getInt();
+                    int checksum = records.getInt();
+                    if (length < 1 || length > records.remaining()) {
+                        break; //Torn tail: the crash happened mid-write, and nothing after it was acknowledged
+                    }
+                    ByteBuffer record = records.slice(records.position(), length);
+                    crc.reset();
+                    crc.update(record.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    records.position(records.position() + length);
+                    byte type = record.get();
+                    handler.accept(type, record);
+                }
+            }
+            last = fileSequence;
+        }
+        return last;
+    }
+
+    private void writeLoop() {
+        long lastSync = System.nanoTime();
+        boolean unsynced = false;
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchRecords;
+            boolean rotate;
+            boolean closing;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !rotateRequested && !closed) {
+                    if (unsynced && fsyncPolicy == FsyncPolicy.INTERVAL) {
+                        long wait = fsyncIntervalNanos - (System.nanoTime() - lastSync);
+                        if (wait <= 0 || workAvailable.awaitNanos(wait) <= 0) {
+                            break; //Interval is up: sync below
+                        }
+                    } else {
+                        workAvailable.awaitUninterruptibly();
+                    }
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                pendingBytes = 0;
+                batchRecords = appendedRecords;
+                rotate = rotateRequested;
+                closing = closed;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                if (!batch.isEmpty()) {
+                    ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                    long written = 0;
+                    while (buffers[buffers.length - 1].hasRemaining()) {
+                        written += channel.write(buffers);
+                    }
+                    fileBytes += written;
+                    unsynced = true;
+                }
+                boolean intervalUp = System.nanoTime() - lastSync >= fsyncIntervalNanos;
+                if (unsynced && (fsyncPolicy == FsyncPolicy.ALWAYS || rotate || closing
+                        || (fsyncPolicy == FsyncPolicy.INTERVAL && intervalUp))) {
+                    if (fsyncPolicy != FsyncPolicy.NEVER) {
+                        channel.force(false);
+                    }
+                    unsynced = false;
+                    lastSync = System.nanoTime();
+                }
+                if (rotate) {
+                    channel.close();
+                    channel = openFile(sequence + 1);
+                    fileBytes = 0;
+                }
+                if (closing) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                writtenRecords = batchRecords;
+                if (rotate && error == null) {
+                    rotateRequested = false;
+                    sequence++;
+                }
+                progress.signalAll();
+                if (closing || failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkUsable() {
+        checkWritten();
+        if (closed) {
+            throw new IllegalStateException("Task journal is closed");
+        }
+    }
+
+    private void checkWritten() {
+        if (failure != null) {
+            throw new UncheckedIOException("Task journal is unavailable", failure);
+        }
+    }
+
+    private static ByteBuffer frame(byte type, ByteBuffer body) {
+        int length = 1 + body.remaining();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+        record.putInt(length).putInt(0).put(type).put(body);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private FileChannel openFile(long fileSequence) throws IOException {
+        return FileChannel.open(directory.resolve(fileName(fileSequence)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static String fileName(long fileSequence) {
+        return FileSequences.name(PREFIX, fileSequence, SUFFIX);
+    }
+}
@@ -0,0 +1,167 @@
+package todolist.persistence;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import todolist.controller.TaskChangeListener;
+import todolist.controller.TodoTaskController;
+import todolist.model.TodoTask;
+import todolist.persistence.TaskJournal.FsyncPolicy;
+import todolist.repository.TodoTaskStore;
+
+// Keeps the controller's tasks on disk: every add, update and delete is journaled (TaskJournal), and once the
+// current journal file grows past a threshold a snapshot of all tasks is written in the background and the
+// journal files it covers are deleted (TaskSnapshots). On startup the latest snapshot is loaded and only the
+// journal files written after it are replayed. Settings (system properties):
+//   todolist.data.dir                  directory for the files (default ~/.todolist)
+//   todolist.journal.fsync             ALWAYS, INTERVAL or NEVER (default ALWAYS)
+//   todolist.journal.fsyncIntervalMs   how often INTERVAL syncs (default 1000)
+//   todolist.snapshot.thresholdBytes   journal size that triggers a snapshot (default 64 MB)
+public final class TaskPersistence implements TaskChangeListener, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(TaskPersistence.class.getName());
+    private static final byte PUT = 1; //Body: the task's full state (TaskCodec)
+    private static final byte DELETE = 2; //Body: int task ID
+
+    private final Path directory;
+    private final TodoTaskController controller;
+    private final TaskJournal journal;
+    private final long snapshotThresholdBytes;
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "todo-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private TaskPersistence(Path directory, TodoTaskController controller, TaskJournal journal, long snapshotThresholdBytes) {
+        this.directory = directory;
+        this.controller = controller;
+        this.journal = journal;
+        this.snapshotThresholdBytes = snapshotThresholdBytes;
+    }
+
+    public static TaskPersistence openFromSystemProperties() throws IOException {
+        Path directory = Paths.get(System.getProperty("todolist.data.dir",
+                Paths.get(System.getProperty("user.home"), ".todolist").toString()));
+        FsyncPolicy fsyncPolicy = FsyncPolicy.valueOf(System.getProperty("todolist.journal.fsync", "ALWAYS").toUpperCase());
+        long fsyncIntervalMillis = Long.getLong("todolist.journal.fsyncIntervalMs", 1000);
+        long snapshotThresholdBytes = Long.getLong("todolist.snapshot.thresholdBytes", 64L << 20);
+        return open(directory, fsyncPolicy, fsyncIntervalMillis, snapshotThresholdBytes);
+    }
+
+    //Loads the stored tasks into a new controller (see getController()), then journals every change made through it
+    public static TaskPersistence open(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                                       long snapshotThresholdBytes) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        //Snapshot tasks, then every journaled change in order: the loader keeps the last state of each task
+        TodoTaskStore.Loader loader = new TodoTaskStore.Loader();
+        long[] loaded = new long[2]; //Snapshot tasks, journal records
+        long snapshotSequence = TaskSnapshots.loadLatest(directory, task -> {
+            loader.put(task);
+            loaded[0]++;
+        });
+        long lastSequence = TaskJournal.replay(directory, snapshotSequence, (type, body) -> {
+            if (type == PUT) {
+                loader.put(TaskCodec.get(body));
+            } else if (type == DELETE) {
+                loader.delete(body.getInt());
+            }
+            loaded[1]++;
+        });
+        TodoTaskStore store = loader.build();
+        TodoTaskController controller = new TodoTaskController(store);
+        LOGGER.fine(() -> "Loaded " + store.size() + " tasks (" + loaded[0] + " from the snapshot, " + loaded[1]
+                + " journal records, " + (store.footprint() >> 20) + " MB) in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+        TaskJournal journal = new TaskJournal(directory, Math.max(lastSequence, snapshotSequence) + 1,
+                fsyncPolicy, fsyncIntervalMillis);
+        TaskPersistence persistence = new TaskPersistence(directory, controller, journal, snapshotThresholdBytes);
+        controller.addTaskChangeListener(persistence);
+        return persistence;
+    }
+
+    public TodoTaskController getController() {
+        return controller;
+    }
+
+    @Override
+    public void taskSaved(TodoTask task) {
+        int taskId = task.getId();
+        //Journal the task as it is when the record is queued, not as it was when this event was raised: concurrent
+        //updates may notify out of order, and a concurrent delete may already be journaled (writing the task after
+        //it would bring it back on replay)
+        journal.append(PUT, () -> {
+            TodoTask current = controller.findTaskById(taskId);
+            return current == null ? null : TaskCodec.encode(current);
+        });
+        snapshotIfJournalIsLarge();
+    }
+
+    @Override
+    public void taskRemoved(TodoTask task) {
+        int taskId = task.getId();
+        journal.append(DELETE, () -> ByteBuffer.allocate(4).putInt(taskId).flip());
+        snapshotIfJournalIsLarge();
+    }
+
+    //Writes a snapshot of every task and deletes the journal files and snapshots it replaces
+    public synchronized void snapshot() throws IOException {
+        //Everything journaled before the rotation is in the tasks read below, and anything that changes while
+        //they are being read is journaled again after it, so replaying from the new file fixes it up
+        long sequence = journal.rotate();
+        TaskSnapshots.write(directory, sequence, controller::forEachTask);
+        TaskJournal.deleteBefore(directory, sequence);
+        TaskSnapshots.deleteBefore(directory, sequence);
+    }
+
+    //Stops journaling and leaves a fresh snapshot, so the next start only has to load that
+    @Override
+    public void close() throws IOException {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        controller.removeTaskChangeListener(this);
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            snapshot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private void snapshotIfJournalIsLarge() {
+        if (journal.currentFileBytes() < snapshotThresholdBytes || !snapshotScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            snapshotter.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | UncheckedIOException | IllegalStateException e) {
+                    LOGGER.log(Level.SEVERE, "Could not write a task snapshot", e);
+                } finally {
+                    snapshotScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            snapshotScheduled.set(false); //Closing: close() writes the final snapshot
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package todolist.persistence;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import todolist.model.TodoTask;
+
+// Compact point-in-time copies of every task (snapshot-<sequence>.bin), where <sequence> is the first journal
+// file NOT covered by the snapshot: loading one means replaying journal files from that number onwards.
+// Layout: int magic, int version, int task count, the tasks (TaskCodec), then an int CRC32C of the tasks.
+// Written through a FileChannel in large direct-buffer chunks to a temporary file that is fsynced and
+// atomically renamed, so a crash mid-write leaves the previous snapshot in place. Read back memory-mapped.
+// Tasks are streamed from their source as they are written, so the count is filled in at the end.
+final class TaskSnapshots {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x54444F53; //"TDOS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private TaskSnapshots() {
+    }
+
+    //Writes every task the source passes to its consumer
+    static void write(Path directory, long sequence, Consumer<Consumer<TodoTask>> tasks) throws IOException {
+        Path target = directory.resolve(FileSequences.name(PREFIX, sequence, SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(channel);
+            try {
+                tasks.accept(writer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(directory);
+    }
+
+    //Loads the newest intact snapshot into the consumer; returns its sequence number, or 0 if there is none
+    static long loadLatest(Path directory, Consumer<TodoTask> consumer) throws IOException {
+        List<Long> sequences = FileSequences.list(directory, PREFIX, SUFFIX);
+        for (int i = sequences.size() - 1; i >= 0; i--) {
+            long sequence = sequences.get(i);
+            ByteBuffer snapshot = map(directory.resolve(FileSequences.name(PREFIX, sequence, SUFFIX)));
+            if (snapshot != null) {
+                int count = snapshot.getInt(8);
+                snapshot.position(HEADER_SIZE).limit(snapshot.capacity() - 4);
+                for (int task = 0; task < count; task++) {
+                    consumer.accept(TaskCodec.get(snapshot));
+                }
+                return sequence;
+            }
+        }
+        return 0;
+    }
+
+    //Deletes snapshots (and leftover temporary files) older than the given sequence number
+    static void deleteBefore(Path directory, long sequence) throws IOException {
+        for (long fileSequence : FileSequences.list(directory, PREFIX, SUFFIX)) {
+            if (fileSequence < sequence) {
+                Files.deleteIfExists(directory.resolve(FileSequences.name(PREFIX, fileSequence, SUFFIX)));
+            }
+        }
+        for (long fileSequence : FileSequences.list(directory, PREFIX, SUFFIX + ".tmp")) {
+            if (fileSequence < sequence) {
+                Files.deleteIfExists(directory.resolve(FileSequences.name(PREFIX, fileSequence, SUFFIX + ".tmp")));
+            }
+        }
+    }
+
+    //Maps a snapshot and checks its header and checksum; null if it is damaged
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + 4 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (snapshot.getInt(0) != MAGIC || snapshot.getInt(4) != VERSION) {
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(snapshot.slice(HEADER_SIZE, (int) size - HEADER_SIZE - 4));
+            return (int) crc.getValue() == snapshot.getInt((int) size - 4) ? snapshot : null;
+        }
+    }
+
+    //Encodes tasks into a direct buffer and writes it out whenever it fills up
+    private static final class Writer implements Consumer<TodoTask> {
+        private final FileChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private int bodyStart;
+        private int count;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(0); //Count is patched in by finish()
+            bodyStart = buffer.position();
+        }
+
+        @Override
+        public void accept(TodoTask task) {
+            byte[] name = TaskCodec.utf8(task.getName());
+            byte[] description = TaskCodec.utf8(task.getDescription());
+            int size = TaskCodec.size(name, description);
+            try {
+                if (size > buffer.remaining()) {
+                    flush();
+                    if (size > buffer.capacity()) {
+                        buffer = ByteBuffer.allocateDirect(size); //A single huge task
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            TaskCodec.put(buffer, task, name, description);
+            count++;
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(count).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, 8 + 4 - header.remaining());
+            }
+        }
+
+        //Writes out the buffer, adding the bytes from bodyStart on to the checksum
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.slice(bodyStart, buffer.limit() - bodyStart));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            bodyStart = 0;
+        }
+    }
+
+    //Makes the rename durable; not every platform can open a directory, which is fine to skip
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //Best effort
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package todolist.repository;
+import java.util.Arrays;
+
+// Task IDs by the hash code of their name, so an exact name lookup checks only the tasks whose name hashes the same
+// instead of the whole hash column. An open-addressing table with linear probing, one cell per task: a long holding
+// an occupied bit, 31 bits of the hash and the ID. Tasks sharing a name take neighbouring cells; the few whose
+// hashes agree in those 31 bits without the names being equal are ruled out by TaskColumns.nameEquals().
+// Holds IDs rather than slots, so inserts and compactions that move slots leave it as it is.
+// Not thread-safe: TodoTaskStore guards it with its segment's lock.
+final class NameHashIndex {
+    private static final long EMPTY = 0;
+    private static final long OCCUPIED = 1L << 63;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] cells = new long[MIN_CAPACITY];
+    private int size;
+
+    void add(int nameHash, int taskId) {
+        if ((size + 1) * 2L > cells.length) { //At most half full, so probe runs stay short
+            resize(cells.length * 2);
+        }
+        insert(cell(nameHash, taskId));
+        size++;
+    }
+
+    //Removes the task's entry, shifting later entries of its probe run back so no run is left with a hole
+    void remove(int nameHash, int taskId) {
+        long entry = cell(nameHash, taskId);
+        int mask = cells.length - 1;
+        int hole = home(entry);
+        while (cells[hole] != entry) {
+            if (cells[hole] == EMPTY) {
+                return;
+            }
+            hole = (hole + 1) & mask;
+        }
+        cells[hole] = EMPTY;
+        size--;
+        for (int next = (hole + 1) & mask; cells[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(cells[next]);
+            //Move it into the hole unless its home lies cyclically after the hole, up to where it is now
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                cells[hole] = cells[next];
+                cells[next] = EMPTY;
+                hole = next;
+            }
+        }
+        if (cells.length > MIN_CAPACITY && size * 8L < cells.length) {
+            resize(cells.length / 2);
+        }
+    }
+
+    //IDs of the tasks whose name has the hash (and a few whose hash only shares its 31 bits), in ascending order
+    int[] ids(int nameHash) {
+        long key = cell(nameHash, 0) >>> 32;
+        int mask = cells.length - 1;
+        int[] ids = new int[4];
+        int count = 0;
+        for (int i = home(key << 32); cells[i] != EMPTY; i = (i + 1) & mask) {
+            if (cells[i] >>> 32 == key) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = (int) cells[i];
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    //Approximate heap bytes the table takes
+    long footprint() {
+        return 16 + 8L * cells.length;
+    }
+
+    private void insert(long entry) {
+        int mask = cells.length - 1;
+        int i = home(entry);
+        while (cells[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        cells[i] = entry;
+    }
+
+    private void resize(int capacity) {
+        long[] old = cells;
+        cells = new long[capacity];
+        for (long entry : old) {
+            if (entry != EMPTY) {
+                insert(entry);
+            }
+        }
+    }
+
+    //Spreads the hash over the table with a Fibonacci multiply; String hashes of similar names differ in few bits
+    private int home(long entry) {
+        int hash = (int) (entry >>> 32);
+        return (hash * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(cells.length));
+    }
+
+    private static long cell(int nameHash, int taskId) {
+        return OCCUPIED | (long) (nameHash & 0x7FFFFFFF) << 32 | (taskId & 0xFFFFFFFFL);
+    }
+}
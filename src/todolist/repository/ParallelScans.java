@@ -0,0 +1,116 @@
+package todolist.repository;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs large read-only passes over the task columns (building the tasks a query returns, scanning names) on a
+// bounded fork-join pool of its own, so a query over millions of tasks can use several cores without taking
+// threads from the common pool. Each call decides for itself whether to split its work: only if the work is
+// estimated to take long enough to pay for the splitting, splitting has paid off for that kind of work before,
+// and the pool has idle workers. The estimates are learned from timed runs of each Kind of work.
+// The pool size is set by the todolist.scan.threads system property (default: the number of cores).
+// Work passed in runs on pool threads while the caller waits, so it may read whatever the caller's lock guards.
+final class ParallelScans {
+    static final int PIECE = 1 << 11; //Items per piece; pieces are the units work is split into
+    private static final long MIN_PARALLEL_NANOS = 500_000; //Work estimated below this runs on the calling thread
+    private static final int PIECES_PER_WORKER = 4; //Smaller leaves than workers, so uneven pieces balance out
+    private static final int RETRY_EVERY = 64; //How often work splitting hasn't paid off for is split anyway
+    private static final double WEIGHT = 0.2; //Of a new timing in the moving averages
+
+    private static final AtomicInteger THREADS_STARTED = new AtomicInteger();
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(1, Integer.getInteger("todolist.scan.threads", Runtime.getRuntime().availableProcessors())),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("todo-scan-" + THREADS_STARTED.incrementAndGet());
+                return thread;
+            }, null, false);
+
+    interface Piece {
+        int run(int from, int to); //Handles items from..to-1 and returns a count (e.g. of matches)
+    }
+
+    //What has been learned about one kind of work: average nanoseconds per item, run whole and split
+    static final class Kind {
+        private volatile double sequentialNanos = 100;
+        private volatile double parallelNanos = 25; //Optimistic, so splitting gets tried
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        private boolean worthSplitting(int count) {
+            if (count * sequentialNanos < MIN_PARALLEL_NANOS) {
+                return false;
+            }
+            return parallelNanos < sequentialNanos * 0.75 || skipped.incrementAndGet() % RETRY_EVERY == 0;
+        }
+
+        private void learn(boolean split, long nanos, int count) {
+            double perItem = (double) nanos / count;
+            if (split) {
+                parallelNanos += (perItem - parallelNanos) * WEIGHT;
+            } else {
+                sequentialNanos += (perItem - sequentialNanos) * WEIGHT;
+            }
+        }
+    }
+
+    private ParallelScans() {
+    }
+
+    //Runs items 0..count-1 as pieces of PIECE items, on the pool if worth it; element i of the result is what
+    //piece i (items i * PIECE up to (i + 1) * PIECE) returned
+    static int[] run(Kind kind, int count, Piece piece) {
+        int[] results = new int[(count + PIECE - 1) / PIECE];
+        int idleWorkers = POOL.getParallelism() - POOL.getActiveThreadCount();
+        boolean split = results.length > 1 && idleWorkers > 1 && kind.worthSplitting(count);
+        long start = System.nanoTime();
+        if (split) {
+            int piecesPerLeaf = Math.max(1, results.length / (idleWorkers * PIECES_PER_WORKER));
+            POOL.invoke(new Split(piece, count, results, 0, results.length, piecesPerLeaf));
+        } else {
+            runPieces(piece, count, results, 0, results.length);
+        }
+        if (count >= PIECE) {
+            kind.learn(split, System.nanoTime() - start, count);
+        }
+        return results;
+    }
+
+    private static void runPieces(Piece piece, int count, int[] results, int first, int end) {
+        for (int i = first; i < end; i++) {
+            results[i] = piece.run(i * PIECE, Math.min(count, (i + 1) * PIECE));
+        }
+    }
+
+    //Halves its range of pieces until a half is no more than piecesPerLeaf
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Piece piece; //Never serialized; only run on the pool
+        private final int count;
+        private final int[] results;
+        private final int first;
+        private final int end;
+        private final int piecesPerLeaf;
+
+        Split(Piece piece, int count, int[] results, int first, int end, int piecesPerLeaf) {
+            this.piece = piece;
+            this.count = count;
+            this.results = results;
+            this.first = first;
+            this.end = end;
+            this.piecesPerLeaf = piecesPerLeaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first <= piecesPerLeaf) {
+                runPieces(piece, count, results, first, end);
+                return;
+            }
+            int middle = (first + end) >>> 1;
+            invokeAll(new Split(piece, count, results, first, middle, piecesPerLeaf),
+                    new Split(piece, count, results, middle, end, piecesPerLeaf));
+        }
+    }
+}
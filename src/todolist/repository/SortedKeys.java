@@ -0,0 +1,161 @@
+package todolist.repository;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+// Sorted set of long keys kept in blocks of up to BLOCK_CAPACITY keys (a two-level B+-tree): a key is found by a
+// binary search over the blocks' last keys and then one within its block, and adding or removing a key shifts at
+// most one block, so a change costs O(log n) comparisons plus a short array copy. Reading walks the blocks in
+// order and can stop after the first few keys. Each key takes 8 bytes, with no object per entry.
+// Keys are compared by a KeyOrder, which may look up task data (e.g. names) as long as a key's position can't
+// change while it is in the set. Not thread-safe: TodoTaskStore guards it with its segment's lock.
+final class SortedKeys {
+    private static final int BLOCK_CAPACITY = 1024;
+    private static final int LOAD_FILL = BLOCK_CAPACITY * 3 / 4; //Leaves room in loaded blocks for inserts
+
+    interface KeyOrder {
+        int compare(long a, long b);
+    }
+
+    private final KeyOrder order;
+    private long[][] blocks = new long[4][];
+    private int[] sizes = new int[4];
+    private int blockCount;
+    private int size;
+
+    SortedKeys(KeyOrder order) {
+        this.order = order;
+    }
+
+    void add(long key) {
+        if (blockCount == 0) {
+            insertBlock(0, new long[BLOCK_CAPACITY], 0);
+        }
+        int block = blockFor(key);
+        int index = indexIn(block, key);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (sizes[block] == BLOCK_CAPACITY) {
+            //Split the full block in two halves and insert into whichever half the key belongs to
+            long[] upper = new long[BLOCK_CAPACITY];
+            int half = BLOCK_CAPACITY / 2;
+            System.arraycopy(blocks[block], half, upper, 0, BLOCK_CAPACITY - half);
+            sizes[block] = half;
+            insertBlock(block + 1, upper, BLOCK_CAPACITY - half);
+            if (index > half) {
+                block++;
+                index -= half;
+            }
+        }
+        long[] keys = blocks[block];
+        System.arraycopy(keys, index, keys, index + 1, sizes[block] - index);
+        keys[index] = key;
+        sizes[block]++;
+        size++;
+    }
+
+    //Returns false if the key wasn't there
+    boolean remove(long key) {
+        if (blockCount == 0) {
+            return false;
+        }
+        int block = blockFor(key);
+        int index = indexIn(block, key);
+        if (index < 0) {
+            return false;
+        }
+        long[] keys = blocks[block];
+        System.arraycopy(keys, index + 1, keys, index, sizes[block] - index - 1);
+        sizes[block]--;
+        size--;
+        if (sizes[block] == 0) {
+            System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+            System.arraycopy(sizes, block + 1, sizes, block, blockCount - block - 1);
+            blocks[--blockCount] = null;
+        }
+        return true;
+    }
+
+    //Replaces the contents with keys that are already sorted and distinct
+    void load(long[] sortedKeys, int count) {
+        blocks = new long[Math.max(4, (count + LOAD_FILL - 1) / LOAD_FILL)][];
+        sizes = new int[blocks.length];
+        blockCount = 0;
+        size = 0;
+        for (int from = 0; from < count; from += LOAD_FILL) {
+            int length = Math.min(LOAD_FILL, count - from);
+            long[] keys = new long[BLOCK_CAPACITY];
+            System.arraycopy(sortedKeys, from, keys, 0, length);
+            insertBlock(blockCount, keys, length);
+            size += length;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    //Passes keys to the action in order until it returns false
+    void forEachWhile(LongPredicate action) {
+        for (int block = 0; block < blockCount; block++) {
+            long[] keys = blocks[block];
+            for (int i = 0; i < sizes[block]; i++) {
+                if (!action.test(keys[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    //Approximate heap bytes taken by the blocks
+    long footprint() {
+        return (long) blockCount * BLOCK_CAPACITY * 8 + blocks.length * 12L;
+    }
+
+    //The first block whose last key isn't below the key, or the last block if the key is above them all
+    private int blockFor(long key) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (order.compare(blocks[middle][sizes[middle] - 1], key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //Index of the key in the block, or (-(insertion point) - 1) like Arrays.binarySearch
+    private int indexIn(int block, long key) {
+        long[] keys = blocks[block];
+        int low = 0;
+        int high = sizes[block] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = order.compare(keys[middle], key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private void insertBlock(int block, long[] keys, int count) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            sizes = Arrays.copyOf(sizes, blockCount * 2);
+        }
+        System.arraycopy(blocks, block, blocks, block + 1, blockCount - block);
+        System.arraycopy(sizes, block, sizes, block + 1, blockCount - block);
+        blocks[block] = keys;
+        sizes[block] = count;
+        blockCount++;
+    }
+}
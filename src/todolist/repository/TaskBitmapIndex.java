@@ -0,0 +1,117 @@
+package todolist.repository;
+import java.time.LocalDate;
+import java.util.*;
+
+import todolist.model.TodoTask.Priority;
+import todolist.model.TodoTask.Category;
+
+// Bitmaps of task IDs for each priority, category, completion status and due date, which TaskFilter combines
+// with and/or/andNot to answer a filter without looking at a single task. Due dates are kept per day in a
+// sorted map, so a date range is the union of the days in it. Attributes are given as TaskColumns stores them
+// (ordinals with -1 for null, epoch days with NO_DUE_DATE).
+// Not thread-safe: TodoTaskStore guards it with its segment's lock.
+final class TaskBitmapIndex {
+    private static final TaskBitmap EMPTY = new TaskBitmap();
+
+    private final TaskBitmap all = new TaskBitmap();
+    private final TaskBitmap[] byPriority = bitmaps(Priority.values().length + 1); //Last one for null
+    private final TaskBitmap[] byCategory = bitmaps(Category.values().length + 1);
+    private final TaskBitmap completed = new TaskBitmap();
+    private final TaskBitmap notCompleted = new TaskBitmap();
+    private final NavigableMap<Integer, TaskBitmap> byDueDay = new TreeMap<>();
+    private final TaskBitmap noDueDate = new TaskBitmap();
+
+    void add(int taskId, byte priority, byte category, int dueDay, boolean isCompleted) {
+        all.add(taskId);
+        byPriority[bucket(priority, byPriority)].add(taskId);
+        byCategory[bucket(category, byCategory)].add(taskId);
+        (isCompleted ? completed : notCompleted).add(taskId);
+        if (dueDay == TaskColumns.NO_DUE_DATE) {
+            noDueDate.add(taskId);
+        } else {
+            byDueDay.computeIfAbsent(dueDay, k -> new TaskBitmap()).add(taskId);
+        }
+    }
+
+    //Takes a task out; the attributes must be the ones it was added with
+    void remove(int taskId, byte priority, byte category, int dueDay, boolean isCompleted) {
+        all.remove(taskId);
+        byPriority[bucket(priority, byPriority)].remove(taskId);
+        byCategory[bucket(category, byCategory)].remove(taskId);
+        (isCompleted ? completed : notCompleted).remove(taskId);
+        if (dueDay == TaskColumns.NO_DUE_DATE) {
+            noDueDate.remove(taskId);
+        } else {
+            TaskBitmap day = byDueDay.get(dueDay);
+            if (day != null) {
+                day.remove(taskId);
+                if (day.isEmpty()) {
+                    byDueDay.remove(dueDay);
+                }
+            }
+        }
+    }
+
+    //The bitmaps below belong to the index and must not be modified
+
+    TaskBitmap all() {
+        return all;
+    }
+
+    TaskBitmap priority(Priority priority) {
+        return byPriority[priority == null ? byPriority.length - 1 : priority.ordinal()];
+    }
+
+    TaskBitmap category(Category category) {
+        return byCategory[category == null ? byCategory.length - 1 : category.ordinal()];
+    }
+
+    TaskBitmap completed(boolean isCompleted) {
+        return isCompleted ? completed : notCompleted;
+    }
+
+    TaskBitmap noDueDate() {
+        return noDueDate;
+    }
+
+    //Tasks due on any day from first to last (inclusive)
+    TaskBitmap dueBetween(LocalDate first, LocalDate last) {
+        long from = Math.max(first.toEpochDay(), Integer.MIN_VALUE + 1L);
+        long to = Math.min(last.toEpochDay(), Integer.MAX_VALUE);
+        if (from > to) {
+            return EMPTY;
+        }
+        Collection<TaskBitmap> days = byDueDay.subMap((int) from, true, (int) to, true).values();
+        if (days.size() <= 1) {
+            return days.isEmpty() ? EMPTY : days.iterator().next();
+        }
+        return TaskBitmap.union(days);
+    }
+
+    //Approximate heap bytes the bitmaps take
+    long footprint() {
+        long bytes = all.footprint() + completed.footprint() + notCompleted.footprint() + noDueDate.footprint();
+        for (TaskBitmap bitmap : byPriority) {
+            bytes += bitmap.footprint();
+        }
+        for (TaskBitmap bitmap : byCategory) {
+            bytes += bitmap.footprint();
+        }
+        for (TaskBitmap bitmap : byDueDay.values()) {
+            bytes += bitmap.footprint() + 64; //Plus the map entry
+        }
+        return bytes;
+    }
+
+    private static int bucket(byte ordinal, TaskBitmap[] bitmaps) {
+        return ordinal < 0 ? bitmaps.length - 1 : ordinal;
+    }
+
+    private static TaskBitmap[] bitmaps(int count) {
+        TaskBitmap[] bitmaps = new TaskBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new TaskBitmap();
+        }
+        return bitmaps;
+    }
+}
@@ -0,0 +1,451 @@
+package todolist.repository;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+import todolist.model.TodoTask;
+import todolist.model.TodoTask.Priority;
+import todolist.model.TodoTask.Category;
+
+// Task fields stored column by column (struct of arrays): slot i of every array belongs to the same task.
+// Filters scan one primitive array instead of chasing a pointer per task, and a task costs a few dozen bytes
+// instead of a graph of objects. Strings live back to back as UTF-8 in one shared byte array (the text arena);
+// a task only keeps an (offset, length) pair per string, packed into a long (-1 = null).
+//   ids           int, in ascending order, so a task is found by binary search
+//   priorities    byte ordinal (-1 = null)
+//   categories    byte ordinal (-1 = null)
+//   dueDays       int epoch day (NO_DUE_DATE = null)
+//   completed     one bit per slot
+//   live          one bit per slot; a removed task's slot stays (cleared) until retainLive() drops it
+//   nameHashes    String.hashCode() of the name, to rule out most slots before comparing names
+//   names, descriptions, foldedNames (lower-cased name, for substring search; shares the name's bytes if equal)
+// Not thread-safe: TodoTaskStore guards it with its segment's lock. Replaced strings leave garbage in the arena
+// until a compaction.
+final class TaskColumns {
+    static final int NO_DUE_DATE = Integer.MIN_VALUE;
+    private static final long NULL_TEXT = -1;
+    private static final int MAX_TEXT_SIZE = Integer.MAX_VALUE - 8;
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final Category[] CATEGORIES = Category.values();
+
+    int size;
+    int[] ids;
+    byte[] priorities;
+    byte[] categories;
+    int[] dueDays;
+    int[] nameHashes;
+    BitSet completed = new BitSet();
+    BitSet live = new BitSet();
+    int removed; //Slots that are not live
+    long[] names;
+    long[] descriptions;
+    long[] foldedNames;
+    byte[] text;
+    int textSize;
+    long textGarbage; //Arena bytes no longer referenced by any slot
+
+    TaskColumns(int capacity) {
+        this(capacity, Math.max(capacity, 16) * 32L);
+    }
+
+    TaskColumns(int capacity, long textCapacity) {
+        capacity = Math.max(capacity, 16);
+        ids = new int[capacity];
+        priorities = new byte[capacity];
+        categories = new byte[capacity];
+        dueDays = new int[capacity];
+        nameHashes = new int[capacity];
+        names = new long[capacity];
+        descriptions = new long[capacity];
+        foldedNames = new long[capacity];
+        text = new byte[(int) Math.max(Math.min(textCapacity, MAX_TEXT_SIZE), 16)];
+    }
+
+    //Appends a copy of the task in a new slot at the end; returns the slot
+    int append(TodoTask task) {
+        ensureCapacity(size + 1);
+        int slot = size++;
+        ids[slot] = task.getId();
+        nameHashes[slot] = 0; //set() leaves it alone for a null name, and the slot may hold an old task's
+        names[slot] = NULL_TEXT;
+        descriptions[slot] = NULL_TEXT;
+        foldedNames[slot] = NULL_TEXT;
+        completed.clear(slot);
+        live.set(slot);
+        set(slot, task);
+        return slot;
+    }
+
+    //Appends an empty, removed slot for the ID (TodoTaskStore.Loader's record of a deletion); returns the slot
+    int appendRemoved(int id) {
+        ensureCapacity(size + 1);
+        int slot = size++;
+        ids[slot] = id;
+        clear(slot);
+        removed++;
+        return slot;
+    }
+
+    //Opens a slot for the task at the given position by moving every later slot up one
+    void insert(int slot, TodoTask task) {
+        ensureCapacity(size + 1);
+        int moved = size - slot;
+        System.arraycopy(ids, slot, ids, slot + 1, moved);
+        System.arraycopy(priorities, slot, priorities, slot + 1, moved);
+        System.arraycopy(categories, slot, categories, slot + 1, moved);
+        System.arraycopy(dueDays, slot, dueDays, slot + 1, moved);
+        System.arraycopy(nameHashes, slot, nameHashes, slot + 1, moved);
+        System.arraycopy(names, slot, names, slot + 1, moved);
+        System.arraycopy(descriptions, slot, descriptions, slot + 1, moved);
+        System.arraycopy(foldedNames, slot, foldedNames, slot + 1, moved);
+        for (int i = size; i > slot; i--) {
+            completed.set(i, completed.get(i - 1));
+            live.set(i, live.get(i - 1));
+        }
+        live.set(slot);
+        size++;
+        ids[slot] = task.getId();
+        nameHashes[slot] = 0; //set() leaves it alone for a null name, and the slot may hold an old task's
+        names[slot] = NULL_TEXT;
+        descriptions[slot] = NULL_TEXT;
+        foldedNames[slot] = NULL_TEXT;
+        set(slot, task);
+    }
+
+    //Overwrites a slot with the task's fields; strings that didn't change keep their bytes
+    void set(int slot, TodoTask task) {
+        int dueDay = epochDay(task.getDueDate()); //Checked before anything is written
+        String name = task.getName();
+        String description = task.getDescription();
+        boolean nameChanged = !textEquals(names[slot], name);
+        boolean descriptionChanged = !textEquals(descriptions[slot], description);
+        String folded = name == null ? null : name.toLowerCase(Locale.ROOT);
+        byte[] nameBytes = nameChanged ? utf8(name) : null;
+        byte[] foldedBytes = nameChanged && folded != null && !folded.equals(name) ? utf8(folded) : null;
+        byte[] descriptionBytes = descriptionChanged ? utf8(description) : null;
+        //Room for all of it is made up front: a compaction moves every string, so it must not happen between
+        //storing one of them and storing the next
+        reserve((long) byteCount(nameBytes) + byteCount(foldedBytes) + byteCount(descriptionBytes));
+        priorities[slot] = task.getPriority() == null ? -1 : (byte) task.getPriority().ordinal();
+        categories[slot] = task.getCategory() == null ? -1 : (byte) task.getCategory().ordinal();
+        dueDays[slot] = dueDay;
+        completed.set(slot, task.isCompleted());
+        if (nameChanged) {
+            release(names[slot]);
+            if (foldedNames[slot] != names[slot]) {
+                release(foldedNames[slot]);
+            }
+            names[slot] = store(nameBytes);
+            foldedNames[slot] = folded == null || folded.equals(name) ? names[slot] : store(foldedBytes);
+            nameHashes[slot] = name == null ? 0 : name.hashCode();
+        }
+        if (descriptionChanged) {
+            release(descriptions[slot]);
+            descriptions[slot] = store(descriptionBytes);
+        }
+    }
+
+    //Removes the task in a live slot. Its fields are cleared, so filters on a non-null value skip the slot
+    //without checking the live bits; the slot itself goes away with the next retainLive().
+    void remove(int slot) {
+        release(names[slot]);
+        if (foldedNames[slot] != names[slot]) {
+            release(foldedNames[slot]);
+        }
+        release(descriptions[slot]);
+        clear(slot);
+        removed++;
+    }
+
+    //Puts a task back into a removed slot holding its ID
+    void revive(int slot, TodoTask task) {
+        live.set(slot);
+        removed--;
+        set(slot, task);
+    }
+
+    //Builds a new task object from a slot
+    TodoTask get(int slot) {
+        int dueDay = dueDays[slot];
+        return new TodoTask(ids[slot], decode(names[slot]), decode(descriptions[slot]), completed.get(slot),
+                dueDay == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueDay),
+                priorities[slot] < 0 ? null : PRIORITIES[priorities[slot]],
+                categories[slot] < 0 ? null : CATEGORIES[categories[slot]]);
+    }
+
+    String name(int slot) {
+        return decode(names[slot]);
+    }
+
+    //Compares two slots' names like String.compareTo (null last) straight from their UTF-8 bytes. Byte order is
+    //code point order, which matches String order except that a supplementary character (4-byte sequence, a
+    //surrogate pair in a String) sorts below U+E000..U+FFFF (3-byte sequences starting EE or EF) in a String.
+    int compareNames(int slotA, int slotB) {
+        return compareNames(slotA, this, slotB);
+    }
+
+    //The same for a slot of other columns (another segment's)
+    int compareNames(int slotA, TaskColumns other, int slotB) {
+        long a = names[slotA];
+        long b = other.names[slotB];
+        if (a == NULL_TEXT || b == NULL_TEXT) {
+            return a == b ? 0 : a == NULL_TEXT ? 1 : -1;
+        }
+        byte[] textB = other.text;
+        int mismatch = Arrays.mismatch(text, offset(a), offset(a) + length(a), textB, offset(b), offset(b) + length(b));
+        if (mismatch < 0) {
+            return 0;
+        }
+        if (mismatch == length(a) || mismatch == length(b)) {
+            return length(a) - length(b); //One is a prefix of the other
+        }
+        int x = text[offset(a) + mismatch] & 0xFF;
+        int y = textB[offset(b) + mismatch] & 0xFF;
+        if ((x >= 0xF0 && (y == 0xEE || y == 0xEF)) || (y >= 0xF0 && (x == 0xEE || x == 0xEF))) {
+            return y - x;
+        }
+        return x - y;
+    }
+
+    //Slot holding the ID, or (-(insertion point) - 1) like Arrays.binarySearch
+    int slotOf(int id) {
+        if (size > 0 && ids[size - 1] == id) {
+            return size - 1; //The most recently created task
+        }
+        if (size > 1 && id >= ids[0] && id < ids[size - 1]) {
+            //Right as long as the IDs are evenly spaced (consecutive, or every SEGMENTS-th in a TodoTaskStore segment)
+            //and none below this one has been deleted
+            long guess = ((long) id - ids[0]) * (size - 1) / ((long) ids[size - 1] - ids[0]);
+            if (ids[(int) guess] == id) {
+                return (int) guess;
+            }
+        }
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    //Whether the slot's name equals the name whose UTF-8 bytes and hash code are given
+    boolean nameEquals(int slot, byte[] utf8, int hash) {
+        if (utf8 == null) {
+            return names[slot] == NULL_TEXT;
+        }
+        return nameHashes[slot] == hash && names[slot] != NULL_TEXT && textEquals(names[slot], utf8);
+    }
+
+    //Whether the slot's lower-cased name contains the given (lower-cased, UTF-8) bytes
+    //UTF-8 never matches in the middle of a character, so a byte match is a character match
+    boolean foldedNameContains(int slot, byte[] query) {
+        long ref = foldedNames[slot];
+        if (ref == NULL_TEXT) {
+            return false;
+        }
+        int start = offset(ref);
+        int last = start + length(ref) - query.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < query.length; j++) {
+                if (text[i + j] != query[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    String foldedName(int slot) {
+        return decode(foldedNames[slot]);
+    }
+
+    //Drops the removed slots and rewrites the arena without garbage
+    void retainLive() {
+        int[] order = new int[size - removed];
+        int next = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0 && slot < size; slot = live.nextSetBit(slot + 1)) {
+            order[next++] = slot;
+        }
+        reorder(order);
+    }
+
+    //Rewrites the arena without garbage, keeping every slot where it is
+    void compactText() {
+        int[] all = new int[size];
+        Arrays.setAll(all, slot -> slot);
+        reorder(all);
+    }
+
+    //Replaces the columns with the given slots, in the given order (each slot at most once)
+    void reorder(int[] order) {
+        long textBytes = 0;
+        for (int slot : order) {
+            textBytes += textSize(slot);
+        }
+        TaskColumns result = new TaskColumns(order.length, textBytes + (textBytes >> 3));
+        for (int i = 0; i < order.length; i++) {
+            int slot = order[i];
+            result.ids[i] = ids[slot];
+            result.priorities[i] = priorities[slot];
+            result.categories[i] = categories[slot];
+            result.dueDays[i] = dueDays[slot];
+            result.nameHashes[i] = nameHashes[slot];
+            result.completed.set(i, completed.get(slot));
+            result.live.set(i, live.get(slot));
+            result.names[i] = result.copyText(text, names[slot]);
+            result.foldedNames[i] = foldedNames[slot] == names[slot] ? result.names[i] : result.copyText(text, foldedNames[slot]);
+            result.descriptions[i] = result.copyText(text, descriptions[slot]);
+        }
+        result.size = order.length;
+        size = result.size;
+        ids = result.ids;
+        priorities = result.priorities;
+        categories = result.categories;
+        dueDays = result.dueDays;
+        nameHashes = result.nameHashes;
+        completed = result.completed;
+        live = result.live;
+        removed = size - live.cardinality();
+        names = result.names;
+        descriptions = result.descriptions;
+        foldedNames = result.foldedNames;
+        text = result.text;
+        textSize = result.textSize;
+        textGarbage = 0;
+    }
+
+    //Approximate heap bytes held by the columns, for logging
+    long footprint() {
+        return (long) ids.length * (4 + 1 + 1 + 4 + 4 + 8 + 8 + 8) + (completed.size() + live.size()) / 8 + text.length;
+    }
+
+    static int epochDay(LocalDate date) {
+        if (date == null) {
+            return NO_DUE_DATE;
+        }
+        long day = date.toEpochDay();
+        if (day <= NO_DUE_DATE || day >= Integer.MAX_VALUE) { //MAX_VALUE sorts tasks without a due date last
+            throw new IllegalArgumentException("Due date is out of range: " + date);
+        }
+        return (int) day;
+    }
+
+    static byte[] utf8(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, grown);
+        priorities = Arrays.copyOf(priorities, grown);
+        categories = Arrays.copyOf(categories, grown);
+        dueDays = Arrays.copyOf(dueDays, grown);
+        nameHashes = Arrays.copyOf(nameHashes, grown);
+        names = Arrays.copyOf(names, grown);
+        descriptions = Arrays.copyOf(descriptions, grown);
+        foldedNames = Arrays.copyOf(foldedNames, grown);
+    }
+
+    private long textSize(int slot) {
+        long bytes = length(names[slot]) + length(descriptions[slot]);
+        return foldedNames[slot] == names[slot] ? bytes : bytes + length(foldedNames[slot]);
+    }
+
+    private long store(byte[] utf8) {
+        return utf8 == null ? NULL_TEXT : storeBytes(utf8, 0, utf8.length);
+    }
+
+    private long copyText(byte[] source, long ref) {
+        return ref == NULL_TEXT ? NULL_TEXT : storeBytes(source, offset(ref), length(ref));
+    }
+
+    //Makes room for that many more bytes in the arena, compacting it if it can't otherwise grow that far.
+    //A compaction replaces the arrays, so nothing may hold a reference from before it.
+    private void reserve(long length) {
+        if (textSize + length > MAX_TEXT_SIZE && textGarbage > 0) {
+            compactText();
+        }
+        growText(length);
+    }
+
+    //Grows the arena to fit that many more bytes; never compacts
+    private void growText(long length) {
+        if (textSize + length <= text.length) {
+            return;
+        }
+        if (textSize + length > MAX_TEXT_SIZE) {
+            throw new IllegalStateException("Task text storage is full");
+        }
+        long grown = Math.max(textSize + length, text.length + ((long) text.length >> 1));
+        text = Arrays.copyOf(text, (int) Math.min(grown, MAX_TEXT_SIZE));
+    }
+
+    //Copies bytes into the arena and returns their reference
+    private long storeBytes(byte[] source, int from, int length) {
+        growText(length);
+        System.arraycopy(source, from, text, textSize, length);
+        long ref = ((long) textSize << 32) | length;
+        textSize += length;
+        return ref;
+    }
+
+    private static int byteCount(byte[] utf8) {
+        return utf8 == null ? 0 : utf8.length;
+    }
+
+    private void release(long ref) {
+        if (ref != NULL_TEXT) {
+            textGarbage += length(ref);
+        }
+    }
+
+    private void clear(int slot) {
+        priorities[slot] = -1;
+        categories[slot] = -1;
+        dueDays[slot] = NO_DUE_DATE;
+        nameHashes[slot] = 0;
+        names[slot] = NULL_TEXT;
+        foldedNames[slot] = NULL_TEXT;
+        descriptions[slot] = NULL_TEXT;
+        completed.clear(slot);
+        live.clear(slot);
+    }
+
+    private String decode(long ref) {
+        return ref == NULL_TEXT ? null : new String(text, offset(ref), length(ref), StandardCharsets.UTF_8);
+    }
+
+    private boolean textEquals(long ref, String value) {
+        if (ref == NULL_TEXT || value == null) {
+            return ref == NULL_TEXT && value == null;
+        }
+        //Most names and descriptions are ASCII, which can be compared without encoding
+        int length = length(ref);
+        if (value.length() != length) {
+            return length >= value.length() && textEquals(ref, value.getBytes(StandardCharsets.UTF_8));
+        }
+        int start = offset(ref);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || text[start + i] != (byte) c) {
+                return c >= 0x80 && textEquals(ref, value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return true;
+    }
+
+    private boolean textEquals(long ref, byte[] utf8) {
+        int start = offset(ref);
+        return Arrays.equals(text, start, start + length(ref), utf8, 0, utf8.length);
+    }
+
+    private static int offset(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int length(long ref) {
+        return ref == NULL_TEXT ? 0 : (int) ref;
+    }
+}
@@ -0,0 +1,429 @@
+package todolist.repository;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+import todolist.model.TodoTask;
+import todolist.model.TodoTask.Priority;
+import todolist.model.TodoTask.Category;
+
+// A condition on a task's priority, category, due date and completion status: single-attribute conditions
+// combined with and, or and not. A store answers it with bitmap operations on its TaskBitmapIndex, so only
+// the IDs that match are ever touched; matches() checks a single task.
+// Text form (see parse()), case-insensitive:
+//   priority:HIGH,MEDIUM     category:WORK     completed:true
+//   dueDate:2024-05-01       dueDate:2024-05-01..2024-05-31 (inclusive)       dueDate:none
+//   combined with and, or, not and parentheses, e.g. priority:HIGH and not (category:WORK or completed:true)
+//   ("and" binds tighter than "or"; comma-separated values are alternatives)
+public abstract class TaskFilter {
+    private static final Set<String> KEYWORDS = Set.of("and", "or", "not", "(", ")");
+
+    TaskFilter() {
+    }
+
+    public abstract boolean matches(TodoTask task);
+
+    //IDs of the matching tasks. May return one of the index's own bitmaps, which must not be modified.
+    abstract TaskBitmap evaluate(TaskBitmapIndex index);
+
+    public static TaskFilter priority(Priority... priorities) {
+        return new PriorityIs(EnumSet.copyOf(Arrays.asList(priorities)));
+    }
+
+    public static TaskFilter category(Category... categories) {
+        return new CategoryIs(EnumSet.copyOf(Arrays.asList(categories)));
+    }
+
+    public static TaskFilter completed(boolean isCompleted) {
+        return new CompletedIs(isCompleted);
+    }
+
+    public static TaskFilter dueDate(LocalDate dueDate) {
+        return dueBetween(dueDate, dueDate);
+    }
+
+    //Due on any day from first to last, both included
+    public static TaskFilter dueBetween(LocalDate first, LocalDate last) {
+        if (first == null || last == null) {
+            throw new IllegalArgumentException("Due date cannot be null.");
+        }
+        return new DueBetween(first, last);
+    }
+
+    public static TaskFilter noDueDate() {
+        return new DueBetween(null, null);
+    }
+
+    public static TaskFilter and(TaskFilter... filters) {
+        requireSome(filters);
+        return filters.length == 1 ? filters[0] : new And(List.of(filters));
+    }
+
+    public static TaskFilter or(TaskFilter... filters) {
+        requireSome(filters);
+        return filters.length == 1 ? filters[0] : new Or(List.of(filters));
+    }
+
+    public static TaskFilter not(TaskFilter filter) {
+        return new Not(Objects.requireNonNull(filter));
+    }
+
+    //Parses the text form described above; throws IllegalArgumentException if it isn't valid
+    public static TaskFilter parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Filter cannot be null or empty.");
+        }
+        Parser parser = new Parser(text);
+        TaskFilter filter = parser.disjunction();
+        if (parser.hasNext()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "' in filter: " + text);
+        }
+        return filter;
+    }
+
+    private static final class PriorityIs extends TaskFilter {
+        private final Set<Priority> priorities;
+
+        PriorityIs(Set<Priority> priorities) {
+            this.priorities = priorities;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return priorities.contains(task.getPriority());
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = null;
+            for (Priority priority : priorities) {
+                result = result == null ? index.priority(priority) : result.or(index.priority(priority));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "priority:" + join(priorities);
+        }
+    }
+
+    private static final class CategoryIs extends TaskFilter {
+        private final Set<Category> categories;
+
+        CategoryIs(Set<Category> categories) {
+            this.categories = categories;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return categories.contains(task.getCategory());
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = null;
+            for (Category category : categories) {
+                result = result == null ? index.category(category) : result.or(index.category(category));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "category:" + join(categories);
+        }
+    }
+
+    private static final class CompletedIs extends TaskFilter {
+        private final boolean isCompleted;
+
+        CompletedIs(boolean isCompleted) {
+            this.isCompleted = isCompleted;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return task.isCompleted() == isCompleted;
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            return index.completed(isCompleted);
+        }
+
+        @Override
+        public String toString() {
+            return "completed:" + isCompleted;
+        }
+    }
+
+    //Due between first and last (inclusive), or without a due date if both are null
+    private static final class DueBetween extends TaskFilter {
+        private final LocalDate first;
+        private final LocalDate last;
+
+        DueBetween(LocalDate first, LocalDate last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            LocalDate dueDate = task.getDueDate();
+            if (first == null) {
+                return dueDate == null;
+            }
+            return dueDate != null && !dueDate.isBefore(first) && !dueDate.isAfter(last);
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            return first == null ? index.noDueDate() : index.dueBetween(first, last);
+        }
+
+        @Override
+        public String toString() {
+            return "dueDate:" + (first == null ? "none" : first.equals(last) ? first : first + ".." + last);
+        }
+    }
+
+    private static final class And extends TaskFilter {
+        private final List<TaskFilter> filters;
+
+        And(List<TaskFilter> filters) {
+            this.filters = filters;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            for (TaskFilter filter : filters) {
+                if (!filter.matches(task)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        //Intersects the positive conditions smallest first, then subtracts the negated ones
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            List<TaskBitmap> included = new ArrayList<>();
+            List<TaskBitmap> excluded = new ArrayList<>();
+            for (TaskFilter filter : filters) {
+                if (filter instanceof Not not) {
+                    excluded.add(not.filter.evaluate(index));
+                } else {
+                    included.add(filter.evaluate(index));
+                }
+            }
+            included.sort(Comparator.comparingInt(TaskBitmap::cardinality));
+            TaskBitmap result = included.isEmpty() ? index.all() : included.get(0);
+            for (int i = 1; i < included.size() && !result.isEmpty(); i++) {
+                result = result.and(included.get(i));
+            }
+            for (int i = 0; i < excluded.size() && !result.isEmpty(); i++) {
+                result = result.andNot(excluded.get(i));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + String.join(" and ", filters.stream().map(TaskFilter::toString).toList()) + ")";
+        }
+    }
+
+    private static final class Or extends TaskFilter {
+        private final List<TaskFilter> filters;
+
+        Or(List<TaskFilter> filters) {
+            this.filters = filters;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            for (TaskFilter filter : filters) {
+                if (filter.matches(task)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            TaskBitmap result = filters.get(0).evaluate(index);
+            for (int i = 1; i < filters.size(); i++) {
+                result = result.or(filters.get(i).evaluate(index));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + String.join(" or ", filters.stream().map(TaskFilter::toString).toList()) + ")";
+        }
+    }
+
+    private static final class Not extends TaskFilter {
+        private final TaskFilter filter;
+
+        Not(TaskFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean matches(TodoTask task) {
+            return !filter.matches(task);
+        }
+
+        @Override
+        TaskBitmap evaluate(TaskBitmapIndex index) {
+            return index.all().andNot(filter.evaluate(index));
+        }
+
+        @Override
+        public String toString() {
+            return "not " + filter;
+        }
+    }
+
+    private static void requireSome(TaskFilter[] filters) {
+        if (filters.length == 0) {
+            throw new IllegalArgumentException("At least one filter is required.");
+        }
+    }
+
+    private static String join(Set<? extends Enum<?>> values) {
+        return String.join(",", values.stream().map(Enum::name).toList());
+    }
+
+    //Recursive descent over whitespace-separated words, parentheses and field:value terms
+    private static final class Parser {
+        private final String text;
+        private final List<String> tokens = new ArrayList<>();
+        private int next;
+
+        Parser(String text) {
+            this.text = text;
+            for (String word : text.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+")) {
+                tokens.add(word);
+            }
+        }
+
+        boolean hasNext() {
+            return next < tokens.size();
+        }
+
+        String peek() {
+            return tokens.get(next);
+        }
+
+        TaskFilter disjunction() {
+            List<TaskFilter> filters = new ArrayList<>(List.of(conjunction()));
+            while (accept("or")) {
+                filters.add(conjunction());
+            }
+            return filters.size() == 1 ? filters.get(0) : new Or(filters);
+        }
+
+        private TaskFilter conjunction() {
+            List<TaskFilter> filters = new ArrayList<>(List.of(unary()));
+            while (accept("and")) {
+                filters.add(unary());
+            }
+            return filters.size() == 1 ? filters.get(0) : new And(filters);
+        }
+
+        private TaskFilter unary() {
+            if (accept("not")) {
+                return new Not(unary());
+            }
+            if (accept("(")) {
+                TaskFilter filter = disjunction();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Missing ')' in filter: " + text);
+                }
+                return filter;
+            }
+            if (!hasNext() || KEYWORDS.contains(peek().toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Expected a condition such as priority:HIGH in filter: " + text);
+            }
+            return term(tokens.get(next++));
+        }
+
+        private boolean accept(String keyword) {
+            if (hasNext() && peek().equalsIgnoreCase(keyword)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private TaskFilter term(String term) {
+            int colon = term.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected field:value but found '" + term + "' in filter: " + text);
+            }
+            String field = term.substring(0, colon).toLowerCase(Locale.ROOT);
+            String[] values = term.substring(colon + 1).split(",");
+            try {
+                switch (field) {
+                    case "priority": {
+                        List<Priority> priorities = new ArrayList<>();
+                        for (String value : values) {
+                            priorities.add(valueOf(Priority.class, value));
+                        }
+                        return priority(priorities.toArray(new Priority[0]));
+                    }
+                    case "category": {
+                        List<Category> categories = new ArrayList<>();
+                        for (String value : values) {
+                            categories.add(valueOf(Category.class, value));
+                        }
+                        return category(categories.toArray(new Category[0]));
+                    }
+                    case "completed": {
+                        List<TaskFilter> filters = new ArrayList<>();
+                        for (String value : values) {
+                            if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                                throw new IllegalArgumentException("Completed must be true or false in filter: " + text);
+                            }
+                            filters.add(completed(Boolean.parseBoolean(value)));
+                        }
+                        return TaskFilter.or(filters.toArray(new TaskFilter[0]));
+                    }
+                    case "duedate": {
+                        List<TaskFilter> filters = new ArrayList<>();
+                        for (String value : values) {
+                            int range = value.indexOf("..");
+                            if (value.equalsIgnoreCase("none")) {
+                                filters.add(noDueDate());
+                            } else if (range >= 0) {
+                                filters.add(dueBetween(LocalDate.parse(value.substring(0, range)),
+                                        LocalDate.parse(value.substring(range + 2))));
+                            } else {
+                                filters.add(dueDate(LocalDate.parse(value)));
+                            }
+                        }
+                        return TaskFilter.or(filters.toArray(new TaskFilter[0]));
+                    }
+                    default:
+                        throw new IllegalArgumentException("Unknown field '" + field + "' in filter: " + text);
+                }
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Due dates must be yyyy-MM-dd in filter: " + text);
+            }
+        }
+
+        private <E extends Enum<E>> E valueOf(Class<E> type, String value) {
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName().toLowerCase(Locale.ROOT) + " '"
+                        + value + "' in filter: " + text);
+            }
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package todolist.repository;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import todolist.model.TodoTask;
+
+// The tasks of one TodoTaskStore segment and their indexes: the columns (TaskColumns), the filter bitmaps
+// (TaskBitmapIndex), one sorted view per TaskSortField (SortedKeys), the trigram index for substring search and the
+// name hash index for exact name lookups. Everything here is in the segment's own ID order and slots.
+// The segment's IDs all share their low SEGMENT_BITS bits, so the filter bitmaps hold the IDs shifted right by
+// those bits (bitmap IDs): consecutive tasks then stay consecutive in the bitmaps, which keeps their chunks
+// dense instead of one ID in every SEGMENTS.
+// Not thread-safe: every method must be called under the segment's lock (a read lock for the read-only ones),
+// which TodoTaskStore takes.
+final class TaskSegment {
+    private static final int MIN_COMPACTION_SLOTS = 1 << 12;
+    private static final long MIN_COMPACTION_BYTES = 1L << 20;
+    private static final int NULL_BUCKET = Byte.MAX_VALUE; //Where sorts put a null ordinal: last
+    static final long BEFORE_FIRST_ID = Long.MIN_VALUE;
+    private static final int MAX_TIE_SCAN = 1 << 12; //Matches top() reads past the limit to finish a tie group
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+    private static final ParallelScans.Kind SCANNING_NAMES = new ParallelScans.Kind();
+
+    final StampedLock lock = new StampedLock();
+    final TaskColumns columns;
+    private final int index; //Low bits of every ID in the segment
+    private final TaskBitmapIndex filterIndex = new TaskBitmapIndex();
+    private final Map<TaskSortField, SortedKeys> sortedViews = new EnumMap<>(TaskSortField.class);
+    private final TrigramIndex nameSearchIndex = new TrigramIndex();
+    private final NameHashIndex namesByHash = new NameHashIndex();
+    private boolean nameSearchIndexReady; //False until every initial name is in nameSearchIndex
+    private long namesIndexedUpTo = BEFORE_FIRST_ID; //Last initial ID indexNames() has reached
+
+    //Takes over columns that are in ID order without duplicates; their names are left for indexNames()
+    TaskSegment(int index, TaskColumns columns) {
+        this.index = index;
+        this.columns = columns;
+        for (int slot = columns.live.nextSetBit(0); slot >= 0; slot = columns.live.nextSetBit(slot + 1)) {
+            filterIndex.add(bitmapId(columns.ids[slot]), columns.priorities[slot], columns.categories[slot],
+                    columns.dueDays[slot], columns.completed.get(slot));
+            namesByHash.add(columns.nameHashes[slot], columns.ids[slot]);
+        }
+        loadSortedViews();
+        nameSearchIndexReady = columns.size == columns.removed;
+    }
+
+    void add(TodoTask task) {
+        int slot = columns.slotOf(task.getId());
+        if (slot >= 0 && columns.live.get(slot)) {
+            throw new IllegalArgumentException("A task with ID " + task.getId() + " already exists.");
+        }
+        if (slot >= 0) {
+            columns.revive(slot, task); //Added again after being removed
+        } else if (-slot - 1 == columns.size) {
+            slot = columns.append(task); //The usual case: a newly created task has the highest ID
+        } else {
+            slot = -slot - 1;
+            columns.insert(slot, task);
+        }
+        addToIndexes(slot);
+        nameSearchIndex.add(task.getId(), fold(task.getName()));
+    }
+
+    TodoTask remove(int taskId) {
+        int slot = liveSlotOf(taskId);
+        if (slot < 0) {
+            return null;
+        }
+        TodoTask task = columns.get(slot);
+        removeFromIndexes(slot);
+        columns.remove(slot);
+        nameSearchIndex.retire(fold(task.getName()));
+        compactIfWasteful();
+        return task;
+    }
+
+    TodoTask update(int taskId, Consumer<TodoTask> change) {
+        int slot = liveSlotOf(taskId);
+        if (slot < 0) {
+            throw new IllegalArgumentException("No task found with ID: " + taskId);
+        }
+        TodoTask task = columns.get(slot);
+        String oldName = task.getName();
+        change.accept(task);
+        removeFromIndexes(slot);
+        try {
+            columns.set(slot, task);
+        } finally {
+            addToIndexes(slot); //As the columns now hold it, even if set() failed part way
+        }
+        if (!Objects.equals(oldName, task.getName())) {
+            nameSearchIndex.retire(fold(oldName));
+            nameSearchIndex.add(taskId, fold(task.getName()));
+        }
+        compactIfWasteful();
+        return task;
+    }
+
+    TodoTask findById(int taskId) {
+        int slot = liveSlotOf(taskId);
+        return slot < 0 ? null : columns.get(slot);
+    }
+
+    //Slots of up to limit tasks with the name whose UTF-8 bytes and hash code are given, in ID order. Only the
+    //tasks the name hash index has under the hash are looked at.
+    int[] findByName(byte[] utf8, int hash, int limit) {
+        int[] ids = namesByHash.ids(hash);
+        int[] slots = new int[Math.min(ids.length, limit)];
+        int count = 0;
+        for (int i = 0; i < ids.length && count < slots.length; i++) {
+            int slot = liveSlotOf(ids[i]);
+            if (slot >= 0 && columns.nameEquals(slot, utf8, hash)) {
+                slots[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    //Slots of the tasks matching a filter in ID order, answered from the bitmaps alone
+    int[] filter(TaskFilter filter) {
+        return slotsOf(filter.evaluate(filterIndex).toArray());
+    }
+
+    //Slots of the tasks whose lower-cased name contains the (lower-cased) query, in ID order
+    int[] searchByName(String folded, byte[] foldedBytes) {
+        int[] candidates = nameSearchIndexReady ? nameSearchIndex.candidates(folded) : null;
+        int[] slots;
+        int[] found;
+        if (candidates == null) {
+            //Index still being built, or the query is too short to use it: check every name
+            slots = new int[columns.size];
+            found = ParallelScans.run(SCANNING_NAMES, columns.size, (from, to) -> {
+                int count = from;
+                for (int slot = from; slot < to; slot++) {
+                    if (columns.foldedNameContains(slot, foldedBytes)) {
+                        slots[count++] = slot;
+                    }
+                }
+                return count - from;
+            });
+        } else {
+            slots = new int[candidates.length];
+            found = ParallelScans.run(SCANNING_NAMES, candidates.length, (from, to) -> {
+                int count = from;
+                for (int i = from; i < to; i++) {
+                    int slot = liveSlotOf(candidates[i]);
+                    if (slot >= 0 && columns.foldedNameContains(slot, foldedBytes)) { //Entries may be stale
+                        slots[count++] = slot;
+                    }
+                }
+                return count - from;
+            });
+        }
+        return Arrays.copyOf(slots, gather(slots, found));
+    }
+
+    //Slots of up to max tasks with IDs above lastId (BEFORE_FIRST_ID for the very first), in ID order
+    int[] slotsAfter(long lastId, int max) {
+        int[] slots = new int[Math.min(max, size())];
+        int count = 0;
+        for (int slot = firstSlotAfter(lastId); slot < columns.size && count < slots.length; slot++) {
+            if (columns.live.get(slot)) {
+                slots[count++] = slot;
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    //Slots of the first tasks (up to limit) in a sorted view
+    int[] sorted(TaskSortField field, int limit) {
+        int[] slots = new int[Math.min(limit, size())];
+        int[] count = {0};
+        if (slots.length > 0) {
+            sortedViews.get(field).forEachWhile(key -> {
+                slots[count[0]++] = columns.slotOf((int) key);
+                return count[0] < slots.length;
+            });
+        }
+        return slots;
+    }
+
+    //The slots of the first tasks (up to limit) matching the filter (null for all tasks) in the given order: by the
+    //first field, ties by the next one and so on, then by ID; tasks without a value come after those with one.
+    //Walks the first field's sorted view when matches are common enough to turn up early in it; otherwise keeps
+    //the first matches seen so far in a bounded heap, which costs O(m log k) for m matches instead of sorting them.
+    int[] top(TaskFilter filter, int limit, TaskSortField[] order) {
+        TaskBitmap matches = filter == null ? null : filter.evaluate(filterIndex);
+        int live = size();
+        int matching = matches == null ? live : matches.cardinality();
+        //Keys a walk is expected to read before finding limit matches, against heap work for every match
+        double walkCost = (double) Math.min(limit, matching) * live / Math.max(matching, 1);
+        double heapCost = matching * (1 + Math.log(Math.min(limit, matching) + 1.0));
+        int[] slots = walkCost < heapCost ? walkTop(matches, limit, order) : null;
+        if (slots == null) {
+            TopSlots first = new TopSlots((a, b) -> compareSlots(order, columns, a, columns, b), limit);
+            if (matches == null) {
+                for (int slot = columns.live.nextSetBit(0); slot >= 0; slot = columns.live.nextSetBit(slot + 1)) {
+                    first.offer(slot);
+                }
+            } else {
+                for (int slot : slotsOf(matches.toArray())) {
+                    first.offer(slot);
+                }
+            }
+            slots = first.drainSorted();
+        }
+        return slots;
+    }
+
+    int size() {
+        return columns.size - columns.removed;
+    }
+
+    //Approximate heap bytes the task data, filter bitmaps, sorted views and name hashes take (not the trigram index)
+    long footprint() {
+        long bytes = columns.footprint() + filterIndex.footprint() + namesByHash.footprint();
+        for (SortedKeys view : sortedViews.values()) {
+            bytes += view.footprint();
+        }
+        return bytes;
+    }
+
+    //Indexes up to chunk of the initial tasks' names for substring search, resuming after the last ID indexed since
+    //compactions and inserts can move slots in between; returns whether every name is indexed now. Tasks added or
+    //renamed meanwhile index themselves. Needs the write lock.
+    boolean indexNames(int chunk) {
+        if (nameSearchIndexReady) {
+            return true;
+        }
+        int slot = firstSlotAfter(namesIndexedUpTo);
+        int end = Math.min(slot + chunk, columns.size);
+        for (; slot < end; slot++) {
+            if (columns.live.get(slot)) {
+                nameSearchIndex.add(columns.ids[slot], columns.foldedName(slot));
+            }
+            namesIndexedUpTo = columns.ids[slot];
+        }
+        if (end == columns.size) {
+            nameSearchIndexReady = true;
+        }
+        return nameSearchIndexReady;
+    }
+
+    //Compares two slots' tasks, of this segment or two different ones, by each field in turn, then by ID
+    static int compareSlots(TaskSortField[] order, TaskColumns columnsA, int a, TaskColumns columnsB, int b) {
+        for (TaskSortField field : order) {
+            int comparison;
+            switch (field) {
+                case PRIORITY:
+                    comparison = Integer.compare(bucket(columnsA.priorities[a]), bucket(columnsB.priorities[b]));
+                    break;
+                case CATEGORY:
+                    comparison = Integer.compare(bucket(columnsA.categories[a]), bucket(columnsB.categories[b]));
+                    break;
+                case DUE_DATE:
+                    comparison = Integer.compare(dueRank(columnsA, a), dueRank(columnsB, b));
+                    break;
+                default:
+                    comparison = columnsA.compareNames(a, columnsB, b);
+            }
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(columnsA.ids[a], columnsB.ids[b]);
+    }
+
+    private static char charAt(String name, int index) {
+        return index < name.length() ? name.charAt(index) : 0;
+    }
+
+    private static int bucket(byte ordinal) {
+        return ordinal < 0 ? NULL_BUCKET : ordinal;
+    }
+
+    //Slots of the tasks with the given bitmap IDs, which must be in ascending order and all in the segment
+    private int[] slotsOf(int[] bitmapIds) {
+        int[] slots = new int[bitmapIds.length];
+        int from = 0;
+        for (int i = 0; i < bitmapIds.length; i++) {
+            int id = bitmapIds[i] << TodoTaskStore.SEGMENT_BITS | index;
+            //IDs come in ascending order like the slots, so each search starts where the last one ended
+            int slot = from < columns.size && columns.ids[from] == id
+                    ? from : Arrays.binarySearch(columns.ids, from, columns.size, id);
+            slots[i] = slot;
+            from = slot + 1;
+        }
+        return slots;
+    }
+
+    //Moves the slots each piece of a scan found (written from the piece's first item on) to the front, in order;
+    //returns how many there are
+    private static int gather(int[] slots, int[] found) {
+        int count = 0;
+        for (int piece = 0; piece < found.length; piece++) {
+            System.arraycopy(slots, piece * ParallelScans.PIECE, slots, count, found[piece]);
+            count += found[piece];
+        }
+        return count;
+    }
+
+    //Adds a slot's task to the filter index, sorted views and name hashes, as the columns hold it
+    private void addToIndexes(int slot) {
+        filterIndex.add(bitmapId(columns.ids[slot]), columns.priorities[slot], columns.categories[slot],
+                columns.dueDays[slot], columns.completed.get(slot));
+        sortedViews.forEach((field, view) -> view.add(sortKey(field, slot)));
+        namesByHash.add(columns.nameHashes[slot], columns.ids[slot]);
+    }
+
+    //Takes a slot's task out of the filter index, sorted views and name hashes; must run before the columns change
+    private void removeFromIndexes(int slot) {
+        filterIndex.remove(bitmapId(columns.ids[slot]), columns.priorities[slot], columns.categories[slot],
+                columns.dueDays[slot], columns.completed.get(slot));
+        sortedViews.forEach((field, view) -> view.remove(sortKey(field, slot)));
+        namesByHash.remove(columns.nameHashes[slot], columns.ids[slot]);
+    }
+
+    //Builds each sorted view from the initial tasks with one sort, rather than one insert per task
+    private void loadSortedViews() {
+        int count = size();
+        for (TaskSortField field : TaskSortField.values()) {
+            long[] keys = new long[count];
+            int next = 0;
+            if (field == TaskSortField.NAME) {
+                sortedViews.put(field, new SortedKeys(this::compareNameKeys));
+                NamedSlot[] named = new NamedSlot[count];
+                for (int slot = columns.live.nextSetBit(0); slot >= 0; slot = columns.live.nextSetBit(slot + 1)) {
+                    named[next++] = new NamedSlot(columns.name(slot), slot);
+                }
+                Arrays.sort(named, Comparator.comparing(NamedSlot::name, NAME_ORDER)); //Stable: ties stay in ID order
+                for (int i = 0; i < count; i++) {
+                    keys[i] = sortKey(field, named[i].slot());
+                }
+            } else {
+                sortedViews.put(field, new SortedKeys(Long::compare));
+                for (int slot = columns.live.nextSetBit(0); slot >= 0; slot = columns.live.nextSetBit(slot + 1)) {
+                    keys[next++] = sortKey(field, slot);
+                }
+                Arrays.sort(keys);
+            }
+            sortedViews.get(field).load(keys, count);
+        }
+    }
+
+    //A slot's key in a sorted view: the sort value in the high half, ranked so that a missing value comes
+    //last, and the ID in the low half. Names only fit their first two characters, see compareNameKeys().
+    private long sortKey(TaskSortField field, int slot) {
+        long rank;
+        switch (field) {
+            case PRIORITY:
+                rank = bucket(columns.priorities[slot]);
+                break;
+            case CATEGORY:
+                rank = bucket(columns.categories[slot]);
+                break;
+            case DUE_DATE:
+                rank = dueRank(columns, slot);
+                break;
+            default:
+                String name = columns.name(slot);
+                rank = name == null ? 0xFFFFFFFFL : (long) charAt(name, 0) << 16 | charAt(name, 1);
+        }
+        return rank << 32 | (columns.ids[slot] & 0xFFFFFFFFL);
+    }
+
+    //Walks the first field's view until limit matches are found and, with more than one field, until the last of
+    //them is followed by a different first-field key, then orders what it found by every field. Returns null if
+    //that tie group runs on for too long to be worth it.
+    private int[] walkTop(TaskBitmap matches, int limit, TaskSortField[] order) {
+        TopSlots first = new TopSlots((a, b) -> compareSlots(order, columns, a, columns, b), limit);
+        int[] found = {0};
+        long[] lastRank = {-1};
+        boolean[] gaveUp = {false};
+        sortedViews.get(order[0]).forEachWhile(key -> {
+            long rank = key >>> 32;
+            if (found[0] >= limit && (order.length == 1 || rank != lastRank[0])) {
+                return false;
+            }
+            if (matches == null || matches.contains(bitmapId((int) key))) {
+                if (found[0] - limit >= MAX_TIE_SCAN) {
+                    gaveUp[0] = true;
+                    return false;
+                }
+                first.offer(columns.slotOf((int) key));
+                found[0]++;
+                lastRank[0] = rank;
+            }
+            return true;
+        });
+        return gaveUp[0] ? null : first.drainSorted();
+    }
+
+    private static int dueRank(TaskColumns columns, int slot) {
+        int day = columns.dueDays[slot];
+        return day == TaskColumns.NO_DUE_DATE ? Integer.MAX_VALUE : day; //No due date last
+    }
+
+    //Orders name keys by their first two characters, and only on a tie looks up and compares the whole names
+    //(then IDs). Keys are removed before a rename, so a name never changes under a key in the view.
+    private int compareNameKeys(long a, long b) {
+        int byPrefix = Integer.compareUnsigned((int) (a >>> 32), (int) (b >>> 32));
+        if (byPrefix != 0 || a == b) {
+            return byPrefix;
+        }
+        int byName = columns.compareNames(columns.slotOf((int) a), columns.slotOf((int) b));
+        return byName != 0 ? byName : Integer.compare((int) a, (int) b);
+    }
+
+    private static int bitmapId(int taskId) {
+        return taskId >> TodoTaskStore.SEGMENT_BITS;
+    }
+
+    private int liveSlotOf(int taskId) {
+        int slot = columns.slotOf(taskId);
+        return slot >= 0 && columns.live.get(slot) ? slot : -1;
+    }
+
+    //First slot holding an ID above the given one (BEFORE_FIRST_ID for the very first slot)
+    private int firstSlotAfter(long taskId) {
+        if (taskId == BEFORE_FIRST_ID) {
+            return 0;
+        }
+        int slot = columns.slotOf((int) taskId);
+        return slot >= 0 ? slot + 1 : -slot - 1;
+    }
+
+    //Drops removed slots and replaced text once they make up most of the segment, and rebuilds the name search
+    //index once most of its entries are stale
+    private void compactIfWasteful() {
+        if (columns.removed > MIN_COMPACTION_SLOTS && columns.removed * 2 > columns.size) {
+            columns.retainLive();
+        } else if (columns.textGarbage > MIN_COMPACTION_BYTES && columns.textGarbage * 2 > columns.textSize) {
+            columns.compactText();
+        }
+        if (nameSearchIndexReady && nameSearchIndex.isMostlyStale()) {
+            nameSearchIndex.clear();
+            for (int slot = columns.live.nextSetBit(0); slot >= 0; slot = columns.live.nextSetBit(slot + 1)) {
+                nameSearchIndex.add(columns.ids[slot], columns.foldedName(slot));
+            }
+        }
+    }
+
+    private static String fold(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    private record NamedSlot(String name, int slot) {
+    }
+}
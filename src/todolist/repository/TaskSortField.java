@@ -0,0 +1,6 @@
+package todolist.repository;
+
+// Orders TodoTaskStore keeps tasks sorted in. Each sorts tasks without a value last and ties in ID order.
+public enum TaskSortField {
+    PRIORITY, CATEGORY, DUE_DATE, NAME
+}
@@ -0,0 +1,534 @@
+package todolist.repository;
+import java.util.*;
+import java.util.function.Consumer;
+
+import todolist.model.TodoTask;
+
+// In-memory task store for multi-million-task datasets, safe for many concurrent readers and writers
+// Tasks are kept column by column in TaskColumns (an int array of IDs, byte arrays of priority and category
+// ordinals, an int array of due dates as epoch days, a bit set of completion flags and one UTF-8 arena for the
+// strings), in ID order, so:
+//   - an exact name lookup checks only the tasks whose name hashes the same (NameHashIndex)
+//   - filters on priority, category, due date and completion, alone or combined (TaskFilter), are answered
+//     from compressed bitmaps of task IDs kept in step with the columns (TaskBitmapIndex)
+//   - each sort order is kept as it changes (SortedKeys of the sort value and ID packed into a long, in blocks),
+//     so a sorted listing walks keys already in order and the first page costs only what it returns
+//   - the first k tasks of a filter in an order of one or more fields (top()) come from walking a sorted view
+//     or from a bounded heap of k tasks (TopSlots), never from sorting every match
+//   - a task takes a few dozen bytes plus its text, instead of a TodoTask, two Strings and a LocalDate
+//     plus a node in every index
+// Tasks go in and come out as copies: add() copies the task into the columns, and every lookup builds new
+// TodoTask objects for the tasks it returns, so a task must be changed through update(), never by mutating
+// a returned object. Building many tasks, and scanning names without the index, is split over several cores
+// when it pays off (ParallelScans).
+//
+// Concurrency: tasks are split by ID over SEGMENTS segments (TaskSegment), each with its own columns, indexes
+// and StampedLock. A change takes only its task's segment's write lock, so writers of tasks in different segments
+// don't wait for each other. A query takes every segment's read lock, in segment order, and merges what each
+// segment found, so it sees the store as it was at one moment. Writers hold a lock only for the few array writes
+// a change takes; slots freed by removals and text replaced by updates are reclaimed by an occasional compaction
+// of the segment under its write lock, amortized over the changes that caused it.
+//
+// A store created with existing tasks (e.g. loaded from disk) takes its columns as built, and indexes names for
+// substring search on a background thread; until that finishes, searches scan the lower-cased name column.
+public class TodoTaskStore {
+    static final int SEGMENT_BITS = 4; //A task's segment is given by the low bits of its ID
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int INDEX_CHUNK = 1 << 12; //Slots the background name indexer handles per write lock
+    private static final int READ_CHUNK = 1 << 8; //Tasks forEach() copies per segment per round of read locks
+    private static final int DENSE_IDS = 8; //ID range per task up to which tasks are put in ID order by a table
+    private static final ParallelScans.Kind BUILDING_TASKS = new ParallelScans.Kind();
+
+    private final TaskSegment[] segments = new TaskSegment[SEGMENTS];
+
+    public TodoTaskStore() {
+        this(emptyColumns(0));
+    }
+
+    //Creates a store holding the given tasks (which must have distinct IDs)
+    public TodoTaskStore(Collection<TodoTask> initialTasks) {
+        this(loadedFrom(initialTasks));
+    }
+
+    //Takes over each segment's columns, which are in ID order without duplicates
+    private TodoTaskStore(TaskColumns[] columns) {
+        boolean anyTasks = false;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new TaskSegment(i, columns[i]);
+            anyTasks |= segments[i].size() > 0;
+        }
+        if (anyTasks) {
+            Thread builder = new Thread(this::buildNameSearchIndex, "todo-name-index");
+            builder.setDaemon(true);
+            builder.start();
+        }
+    }
+
+    //Adds a copy of the task
+    public void add(TodoTask task) {
+        TaskSegment segment = segmentOf(task.getId());
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.add(task);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    //Removes a task; returns it as it was, or null if there is no task with that ID
+    public TodoTask remove(int taskId) {
+        TaskSegment segment = segmentOf(taskId);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.remove(taskId);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    //Applies a change to a copy of the stored task and stores the result; returns the changed task
+    public TodoTask update(int taskId, Consumer<TodoTask> change) {
+        TaskSegment segment = segmentOf(taskId);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.update(taskId, change);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public TodoTask findById(int taskId) {
+        TaskSegment segment = segmentOf(taskId);
+        long stamp = segment.lock.readLock();
+        try {
+            return segment.findById(taskId);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    //Returns the first task (in ID order) with the given name, or null
+    public TodoTask findFirstByName(String name) {
+        List<TodoTask> matches = findByName(name, 1);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    public List<TodoTask> findAllByName(String name) {
+        return findByName(name, Integer.MAX_VALUE);
+    }
+
+    //Returns the tasks matching a filter in ID order; the filter is answered from bitmaps of task IDs, so
+    //only the matching tasks are looked up
+    public List<TodoTask> filter(TaskFilter filter) {
+        long[] stamps = readLockAll();
+        try {
+            int[][] slots = new int[SEGMENTS][];
+            for (int i = 0; i < SEGMENTS; i++) {
+                slots[i] = segments[i].filter(filter);
+            }
+            return inIdOrder(slots, Integer.MAX_VALUE);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    //Returns tasks whose name contains the query, ignoring case
+    public List<TodoTask> searchByName(String query) {
+        String folded = query == null ? null : query.toLowerCase(Locale.ROOT);
+        byte[] foldedBytes = TaskColumns.utf8(folded);
+        long[] stamps = readLockAll();
+        try {
+            int[][] slots = new int[SEGMENTS][];
+            for (int i = 0; i < SEGMENTS; i++) {
+                slots[i] = segments[i].searchByName(folded, foldedBytes);
+            }
+            return inIdOrder(slots, Integer.MAX_VALUE);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    public List<TodoTask> findAll() {
+        long[] stamps = readLockAll();
+        try {
+            int[][] slots = new int[SEGMENTS][];
+            for (int i = 0; i < SEGMENTS; i++) {
+                slots[i] = segments[i].slotsAfter(TaskSegment.BEFORE_FIRST_ID, Integer.MAX_VALUE);
+            }
+            return inIdOrder(slots, Integer.MAX_VALUE);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    //Passes every task to the action in ID order, copying a chunk at a time so writers are only held up
+    //briefly; a change made while this runs may or may not be seen, but no task is passed twice
+    public void forEach(Consumer<TodoTask> action) {
+        long lastId = TaskSegment.BEFORE_FIRST_ID;
+        while (true) {
+            List<TodoTask> chunk;
+            long[] stamps = readLockAll();
+            try {
+                int[][] slots = new int[SEGMENTS][];
+                //Every segment has given all its tasks up to the lowest last ID among those that filled a chunk
+                long complete = Long.MAX_VALUE;
+                for (int i = 0; i < SEGMENTS; i++) {
+                    slots[i] = segments[i].slotsAfter(lastId, READ_CHUNK);
+                    if (slots[i].length == READ_CHUNK) {
+                        complete = Math.min(complete, segments[i].columns.ids[slots[i][READ_CHUNK - 1]]);
+                    }
+                }
+                for (int i = 0; i < SEGMENTS; i++) {
+                    int count = 0;
+                    while (count < slots[i].length && segments[i].columns.ids[slots[i][count]] <= complete) {
+                        count++;
+                    }
+                    slots[i] = Arrays.copyOf(slots[i], count);
+                }
+                chunk = inIdOrder(slots, Integer.MAX_VALUE);
+            } finally {
+                unlockAll(stamps);
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunk.forEach(action);
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    //Returns the first tasks (up to limit) in the given order: tasks without a value last, ties in ID order.
+    //The order is kept up to date as tasks change, so this only reads the first tasks of each segment.
+    public List<TodoTask> sorted(TaskSortField field, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1.");
+        }
+        TaskSortField[] order = {field};
+        long[] stamps = readLockAll();
+        try {
+            int[][] slots = new int[SEGMENTS][];
+            for (int i = 0; i < SEGMENTS; i++) {
+                slots[i] = segments[i].sorted(field, limit);
+            }
+            return inOrder(slots, limit, order);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    //Returns the first tasks (up to limit) matching the filter (null for all tasks) in the given order: by the first
+    //field, ties by the next one and so on, then by ID; tasks without a value come after those with one.
+    //Each segment picks its own first tasks (see TaskSegment.top()), and only those are merged.
+    public List<TodoTask> top(TaskFilter filter, int limit, TaskSortField... order) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1.");
+        }
+        if (order.length == 0) {
+            throw new IllegalArgumentException("At least one sort field is needed.");
+        }
+        long[] stamps = readLockAll();
+        try {
+            int[][] slots = new int[SEGMENTS][];
+            for (int i = 0; i < SEGMENTS; i++) {
+                slots[i] = segments[i].top(filter, limit, order);
+            }
+            return inOrder(slots, limit, order);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (TaskSegment segment : segments) {
+            long stamp = segment.lock.tryOptimisticRead();
+            int segmentSize = segment.size();
+            if (!segment.lock.validate(stamp)) {
+                stamp = segment.lock.readLock();
+                try {
+                    segmentSize = segment.size();
+                } finally {
+                    segment.lock.unlockRead(stamp);
+                }
+            }
+            size += segmentSize;
+        }
+        return size;
+    }
+
+    //Approximate heap bytes the task data, filter bitmaps, sorted views and name hashes take (not counting the name
+    //search index)
+    public long footprint() {
+        long bytes = 0;
+        for (TaskSegment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                bytes += segment.footprint();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return bytes;
+    }
+
+    //Collects tasks in any order, possibly several versions of one task and deletions, and builds a store
+    //from the last version of each task that wasn't deleted. Used to load saved tasks straight into columns,
+    //without keeping a TodoTask per task around. Not thread-safe.
+    public static final class Loader {
+        private final TaskColumns[] columns = emptyColumns(1 << 6);
+
+        public void put(TodoTask task) {
+            columns[task.getId() & (SEGMENTS - 1)].append(task);
+        }
+
+        public void delete(int taskId) {
+            columns[taskId & (SEGMENTS - 1)].appendRemoved(taskId);
+        }
+
+        public TodoTaskStore build() {
+            for (TaskColumns segment : columns) {
+                inIdOrder(segment);
+            }
+            return new TodoTaskStore(columns);
+        }
+    }
+
+    private TaskSegment segmentOf(int taskId) {
+        return segments[taskId & (SEGMENTS - 1)];
+    }
+
+    private long[] readLockAll() {
+        long[] stamps = new long[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            stamps[i] = segments[i].lock.readLock();
+        }
+        return stamps;
+    }
+
+    private void unlockAll(long[] stamps) {
+        for (int i = SEGMENTS - 1; i >= 0; i--) {
+            segments[i].lock.unlockRead(stamps[i]);
+        }
+    }
+
+    private static TaskColumns[] emptyColumns(int capacity) {
+        TaskColumns[] columns = new TaskColumns[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            columns[i] = new TaskColumns(capacity);
+        }
+        return columns;
+    }
+
+    //Sorts appended slots by ID, keeping only the last one appended for each ID, and drops removed ones
+    private static void inIdOrder(TaskColumns columns) {
+        int size = columns.size;
+        int[] ids = columns.ids;
+        boolean ordered = columns.removed == 0;
+        for (int slot = 1; slot < size && ordered; slot++) {
+            ordered = ids[slot - 1] < ids[slot];
+        }
+        if (ordered) {
+            return;
+        }
+        //ID in the high half, slot in the low half: sorting the longs sorts by ID, then by when it was appended
+        long[] keys = new long[size];
+        for (int slot = 0; slot < size; slot++) {
+            keys[slot] = ((long) ids[slot] << 32) | slot;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = (int) keys[i];
+            boolean lastForId = i + 1 == size || (int) (keys[i + 1] >> 32) != ids[slot];
+            if (lastForId && columns.live.get(slot)) {
+                order[count++] = slot;
+            }
+        }
+        columns.reorder(Arrays.copyOf(order, count));
+    }
+
+    private static TaskColumns[] loadedFrom(Collection<TodoTask> tasks) {
+        TaskColumns[] columns = emptyColumns(tasks.size() / SEGMENTS + 1);
+        for (TodoTask task : tasks) {
+            columns[task.getId() & (SEGMENTS - 1)].append(task);
+        }
+        for (TaskColumns segment : columns) {
+            int[] ids = Arrays.copyOf(segment.ids, segment.size);
+            Arrays.sort(ids);
+            for (int i = 1; i < ids.length; i++) {
+                if (ids[i] == ids[i - 1]) {
+                    throw new IllegalArgumentException("A task with ID " + ids[i] + " already exists.");
+                }
+            }
+            inIdOrder(segment);
+        }
+        return columns;
+    }
+
+    private List<TodoTask> findByName(String name, int limit) {
+        byte[] utf8 = TaskColumns.utf8(name);
+        int hash = name == null ? 0 : name.hashCode();
+        long[] stamps = readLockAll();
+        try {
+            int[][] slots = new int[SEGMENTS][];
+            for (int i = 0; i < SEGMENTS; i++) {
+                slots[i] = segments[i].findByName(utf8, hash, limit);
+            }
+            return inIdOrder(slots, limit);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    //Builds the first tasks (up to limit) of the slots each segment found in ID order, in ID order. Under the read
+    //locks.
+    private List<TodoTask> inIdOrder(int[][] slots, int limit) {
+        long total = 0;
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            int[] run = slots[segment];
+            if (run.length > 0) {
+                lowest = Math.min(lowest, segments[segment].columns.ids[run[0]]);
+                highest = Math.max(highest, segments[segment].columns.ids[run[run.length - 1]]);
+            }
+            total += run.length;
+        }
+        int[] picked = new int[(int) Math.min(limit, total)]; //Segment of each task, in order
+        if (highest - lowest < Math.min(DENSE_IDS * total, Integer.MAX_VALUE)) {
+            pickDense(slots, lowest, (int) (highest - lowest + 1), picked);
+        } else {
+            pickByHeap(slots, picked);
+        }
+        return tasksAt(slots, picked);
+    }
+
+    //Picks the segments of the first tasks in ID order by marking each task's ID in a table over the ID range
+    //(IDs are handed out in sequence, so the range is usually not much bigger than the number of tasks)
+    private void pickDense(int[][] slots, long lowest, int range, int[] picked) {
+        byte[] segmentWith = new byte[range]; //Segment + 1 of the task with each ID, 0 for none
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            int[] ids = segments[segment].columns.ids;
+            for (int slot : slots[segment]) {
+                segmentWith[(int) (ids[slot] - lowest)] = (byte) (segment + 1);
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < range && count < picked.length; i++) {
+            if (segmentWith[i] != 0) {
+                picked[count++] = segmentWith[i] - 1;
+            }
+        }
+    }
+
+    //Picks the segments of the first tasks in ID order with a min-heap of the ID at the head of each segment's
+    //run; an ID's low bits say which segment it came from
+    private void pickByHeap(int[][] slots, int[] picked) {
+        long[] heads = new long[SEGMENTS];
+        int[] positions = new int[SEGMENTS];
+        int size = 0;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            if (slots[segment].length > 0) {
+                heads[size++] = segments[segment].columns.ids[slots[segment][0]];
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heads, size, i);
+        }
+        for (int i = 0; i < picked.length; i++) {
+            int segment = (int) heads[0] & (SEGMENTS - 1);
+            picked[i] = segment;
+            int next = ++positions[segment];
+            int[] run = slots[segment];
+            heads[0] = next < run.length ? segments[segment].columns.ids[run[next]] : heads[--size];
+            siftDown(heads, size, 0);
+        }
+    }
+
+    private static void siftDown(long[] heap, int size, int index) {
+        long value = heap[index];
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    //Builds the first tasks (up to limit) of the slots each segment found in the given order, in that order. Picks
+    //each next task from the heads of the segments' runs, which for the short runs sorted() and top() merge costs
+    //less than keeping the heads in a heap. Under the read locks.
+    private List<TodoTask> inOrder(int[][] slots, int limit, TaskSortField[] order) {
+        int[] positions = new int[SEGMENTS];
+        long total = 0;
+        for (int[] run : slots) {
+            total += run.length;
+        }
+        int[] picked = new int[(int) Math.min(limit, total)];
+        for (int i = 0; i < picked.length; i++) {
+            int lowest = -1;
+            for (int segment = 0; segment < SEGMENTS; segment++) {
+                if (positions[segment] < slots[segment].length && (lowest < 0 || TaskSegment.compareSlots(order,
+                        segments[segment].columns, slots[segment][positions[segment]],
+                        segments[lowest].columns, slots[lowest][positions[lowest]]) < 0)) {
+                    lowest = segment;
+                }
+            }
+            picked[i] = lowest;
+            positions[lowest]++;
+        }
+        return tasksAt(slots, picked);
+    }
+
+    //Builds the tasks a merge picked (the segment of each, in order; each segment's in the order of its run). Goes
+    //through one segment after another, so each segment's columns are read in slot order rather than hopping
+    //between segments from one task to the next; several cores at a time for many tasks.
+    private List<TodoTask> tasksAt(int[][] slots, int[] picked) {
+        int[] starts = new int[SEGMENTS + 1]; //Where each segment's tasks start when built segment by segment
+        for (int segment : picked) {
+            starts[segment + 1]++;
+        }
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            starts[segment + 1] += starts[segment];
+        }
+        int[] positions = new int[picked.length]; //Of each task, built segment by segment, in the result
+        int[] segmentAt = new int[picked.length];
+        int[] filled = Arrays.copyOf(starts, SEGMENTS);
+        for (int i = 0; i < picked.length; i++) {
+            segmentAt[filled[picked[i]]] = picked[i];
+            positions[filled[picked[i]]++] = i;
+        }
+        TodoTask[] tasks = new TodoTask[picked.length];
+        ParallelScans.run(BUILDING_TASKS, picked.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int segment = segmentAt[i];
+                tasks[positions[i]] = segments[segment].columns.get(slots[segment][i - starts[segment]]);
+            }
+            return to - from;
+        });
+        return new ArrayList<>(Arrays.asList(tasks));
+    }
+
+    //Indexes the initial tasks' names for substring search, a chunk of one segment at a time under that segment's
+    //write lock. Tasks added or renamed meanwhile index themselves.
+    private void buildNameSearchIndex() {
+        for (TaskSegment segment : segments) {
+            boolean done = false;
+            while (!done) {
+                long stamp = segment.lock.writeLock();
+                try {
+                    done = segment.indexNames(INDEX_CHUNK);
+                } finally {
+                    segment.lock.unlockWrite(stamp);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package todolist.repository;
+import java.util.Arrays;
+
+// The first k of a stream of slots in a SlotOrder, kept in a bounded binary max-heap: the last slot kept is on
+// top, so a slot that doesn't make the cut costs one comparison and one that does costs O(log k). Picking the
+// first k of n tasks this way costs O(n log k) instead of sorting all n.
+// Not thread-safe: TodoTaskStore uses one per query, under its segments' locks.
+final class TopSlots {
+    interface SlotOrder {
+        int compare(int a, int b);
+    }
+
+    private final SlotOrder order;
+    private final int capacity;
+    private int[] heap;
+    private int size;
+
+    TopSlots(SlotOrder order, int capacity) {
+        this.order = order;
+        this.capacity = capacity;
+        this.heap = new int[Math.min(capacity, 1 << 10)];
+    }
+
+    void offer(int slot) {
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(capacity, heap.length * 2L));
+            }
+            heap[size] = slot;
+            siftUp(size++);
+        } else if (order.compare(slot, heap[0]) < 0) {
+            heap[0] = slot;
+            siftDown(0);
+        }
+    }
+
+    //The slots kept, first to last; empties the heap
+    int[] drainSorted() {
+        int[] sorted = new int[size];
+        while (size > 0) {
+            sorted[size - 1] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(slot, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int index) {
+        int slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(slot, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+}
@@ -0,0 +1,132 @@
+package todolist.repository;
+import java.util.*;
+
+// Inverted index from name trigrams (3-character substrings) to task IDs, for case-insensitive substring search
+// A query's trigrams must all appear in any name that contains it, so intersecting their posting lists
+// leaves only a few candidates, which the store then verifies against its lower-cased name column.
+// Posting lists are plain growable int arrays (4 bytes per entry, no boxing). They are append-only: renaming or
+// removing a task leaves its old entries behind for verification to skip, and the store rebuilds the index once
+// most entries are stale. Not thread-safe: TodoTaskStore guards it with its segment's lock.
+final class TrigramIndex {
+    private static final int MIN_REBUILD_ENTRIES = 1 << 16;
+
+    private final Map<Long, Postings> postings = new HashMap<>(); //Trigram -> IDs of tasks whose name contained it
+    private long entries;
+    private long staleEntries;
+
+    //Indexes a task's (already lower-cased) name
+    void add(int taskId, String folded) {
+        if (folded == null) {
+            return;
+        }
+        for (long trigram : trigramsOf(folded)) {
+            if (postings.computeIfAbsent(trigram, k -> new Postings()).add(taskId)) {
+                entries++;
+            }
+        }
+    }
+
+    //Records that a name indexed earlier no longer belongs to its task
+    void retire(String folded) {
+        if (folded != null) {
+            staleEntries += trigramsOf(folded).length;
+        }
+    }
+
+    //Whether rebuilding would drop most of the entries
+    boolean isMostlyStale() {
+        return staleEntries > MIN_REBUILD_ENTRIES && staleEntries * 2 > entries;
+    }
+
+    void clear() {
+        postings.clear();
+        entries = 0;
+        staleEntries = 0;
+    }
+
+    //IDs (ascending, distinct) of tasks whose name may contain the (lower-cased) query, or null if the query
+    //is too short to have a trigram. Stale entries are included, so every candidate must still be verified.
+    int[] candidates(String foldedQuery) {
+        long[] trigrams = trigramsOf(foldedQuery);
+        if (trigrams.length == 0) {
+            return null;
+        }
+        Postings[] lists = new Postings[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get(trigrams[i]);
+            if (lists[i] == null) {
+                return new int[0]; //Some trigram appears in no name at all
+            }
+        }
+        //Walk the smallest posting list and keep IDs present in all the others (those kept sorted can be searched)
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        Postings smallest = lists[0];
+        int[] matches = new int[smallest.size];
+        int count = 0;
+        for (int i = 0; i < smallest.size; i++) {
+            int taskId = smallest.ids[i];
+            if (inAll(lists, taskId)) {
+                matches[count++] = taskId;
+            }
+        }
+        if (!smallest.sorted) {
+            Arrays.sort(matches, 0, count);
+        }
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || matches[i] != matches[distinct - 1]) {
+                matches[distinct++] = matches[i];
+            }
+        }
+        return Arrays.copyOf(matches, distinct);
+    }
+
+    private static boolean inAll(Postings[] lists, int taskId) {
+        for (int i = 1; i < lists.length; i++) {
+            Postings list = lists[i];
+            if (list.sorted && Arrays.binarySearch(list.ids, 0, list.size, taskId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Distinct trigrams of an already folded string, each packed into a long (16 bits per char)
+    private static long[] trigramsOf(String folded) {
+        int count = Math.max(folded.length() - 2, 0);
+        long[] trigrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            trigrams[i] = ((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || trigrams[i] != trigrams[distinct - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    //Task IDs in the order they were added; sorted as long as tasks are indexed in ID order (the usual case)
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+        boolean sorted = true;
+
+        //Returns false if the ID was just added
+        boolean add(int taskId) {
+            if (size > 0 && ids[size - 1] >= taskId) {
+                if (ids[size - 1] == taskId) {
+                    return false;
+                }
+                sorted = false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+            }
+            ids[size++] = taskId;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package todolist.utils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+// Handler that hands records to a background thread through a bounded ring buffer
+// The logging thread only enqueues the record; formatting and output happen on the "todo-logging" thread,
+// which drains records in batches into one reused StringBuilder and flushes once the buffer is empty.
+// When the buffer is full the drop policy decides what gives: the new record, the oldest one, or the caller.
+// Settings can be passed in or read from LogManager/system properties:
+//   todolist.utils.AsyncLogHandler.bufferSize (default 1024)
+//   todolist.utils.AsyncLogHandler.dropPolicy (DROP_NEWEST, DROP_OLDEST or BLOCK; default DROP_NEWEST)
+public final class AsyncLogHandler extends Handler {
+    public enum DropPolicy {
+        DROP_NEWEST, //Discard the record being published
+        DROP_OLDEST, //Discard the oldest queued record to make room
+        BLOCK        //Wait for room (never loses a record, but can stall the caller)
+    }
+
+    private static final String PROPERTY_PREFIX = AsyncLogHandler.class.getName() + ".";
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024; //Don't keep a huge builder around after one big record
+
+    private final BlockingQueue<LogRecord> buffer;
+    private final DropPolicy dropPolicy;
+    private final Writer out;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    //Writes to System.err (like ConsoleHandler) with settings from LogManager/system properties
+    public AsyncLogHandler() {
+        this(System.err, intProperty("bufferSize", DEFAULT_BUFFER_SIZE),
+                DropPolicy.valueOf(property("dropPolicy", DropPolicy.DROP_NEWEST.name())));
+    }
+
+    public AsyncLogHandler(OutputStream out, int bufferSize, DropPolicy dropPolicy) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.dropPolicy = dropPolicy;
+        this.out = new OutputStreamWriter(out, Charset.defaultCharset());
+        setFormatter(new CustomLogFormatter());
+        writerThread = new Thread(this::drain, "todo-logging");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        switch (dropPolicy) {
+            case DROP_NEWEST:
+                if (!buffer.offer(record)) {
+                    dropped.incrementAndGet();
+                }
+                break;
+            case DROP_OLDEST:
+                while (!buffer.offer(record)) {
+                    if (buffer.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+            case BLOCK:
+                try {
+                    buffer.put(record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+        }
+    }
+
+    //Number of records discarded because the buffer was full
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    //Waits (up to a second) until everything published so far has been written
+    @Override
+    public void flush() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!buffer.isEmpty() && writerThread.isAlive() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    //Stops accepting records, writes out what is queued and stops the background thread
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        StringBuilder text = new StringBuilder(256);
+        LogRecord[] batch = new LogRecord[MAX_BATCH_SIZE];
+        long reportedDrops = 0;
+        while (true) {
+            LogRecord first;
+            try {
+                first = buffer.take();
+            } catch (InterruptedException e) {
+                first = buffer.poll(); //Closing: write whatever is left, then stop
+                if (first == null) {
+                    return;
+                }
+            }
+            batch[0] = first;
+            int count = 1;
+            LogRecord next;
+            while (count < batch.length && (next = buffer.poll()) != null) {
+                batch[count++] = next;
+            }
+
+            text.setLength(0);
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                text.append(Level.WARNING).append(": ").append(drops - reportedDrops).append(" log records dropped\n");
+                reportedDrops = drops;
+            }
+            for (int i = 0; i < count; i++) {
+                formatTo(batch[i], text);
+                batch[i] = null;
+            }
+            write(text);
+            if (text.capacity() > MAX_RETAINED_BUFFER) {
+                text = new StringBuilder(256);
+            }
+        }
+    }
+
+    private void formatTo(LogRecord record, StringBuilder text) {
+        Formatter formatter = getFormatter();
+        try {
+            if (formatter instanceof CustomLogFormatter) {
+                ((CustomLogFormatter) formatter).formatTo(record, text);
+            } else {
+                text.append(formatter.format(record));
+            }
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+
+    private void write(StringBuilder text) {
+        try {
+            out.append(text);
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = LogManager.getLogManager().getProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            value = System.getProperty(PROPERTY_PREFIX + name);
+        }
+        return value == null ? defaultValue : value.trim();
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        try {
+            return Integer.parseInt(property(name, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
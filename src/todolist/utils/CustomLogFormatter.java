@@ -1,4 +1,5 @@
 package todolist.utils;
+import java.text.MessageFormat;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
@@ -6,8 +7,19 @@ public class CustomLogFormatter extends Formatter {
     @Override
     public String format(LogRecord record) {
         StringBuilder builder = new StringBuilder();
-        builder.append(record.getLevel()).append(": ");
-        builder.append(formatMessage(record)).append("\n");
+        formatTo(record, builder);
         return builder.toString();
     }
+
+    //Appends the formatted record to a caller-owned builder, so a handler can reuse one buffer for every record
+    public void formatTo(LogRecord record, StringBuilder builder) {
+        builder.append(record.getLevel()).append(": ");
+        Object[] parameters = record.getParameters();
+        if (record.getResourceBundle() == null && (parameters == null || parameters.length == 0)) {
+            builder.append(record.getMessage()); //Plain message: nothing to localize or substitute
+        } else {
+            builder.append(formatMessage(record));
+        }
+        builder.append("\n");
+    }
 }